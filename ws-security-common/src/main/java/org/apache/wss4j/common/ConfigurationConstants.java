@@ -664,6 +664,20 @@ public class ConfigurationConstants {
      */
     public static final String DERIVED_KEY_ITERATIONS = "derivedKeyIterations";
 
+    /**
+     * The maximum number of XML events of an inbound security header (including the preceding
+     * SOAP header content) that the streaming code buffers. A message with a bigger header is rejected.
+     * The default is no limit.
+     */
+    public static final String MAX_SECURITY_HEADER_EVENTS = "maxSecurityHeaderEvents";
+
+    /**
+     * The maximum size, in characters of names, namespaces, attribute values and text, of an inbound
+     * security header (including the preceding SOAP header content) that the streaming code buffers.
+     * A message with a bigger header is rejected. The default is no limit.
+     */
+    public static final String MAX_SECURITY_HEADER_SIZE = "maxSecurityHeaderSize";
+
     /**
      * Defines which key identifier type to use for encryption. The WS-Security specifications
      * recommends to use the identifier type <code>IssuerSerial</code>. For encryption
@@ -881,6 +895,38 @@ public class ConfigurationConstants {
      */
     public static final String SAML_ONE_TIME_USE_CACHE_INSTANCE = "samlOneTimeUseCacheInstance";
 
+    /**
+     * This holds a reference to a SamlAssertionCache instance used on the sending side to reuse
+     * (signed) SAML Assertions, which are created with the same SAMLCallback content, until shortly
+     * before they expire. There is no default instance, i.e. SAML Assertions are created for every
+     * message unless a cache is configured.
+     */
+    public static final String SAML_ASSERTION_CACHE_INSTANCE = "samlAssertionCacheInstance";
+
+    /**
+     * This holds a reference to an EncryptedKeySession instance used on the sending side to reuse
+     * a wrapped symmetric key for the messages to the same recipient, until the key is rotated.
+     * There is no default instance, i.e. a new symmetric key is generated and wrapped for every
+     * message unless a session is configured.
+     */
+    public static final String ENCRYPTED_KEY_SESSION_INSTANCE = "encryptedKeySessionInstance";
+
+    /**
+     * This holds a reference to an UnwrappedKeyCache instance used on the receiving side to reuse
+     * the unwrapped key and the resolved recipient of an EncryptedKey that was received before.
+     * There is no default instance, i.e. every EncryptedKey is unwrapped with the private key
+     * unless a cache is configured.
+     */
+    public static final String UNWRAPPED_KEY_CACHE_INSTANCE = "unwrappedKeyCacheInstance";
+
+    /**
+     * This holds a reference to a DerivedKeyCache instance used on the receiving side to reuse
+     * the keys derived from UsernameToken passwords for the same username, salt and iteration
+     * count. There is no default instance, i.e. the key is derived for every use unless a cache is
+     * configured.
+     */
+    public static final String DERIVED_KEY_CACHE_INSTANCE = "derivedKeyCacheInstance";
+
     /**
      * This holds a reference to a PasswordEncryptor instance, which is used to encrypt or
      * decrypt passwords in the Merlin Crypto implementation (or any custom Crypto implementations).
@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.security.auth.Subject;
+
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.util.WSRandom;
+
+/**
+ * A bounded in-memory cache of successful JAAS authentications, which is used by the
+ * JAAS UsernameToken validators to avoid a JAAS login (e.g. an LDAP bind) per request.
+ * It maps a JAAS context name, a username and a plaintext password to the authenticated
+ * Subject. The password is not stored, but a hash of it with a salt that is generated per
+ * cache instance. The default TTL is 5 minutes and the default maximum number of entries is
+ * 1000. If the cache is full, the least recently used entry is removed.
+ *
+ * Please note that a cached Subject is shared by the requests of the same user, and that a
+ * change to the user (e.g. a changed password or a disabled account) only takes effect once
+ * the entry expired or is invalidated.
+ */
+public class AuthenticationCache implements Closeable {
+
+    public static final long DEFAULT_TTL = 60L * 5L;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final String HIT = "AuthenticationCache.hit";
+    private static final String MISS = "AuthenticationCache.miss";
+
+    private final byte[] salt = WSRandom.generateBytes(16);
+    private final long timeToLive;
+    private final Map<CacheKey, CacheEntry> cache;
+    private volatile SecurityInstrumentation instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+
+    public AuthenticationCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /**
+     * @param maxEntries The maximum number of cached authentications
+     * @param timeToLive The length of time to cache an authentication in seconds
+     */
+    public AuthenticationCache(final int maxEntries, long timeToLive) {
+        this.timeToLive = timeToLive;
+        cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the Subject of a cached authentication
+     * @param contextName The JAAS context name
+     * @param username The username
+     * @param password The plaintext password
+     * @return the cached Subject, or null if there is no authentication cached or if it is expired
+     */
+    public Subject get(String contextName, String username, String password) {
+        CacheKey key = new CacheKey(contextName, username, hash(password));
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null && entry.expires.isBefore(Instant.now())) {
+                cache.remove(key);
+                entry = null;
+            }
+            count(entry != null);
+            return entry == null ? null : entry.subject;
+        }
+    }
+
+    /**
+     * Cache a successful authentication
+     * @param contextName The JAAS context name
+     * @param username The username
+     * @param password The plaintext password
+     * @param subject The authenticated Subject
+     */
+    public void put(String contextName, String username, String password, Subject subject) {
+        if (subject == null) {
+            return;
+        }
+        CacheKey key = new CacheKey(contextName, username, hash(password));
+        CacheEntry entry = new CacheEntry(subject, Instant.now().plusSeconds(timeToLive));
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Remove the cached authentications of the given user, e.g. after a password change
+     * @param contextName The JAAS context name
+     * @param username The username
+     */
+    public void invalidate(String contextName, String username) {
+        synchronized (cache) {
+            Iterator<CacheKey> iterator = cache.keySet().iterator();
+            while (iterator.hasNext()) {
+                CacheKey key = iterator.next();
+                if (Objects.equals(key.contextName, contextName) && Objects.equals(key.username, username)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all cached authentications
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    /**
+     * Set the SecurityInstrumentation which counts the hits and misses of this cache (see
+     * SecurityStage#CACHE)
+     * @param instrumentation the SecurityInstrumentation, or null to not count anything
+     */
+    public void setInstrumentation(SecurityInstrumentation instrumentation) {
+        if (instrumentation == null) {
+            this.instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+        } else {
+            this.instrumentation = instrumentation;
+        }
+    }
+
+    public SecurityInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    private void count(boolean hit) {
+        SecurityInstrumentation counter = instrumentation;
+        if (counter.isEnabled()) {
+            counter.increment(SecurityStage.CACHE, hit ? HIT : MISS);
+        }
+    }
+
+    private byte[] hash(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CacheKey {
+        private final String contextName;
+        private final String username;
+        private final byte[] passwordHash;
+
+        CacheKey(String contextName, String username, byte[] passwordHash) {
+            this.contextName = contextName;
+            this.username = username;
+            this.passwordHash = passwordHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey)obj;
+            return Objects.equals(contextName, other.contextName)
+                && Objects.equals(username, other.username)
+                && MessageDigest.isEqual(passwordHash, other.passwordHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(contextName, username) + Arrays.hashCode(passwordHash);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final Subject subject;
+        private final Instant expires;
+
+        CacheEntry(Subject subject, Instant expires) {
+            this.subject = subject;
+            this.expires = expires;
+        }
+    }
+}
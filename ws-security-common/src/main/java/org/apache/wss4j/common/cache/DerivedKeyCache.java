@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.util.UsernameTokenUtil;
+import org.apache.wss4j.common.util.WSRandom;
+
+/**
+ * A bounded in-memory cache of keys derived from UsernameToken passwords (as defined in the WSS
+ * Username Token Profile), which avoids repeating the iterated SHA-1 derivation for a salt that is
+ * reused, e.g. for a UsernameToken that is referenced by several signatures, or that is sent again
+ * within a session. It maps a username, a password, a salt and an iteration count to the derived
+ * key. The password is not stored, but a hash of it with a salt that is generated per cache
+ * instance. The default TTL is 5 minutes and the default maximum number of entries is 1000. If
+ * the cache is full, the least recently used entry is removed.
+ */
+public class DerivedKeyCache implements Closeable {
+
+    public static final long DEFAULT_TTL = 60L * 5L;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final String HIT = "DerivedKeyCache.hit";
+    private static final String MISS = "DerivedKeyCache.miss";
+
+    private final byte[] passwordSalt = WSRandom.generateBytes(16);
+    private final long timeToLive;
+    private final Map<CacheKey, CacheEntry> cache;
+    private volatile SecurityInstrumentation instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+
+    public DerivedKeyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /**
+     * @param maxEntries The maximum number of cached keys
+     * @param timeToLive The length of time to cache a key in seconds
+     */
+    public DerivedKeyCache(final int maxEntries, long timeToLive) {
+        this.timeToLive = timeToLive;
+        cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > maxEntries) {
+                    Arrays.fill(eldest.getValue().derivedKey, (byte) 0);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the derived key for the given values, either from the cache, or by deriving (and
+     * caching) it.
+     * @param username The username
+     * @param password The password
+     * @param salt The Salt value
+     * @param iteration The Iteration value. If zero (0) is given the default value is used
+     * @return the derived key
+     * @throws WSSecurityException
+     */
+    public byte[] getDerivedKey(
+        String username, byte[] password, byte[] salt, int iteration
+    ) throws WSSecurityException {
+        int iter = iteration <= 0 ? UsernameTokenUtil.DEFAULT_ITERATION : iteration;
+        CacheKey key = new CacheKey(username, hash(password), salt.clone(), iter);
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (!entry.expires.isBefore(Instant.now())) {
+                    count(true);
+                    return entry.derivedKey.clone();
+                }
+                cache.remove(key);
+                Arrays.fill(entry.derivedKey, (byte) 0);
+            }
+        }
+        count(false);
+
+        byte[] derivedKey = UsernameTokenUtil.generateDerivedKey(password, salt, iter);
+        CacheEntry entry = new CacheEntry(derivedKey.clone(), Instant.now().plusSeconds(timeToLive));
+        synchronized (cache) {
+            CacheEntry previous = cache.put(key, entry);
+            if (previous != null) {
+                Arrays.fill(previous.derivedKey, (byte) 0);
+            }
+        }
+        return derivedKey;
+    }
+
+    /**
+     * Return the derived key for the given values, either from the cache, or by deriving (and
+     * caching) it.
+     * @param username The username
+     * @param password The password
+     * @param salt The Salt value
+     * @param iteration The Iteration value. If zero (0) is given the default value is used
+     * @return the derived key
+     * @throws WSSecurityException
+     */
+    public byte[] getDerivedKey(
+        String username, String password, byte[] salt, int iteration
+    ) throws WSSecurityException {
+        return getDerivedKey(username, password.getBytes(StandardCharsets.UTF_8), salt, iteration);
+    }
+
+    /**
+     * Remove all cached keys
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            for (CacheEntry entry : cache.values()) {
+                Arrays.fill(entry.derivedKey, (byte) 0);
+            }
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    /**
+     * Set the SecurityInstrumentation which counts the hits and misses of this cache (see
+     * SecurityStage#CACHE)
+     * @param instrumentation the SecurityInstrumentation, or null to not count anything
+     */
+    public void setInstrumentation(SecurityInstrumentation instrumentation) {
+        if (instrumentation == null) {
+            this.instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+        } else {
+            this.instrumentation = instrumentation;
+        }
+    }
+
+    public SecurityInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    private void count(boolean hit) {
+        SecurityInstrumentation counter = instrumentation;
+        if (counter.isEnabled()) {
+            counter.increment(SecurityStage.CACHE, hit ? HIT : MISS);
+        }
+    }
+
+    private byte[] hash(byte[] password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(passwordSalt);
+            return digest.digest(password);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CacheKey {
+        private final String username;
+        private final byte[] passwordHash;
+        private final byte[] salt;
+        private final int iteration;
+
+        CacheKey(String username, byte[] passwordHash, byte[] salt, int iteration) {
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.salt = salt;
+            this.iteration = iteration;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey)obj;
+            return iteration == other.iteration
+                && Objects.equals(username, other.username)
+                && MessageDigest.isEqual(passwordHash, other.passwordHash)
+                && Arrays.equals(salt, other.salt);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hashCode(username) + Arrays.hashCode(salt)) + iteration;
+        }
+    }
+
+    private static final class CacheEntry {
+        private final byte[] derivedKey;
+        private final Instant expires;
+
+        CacheEntry(byte[] derivedKey, Instant expires) {
+            this.derivedKey = derivedKey;
+            this.expires = expires;
+        }
+    }
+}
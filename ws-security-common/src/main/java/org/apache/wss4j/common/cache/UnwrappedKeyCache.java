@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+
+/**
+ * A bounded in-memory cache of unwrapped EncryptedKeys, which is used on the receiving side to
+ * avoid the private key operation (e.g. RSA-OAEP) and the resolution of the recipient
+ * certificate for an EncryptedKey that was received before, e.g. a key that is reused by the
+ * sender for a session, or a retried message. An entry is keyed by a SHA-256 digest of the
+ * encrypted key bytes and the key transport parameters, and holds the unwrapped key together
+ * with the resolved recipient certificates or public key.
+ *
+ * The default TTL is 5 minutes and the default maximum number of entries is 1000. If the cache
+ * is full, the least recently used entry is removed. The bytes of an unwrapped key are
+ * overwritten when its entry is removed, and only copies of them are handed out.
+ *
+ * Please note that only successfully unwrapped keys must be cached, and that a cache must not
+ * be shared by configurations with different decryption keys.
+ */
+public class UnwrappedKeyCache implements Closeable {
+
+    public static final long DEFAULT_TTL = 60L * 5L;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final String HIT = "UnwrappedKeyCache.hit";
+    private static final String MISS = "UnwrappedKeyCache.miss";
+
+    private final long timeToLive;
+    private final Map<ByteBuffer, CachedKey> cache;
+    private volatile SecurityInstrumentation instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+
+    public UnwrappedKeyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /**
+     * @param maxEntries The maximum number of cached keys
+     * @param timeToLive The length of time to cache a key in seconds
+     */
+    public UnwrappedKeyCache(final int maxEntries, long timeToLive) {
+        this.timeToLive = timeToLive;
+        cache = new LinkedHashMap<ByteBuffer, CachedKey>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedKey> eldest) {
+                if (size() > maxEntries) {
+                    eldest.getValue().destroy();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return a cached key
+     * @param encryptedKey The encrypted key bytes (i.e. the decoded CipherValue)
+     * @param parameters The key transport algorithm and its parameters, and anything else the
+     *                   unwrapped key and the recipient depend on
+     * @return the cached key, or null if there is no key cached or if it is expired
+     */
+    public CachedKey get(byte[] encryptedKey, String... parameters) {
+        ByteBuffer key = digest(encryptedKey, parameters);
+        synchronized (cache) {
+            CachedKey cachedKey = cache.get(key);
+            if (cachedKey != null && cachedKey.expires.isBefore(Instant.now())) {
+                cache.remove(key);
+                cachedKey.destroy();
+                cachedKey = null;
+            }
+            count(cachedKey != null);
+            return cachedKey == null ? null : cachedKey.copy();
+        }
+    }
+
+    /**
+     * Cache a successfully unwrapped key
+     * @param encryptedKey The encrypted key bytes (i.e. the decoded CipherValue)
+     * @param parameters The key transport algorithm and its parameters, and anything else the
+     *                   unwrapped key and the recipient depend on
+     * @param secret The unwrapped key bytes
+     * @param certificates The recipient certificates, if any
+     * @param publicKey The recipient public key
+     * @param referenceType The way the recipient certificates were referenced, if any
+     */
+    public void put(
+        byte[] encryptedKey, String[] parameters, byte[] secret,
+        X509Certificate[] certificates, PublicKey publicKey, String referenceType
+    ) {
+        if (secret == null) {
+            return;
+        }
+        ByteBuffer key = digest(encryptedKey, parameters);
+        CachedKey cachedKey =
+            new CachedKey(secret.clone(), certificates, publicKey, referenceType,
+                          Instant.now().plusSeconds(timeToLive));
+        synchronized (cache) {
+            CachedKey previous = cache.put(key, cachedKey);
+            if (previous != null) {
+                previous.destroy();
+            }
+        }
+    }
+
+    /**
+     * Remove all cached keys
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            for (CachedKey cachedKey : cache.values()) {
+                cachedKey.destroy();
+            }
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    /**
+     * Set the SecurityInstrumentation which counts the hits and misses of this cache (see
+     * SecurityStage#CACHE)
+     * @param instrumentation the SecurityInstrumentation, or null to not count anything
+     */
+    public void setInstrumentation(SecurityInstrumentation instrumentation) {
+        if (instrumentation == null) {
+            this.instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+        } else {
+            this.instrumentation = instrumentation;
+        }
+    }
+
+    public SecurityInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    private void count(boolean hit) {
+        SecurityInstrumentation counter = instrumentation;
+        if (counter.isEnabled()) {
+            counter.increment(SecurityStage.CACHE, hit ? HIT : MISS);
+        }
+    }
+
+    private static ByteBuffer digest(byte[] encryptedKey, String[] parameters) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String parameter : parameters) {
+                if (parameter != null) {
+                    digest.update(parameter.getBytes(StandardCharsets.UTF_8));
+                }
+                // Separate the parameters, so that their boundaries are part of the digest
+                digest.update((byte) 0);
+            }
+            return ByteBuffer.wrap(digest.digest(encryptedKey));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An unwrapped key together with its recipient.
+     */
+    public static final class CachedKey {
+        private final byte[] secret;
+        private final X509Certificate[] certificates;
+        private final PublicKey publicKey;
+        private final String referenceType;
+        private final Instant expires;
+
+        private CachedKey(
+            byte[] secret, X509Certificate[] certificates, PublicKey publicKey,
+            String referenceType, Instant expires
+        ) {
+            this.secret = secret;
+            this.certificates = certificates;
+            this.publicKey = publicKey;
+            this.referenceType = referenceType;
+            this.expires = expires;
+        }
+
+        private CachedKey copy() {
+            X509Certificate[] certificatesCopy = certificates == null ? null : certificates.clone();
+            return new CachedKey(secret.clone(), certificatesCopy, publicKey, referenceType, expires);
+        }
+
+        private void destroy() {
+            Arrays.fill(secret, (byte) 0);
+        }
+
+        public byte[] getSecret() {
+            return secret;
+        }
+
+        public X509Certificate[] getCertificates() {
+            return certificates;
+        }
+
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        public String getReferenceType() {
+            return referenceType;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.crypto;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A cache of parsed X.509 certificates and of values derived from certificates, which is used
+ * by CryptoBase. The parsed certificates are cached by the SHA-256 digest of their encoded bytes,
+ * in a bounded LRU map of soft references, so that they can be reclaimed under memory pressure.
+ * The derived values (SKI and SHA-1 thumbprint) are cached in a map with weak keys, so that they
+ * are kept only as long as the certificate is in use.
+ */
+final class CertificateCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Map<ByteBuffer, SoftReference<X509Certificate[]>> certificates;
+    private final Map<X509Certificate, DerivedValues> derivedValues = new WeakHashMap<>();
+
+    CertificateCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    CertificateCache(final int maxEntries) {
+        certificates = new LinkedHashMap<ByteBuffer, SoftReference<X509Certificate[]>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, SoftReference<X509Certificate[]>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the key of the given encoded certificate(s)
+     */
+    ByteBuffer getKey(byte[] data) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a copy of the cached certificate(s), or null if they are not cached
+     */
+    X509Certificate[] getCertificates(ByteBuffer key) {
+        SoftReference<X509Certificate[]> reference;
+        synchronized (certificates) {
+            reference = certificates.get(key);
+        }
+        if (reference != null) {
+            X509Certificate[] certs = reference.get();
+            if (certs != null) {
+                return certs.clone();
+            }
+        }
+        return null;
+    }
+
+    void putCertificates(ByteBuffer key, X509Certificate[] certs) {
+        synchronized (certificates) {
+            certificates.put(key, new SoftReference<>(certs.clone()));
+        }
+    }
+
+    byte[] getSKI(X509Certificate cert) {
+        synchronized (derivedValues) {
+            DerivedValues values = derivedValues.get(cert);
+            return values == null || values.ski == null ? null : values.ski.clone();
+        }
+    }
+
+    void putSKI(X509Certificate cert, byte[] ski) {
+        synchronized (derivedValues) {
+            getDerivedValues(cert).ski = ski.clone();
+        }
+    }
+
+    byte[] getThumbprint(X509Certificate cert) {
+        synchronized (derivedValues) {
+            DerivedValues values = derivedValues.get(cert);
+            return values == null || values.thumbprint == null ? null : values.thumbprint.clone();
+        }
+    }
+
+    void putThumbprint(X509Certificate cert, byte[] thumbprint) {
+        synchronized (derivedValues) {
+            getDerivedValues(cert).thumbprint = thumbprint.clone();
+        }
+    }
+
+    private DerivedValues getDerivedValues(X509Certificate cert) {
+        DerivedValues values = derivedValues.get(cert);
+        if (values == null) {
+            values = new DerivedValues();
+            derivedValues.put(cert, values);
+        }
+        return values;
+    }
+
+    private static final class DerivedValues {
+        private byte[] ski;
+        private byte[] thumbprint;
+    }
+}
@@ -20,13 +20,11 @@
 package org.apache.wss4j.common.crypto;
 
 import java.math.BigInteger;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathValidator;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
@@ -349,28 +347,12 @@ public class CertificateStore extends CryptoBase {
      * @throws WSSecurityException if problems during keystore handling or wrong certificate
      */
     private X509Certificate[] getX509Certificates(byte[] thumb) throws WSSecurityException {
-        MessageDigest sha = null;
-
         if (trustedCerts == null) {
             return null;
         }
 
-        try {
-            sha = MessageDigest.getInstance("SHA1");
-        } catch (NoSuchAlgorithmException e) {
-            throw new WSSecurityException(
-                WSSecurityException.ErrorCode.FAILURE, e, "decoding.general"
-            );
-        }
         for (X509Certificate trustedCert : trustedCerts) {
-            try {
-                sha.update(trustedCert.getEncoded());
-            } catch (CertificateEncodingException ex) {
-                throw new WSSecurityException(
-                    WSSecurityException.ErrorCode.SECURITY_TOKEN_UNAVAILABLE, ex, "encodeError"
-                );
-            }
-            byte[] data = sha.digest();
+            byte[] data = getThumbprintBytesFromCert(trustedCert);
 
             if (Arrays.equals(data, thumb)) {
                 return new X509Certificate[]{trustedCert};
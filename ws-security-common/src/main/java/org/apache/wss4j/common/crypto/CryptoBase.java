@@ -23,7 +23,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.cert.CertPath;
 import java.security.cert.CertificateEncodingException;
@@ -64,6 +66,7 @@ public abstract class CryptoBase implements Crypto {
     private String defaultAlias;
     private String cryptoProvider;
     private String trustProvider;
+    private final CertificateCache certificateCache = new CertificateCache();
 
     static {
         Constructor<?> cons = null;
@@ -181,13 +184,34 @@ public abstract class CryptoBase implements Crypto {
     }
 
     /**
-     * Load a X509Certificate from the input stream.
+     * Load a X509Certificate from the input stream. If the input stream is a ByteArrayInputStream,
+     * the parsed certificate is cached by the digest of the bytes, and a later call with the same
+     * bytes returns the cached certificate.
      *
      * @param in The <code>InputStream</code> containing the X509Certificate
      * @return An X509 certificate
      * @throws WSSecurityException
      */
     public X509Certificate loadCertificate(InputStream in) throws WSSecurityException {
+        if (in instanceof ByteArrayInputStream) {
+            ByteArrayInputStream byteStream = (ByteArrayInputStream) in;
+            byte[] data = new byte[byteStream.available()];
+            int read = byteStream.read(data, 0, data.length);
+            if (read != data.length) {
+                data = Arrays.copyOf(data, Math.max(read, 0));
+            }
+            ByteBuffer key = certificateCache.getKey(data);
+            X509Certificate[] certs = certificateCache.getCertificates(key);
+            if (certs == null) {
+                certs = new X509Certificate[] {parseCertificate(new ByteArrayInputStream(data))};
+                certificateCache.putCertificates(key, certs);
+            }
+            return certs[0];
+        }
+        return parseCertificate(in);
+    }
+
+    private X509Certificate parseCertificate(InputStream in) throws WSSecurityException {
         try {
             CertificateFactory certFactory = getCertificateFactory();
             return (X509Certificate) certFactory.generateCertificate(in);
@@ -211,6 +235,15 @@ public abstract class CryptoBase implements Crypto {
      * @return The byte array containing the binary SKI data
      */
     public byte[] getSKIBytesFromCert(X509Certificate cert) throws WSSecurityException {
+        byte[] ski = certificateCache.getSKI(cert);
+        if (ski == null) {
+            ski = computeSKIBytes(cert);
+            certificateCache.putSKI(cert, ski);
+        }
+        return ski;
+    }
+
+    private byte[] computeSKIBytes(X509Certificate cert) throws WSSecurityException {
         //
         // Gets the DER-encoded OCTET string for the extension value (extnValue)
         // identified by the passed-in oid String. The oid string is represented
@@ -244,6 +277,32 @@ public abstract class CryptoBase implements Crypto {
         return extVal.getBytes(keyIDLen);
     }
 
+    /**
+     * Get the SHA-1 thumbprint of the certificate, i.e. the SHA-1 digest of the encoded certificate.
+     *
+     * @param cert The certificate
+     * @return The byte array containing the thumbprint
+     * @throws WSSecurityException
+     */
+    protected byte[] getThumbprintBytesFromCert(X509Certificate cert) throws WSSecurityException {
+        byte[] thumbprint = certificateCache.getThumbprint(cert);
+        if (thumbprint == null) {
+            try {
+                thumbprint = MessageDigest.getInstance("SHA-1").digest(cert.getEncoded());
+            } catch (NoSuchAlgorithmException e) {
+                throw new WSSecurityException(
+                    WSSecurityException.ErrorCode.FAILURE, e, "decoding.general"
+                );
+            } catch (CertificateEncodingException ex) {
+                throw new WSSecurityException(
+                    WSSecurityException.ErrorCode.SECURITY_TOKEN_UNAVAILABLE, ex, "encodeError"
+                );
+            }
+            certificateCache.putThumbprint(cert, thumbprint);
+        }
+        return thumbprint;
+    }
+
     /**
      * Get a byte array given an array of X509 certificates.
      * <p/>
@@ -278,6 +337,12 @@ public abstract class CryptoBase implements Crypto {
      */
     public X509Certificate[] getCertificatesFromBytes(byte[] data)
         throws WSSecurityException {
+        ByteBuffer key = certificateCache.getKey(data);
+        X509Certificate[] cachedCerts = certificateCache.getCertificates(key);
+        if (cachedCerts != null) {
+            return cachedCerts;
+        }
+
         CertPath path = null;
         try (InputStream in = new ByteArrayInputStream(data)) {
             path = getCertificateFactory().generateCertPath(in);
@@ -293,6 +358,7 @@ public abstract class CryptoBase implements Crypto {
         for (Iterator<?> iterator = l.iterator(); iterator.hasNext();) {
             certs[i++] = (X509Certificate) iterator.next();
         }
+        certificateCache.putCertificates(key, certs);
         return certs;
     }
 
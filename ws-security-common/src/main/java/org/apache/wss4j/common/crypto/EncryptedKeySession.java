@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.crypto;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.KeyUtils;
+
+/**
+ * An opt-in session for outbound EncryptedKeys. Normally a new symmetric key is generated and
+ * wrapped with the public key of the recipient (e.g. RSA-OAEP) for every message. If a session
+ * is configured, a symmetric key and its wrapped form are reused for the messages to the same
+ * recipient (and with the same algorithms), until the key is rotated. So only the first message
+ * of a rotation period pays for the public key operation.
+ *
+ * A key is rotated after it was used for a maximum number of messages (default 100) or after a
+ * maximum age (default 5 minutes), whichever comes first. A rotation can also be forced by
+ * calling {@link #rotate()}. Please note that reusing a key means that the messages within a
+ * rotation period are encrypted with the same key, so the limits should be chosen according to
+ * the security requirements. The keys of at most 100 recipients are kept.
+ */
+public class EncryptedKeySession {
+
+    public static final int DEFAULT_MAX_MESSAGES = 100;
+    public static final long DEFAULT_MAX_AGE = 60L * 5L;
+
+    private static final int MAX_RECIPIENTS = 100;
+
+    private final int maxMessages;
+    private final long maxAge;
+    private final Map<SessionId, SessionKey> sessionKeys =
+        new LinkedHashMap<SessionId, SessionKey>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SessionId, SessionKey> eldest) {
+                return size() > MAX_RECIPIENTS;
+            }
+        };
+
+    public EncryptedKeySession() {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * @param maxMessages The maximum number of messages a key is used for
+     * @param maxAge The maximum age of a key in seconds
+     */
+    public EncryptedKeySession(int maxMessages, long maxAge) {
+        if (maxMessages < 1 || maxAge < 1) {
+            throw new IllegalArgumentException("The maximum number of messages and the maximum age must be positive");
+        }
+        this.maxMessages = maxMessages;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Return the current key for the given recipient and algorithms, and count a use of it.
+     * @param recipientKey The public key of the recipient, which is used to wrap the key
+     * @param algorithms The symmetric and key transport algorithms (and their parameters)
+     * @return the current key, or null if there is no key or if it must be rotated
+     */
+    public synchronized SessionKey acquire(PublicKey recipientKey, String... algorithms) {
+        SessionId sessionId = new SessionId(recipientKey, algorithms);
+        SessionKey sessionKey = sessionKeys.get(sessionId);
+        if (sessionKey == null) {
+            return null;
+        }
+        if (sessionKey.uses >= maxMessages || sessionKey.created.plusSeconds(maxAge).isBefore(Instant.now())) {
+            sessionKeys.remove(sessionId);
+            return null;
+        }
+        sessionKey.uses++;
+        return sessionKey;
+    }
+
+    /**
+     * Store a newly generated and wrapped key as the current key for the given recipient and
+     * algorithms. It counts as used once.
+     * @param recipientKey The public key of the recipient, which is used to wrap the key
+     * @param key The symmetric key
+     * @param encryptedKey The wrapped symmetric key
+     * @param algorithms The symmetric and key transport algorithms (and their parameters)
+     * @return the stored key
+     * @throws WSSecurityException
+     */
+    public SessionKey store(
+        PublicKey recipientKey, Key key, byte[] encryptedKey, String... algorithms
+    ) throws WSSecurityException {
+        String encryptedKeySHA1 = Base64.getEncoder().encodeToString(KeyUtils.generateDigest(encryptedKey));
+        SessionKey sessionKey = new SessionKey(key, encryptedKey, encryptedKeySHA1);
+        synchronized (this) {
+            sessionKeys.put(new SessionId(recipientKey, algorithms), sessionKey);
+        }
+        return sessionKey;
+    }
+
+    /**
+     * Discard all current keys, so that the next message to each recipient gets a new key
+     */
+    public synchronized void rotate() {
+        sessionKeys.clear();
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * A reused symmetric key together with its wrapped form.
+     */
+    public static final class SessionKey {
+        private final Key key;
+        private final byte[] encryptedKey;
+        private final String encryptedKeySHA1;
+        private final Instant created = Instant.now();
+        private int uses = 1;
+
+        private SessionKey(Key key, byte[] encryptedKey, String encryptedKeySHA1) {
+            this.key = key;
+            this.encryptedKey = encryptedKey.clone();
+            this.encryptedKeySHA1 = encryptedKeySHA1;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        public byte[] getEncryptedKey() {
+            return encryptedKey.clone();
+        }
+
+        /**
+         * @return the base64 encoded SHA-1 digest of the wrapped key, which can be used to refer
+         *         to the EncryptedKey with an EncryptedKeySHA1 KeyIdentifier
+         */
+        public String getEncryptedKeySHA1() {
+            return encryptedKeySHA1;
+        }
+
+        public Instant getCreated() {
+            return created;
+        }
+    }
+
+    private static final class SessionId {
+        private final PublicKey recipientKey;
+        private final String[] algorithms;
+
+        SessionId(PublicKey recipientKey, String[] algorithms) {
+            this.recipientKey = recipientKey;
+            this.algorithms = algorithms;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof SessionId)) {
+                return false;
+            }
+            SessionId other = (SessionId) object;
+            return recipientKey.equals(other.recipientKey) && Arrays.equals(algorithms, other.algorithms);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * recipientKey.hashCode() + Arrays.hashCode(algorithms);
+        }
+    }
+}
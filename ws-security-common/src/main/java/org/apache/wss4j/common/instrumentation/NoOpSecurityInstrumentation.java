@@ -0,0 +1,52 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.instrumentation;
+
+/**
+ * The default SecurityInstrumentation, which doesn't record anything.
+ */
+public final class NoOpSecurityInstrumentation implements SecurityInstrumentation {
+
+    public static final SecurityInstrumentation INSTANCE = new NoOpSecurityInstrumentation();
+
+    private NoOpSecurityInstrumentation() {
+        // complete
+    }
+
+    public boolean isEnabled() {
+        return false;
+    }
+
+    public void record(SecurityStage stage, String name, long durationNanos, boolean success) {
+        // do nothing
+    }
+
+    public void increment(SecurityStage stage, String name) {
+        // do nothing
+    }
+
+    public Object startSpan(SecurityStage stage, String name) {
+        return null;
+    }
+
+    public void endSpan(Object span, boolean success) {
+        // do nothing
+    }
+
+}
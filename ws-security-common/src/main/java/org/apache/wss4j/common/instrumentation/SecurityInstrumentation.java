@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.instrumentation;
+
+/**
+ * This interface allows an application to collect timings, counters and spans of the
+ * security processing, e.g. to feed a metrics or a tracing library. It is installed
+ * via the WSSConfig (DOM) or the WSSSecurityProperties (StAX).
+ *
+ * The methods are called on the processing threads, so implementations must be thread-safe
+ * and should return quickly.
+ */
+public interface SecurityInstrumentation {
+
+    /**
+     * @return whether anything is recorded. If false, none of the other methods are called.
+     */
+    boolean isEnabled();
+
+    /**
+     * Record the duration of a stage
+     * @param stage the stage
+     * @param name the name of the processor, token type or algorithm within the stage
+     * @param durationNanos the duration in nanoseconds
+     * @param success whether the stage completed without an exception
+     */
+    void record(SecurityStage stage, String name, long durationNanos, boolean success);
+
+    /**
+     * Increment a counter, e.g. a cache hit or miss
+     * @param stage the stage
+     * @param name the name of the counter within the stage
+     */
+    void increment(SecurityStage stage, String name);
+
+    /**
+     * Called when a stage starts.
+     * @param stage the stage
+     * @param name the name of the processor, token type or algorithm within the stage
+     * @return a span object which is passed to endSpan, or null
+     */
+    Object startSpan(SecurityStage stage, String name);
+
+    /**
+     * Called when a stage ends.
+     * @param span the object returned by startSpan
+     * @param success whether the stage completed without an exception
+     */
+    void endSpan(Object span, boolean success);
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.instrumentation;
+
+/**
+ * The stages of the security processing reported to a SecurityInstrumentation.
+ */
+public enum SecurityStage {
+
+    /**
+     * The processing of a complete security header. The name is the actor, or "" for the default actor.
+     */
+    SECURITY_HEADER,
+
+    /**
+     * The processing of a security header element by a DOM Processor or a StAX security header handler.
+     * The name is the local name of the element, i.e. the token type.
+     */
+    PROCESSOR,
+
+    /**
+     * The validation of a token by a Validator. The name is the local name of the QName of the Validator.
+     */
+    VALIDATOR,
+
+    /**
+     * The trust verification of a certificate (chain) by a Crypto. The name is the signature algorithm
+     * of the (first) certificate.
+     */
+    VERIFY_TRUST,
+
+    /**
+     * A lookup in a cache, which is only counted. The name is the simple class name of the cache
+     * followed by ".hit" or ".miss", e.g. "UnwrappedKeyCache.hit".
+     */
+    CACHE
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.instrumentation;
+
+/**
+ * Times a stage and reports it to a SecurityInstrumentation. A SecurityTimer is only created
+ * if the SecurityInstrumentation is enabled:
+ *
+ * <pre>
+ * SecurityTimer timer = SecurityTimer.start(instrumentation, SecurityStage.PROCESSOR, name);
+ * boolean success = false;
+ * try {
+ *     ...
+ *     success = true;
+ * } finally {
+ *     SecurityTimer.stop(timer, success);
+ * }
+ * </pre>
+ */
+public final class SecurityTimer {
+
+    private final SecurityInstrumentation instrumentation;
+    private final SecurityStage stage;
+    private final String name;
+    private final Object span;
+    private final long startNanos;
+
+    private SecurityTimer(SecurityInstrumentation instrumentation, SecurityStage stage, String name) {
+        this.instrumentation = instrumentation;
+        this.stage = stage;
+        this.name = name;
+        this.span = instrumentation.startSpan(stage, name);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start timing a stage
+     * @return the SecurityTimer, or null if the instrumentation is null or not enabled
+     */
+    public static SecurityTimer start(SecurityInstrumentation instrumentation, SecurityStage stage, String name) {
+        if (instrumentation == null || !instrumentation.isEnabled()) {
+            return null;
+        }
+        return new SecurityTimer(instrumentation, stage, name);
+    }
+
+    /**
+     * Stop timing a stage
+     * @param timer the SecurityTimer returned by start, may be null
+     * @param success whether the stage completed without an exception
+     */
+    public static void stop(SecurityTimer timer, boolean success) {
+        if (timer != null) {
+            long duration = System.nanoTime() - timer.startNanos;
+            timer.instrumentation.record(timer.stage, timer.name, duration, success);
+            timer.instrumentation.endSpan(timer.span, success);
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.kerberos;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+/**
+ * This class caches the Subject of a Kerberos JAAS login, so that a client does not need to
+ * obtain a new TGT from the KDC for every message. The JDK GSS implementation stores the service
+ * tickets it obtains in the (cached) Subject and reuses them until they expire, and so only a new
+ * AP-REQ needs to be created per message.
+ *
+ * A Subject is cached per JAAS login module name, CallbackHandler instance and the user name the
+ * CallbackHandler supplies for a NameCallback (if it supports one). So a CallbackHandler that
+ * supplies the credentials of different users never gets the Subject of another user.
+ *
+ * A Subject is used until its TGT expires within the renewal margin (by default 5 minutes).
+ * Then the next caller for the same key performs a new JAAS login, while concurrent callers
+ * for that key wait for it.
+ */
+public class KerberosClientCredentialCache {
+
+    public static final long DEFAULT_RENEWAL_MARGIN = 60L * 5L;
+
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(KerberosClientCredentialCache.class);
+
+    private final Map<CacheKey, CacheEntry> entries = new ConcurrentHashMap<>();
+    private final long renewalMargin;
+
+    public KerberosClientCredentialCache() {
+        this(DEFAULT_RENEWAL_MARGIN);
+    }
+
+    /**
+     * @param renewalMargin the time in seconds before the expiry of the TGT, from which on
+     *        a new JAAS login is performed
+     */
+    public KerberosClientCredentialCache(long renewalMargin) {
+        this.renewalMargin = renewalMargin;
+    }
+
+    /**
+     * Get the Subject of a Kerberos JAAS login for the given JAAS login module name and
+     * CallbackHandler. A cached Subject is returned if its TGT does not expire within the
+     * renewal margin, otherwise a new JAAS login is performed.
+     * @param jaasLoginModuleName the JAAS Login Module name to use
+     * @param callbackHandler a CallbackHandler instance to retrieve a password (optional)
+     * @return the Subject with the TGT
+     * @throws LoginException if the JAAS login failed
+     */
+    public Subject getSubject(String jaasLoginModuleName, CallbackHandler callbackHandler)
+        throws LoginException {
+        CacheKey key = new CacheKey(jaasLoginModuleName, callbackHandler, getUserName(callbackHandler));
+        CacheEntry entry = entries.computeIfAbsent(key, k -> new CacheEntry());
+
+        Subject subject = entry.subject;
+        if (subject != null && isValid(subject)) {
+            return subject;
+        }
+        synchronized (entry) {
+            subject = entry.subject;
+            if (subject != null && isValid(subject)) {
+                return subject;
+            }
+
+            LoginContext loginContext = null;
+            if (callbackHandler == null) {
+                loginContext = new LoginContext(jaasLoginModuleName);
+            } else {
+                loginContext = new LoginContext(jaasLoginModuleName, callbackHandler);
+            }
+            loginContext.login();
+            subject = loginContext.getSubject();
+
+            if (getTGT(subject) != null) {
+                LOG.debug("Caching the Kerberos login of {}", jaasLoginModuleName);
+                entry.subject = subject;
+            } else {
+                entry.subject = null;
+            }
+            return subject;
+        }
+    }
+
+    /**
+     * Remove the cached Subjects of the given JAAS login module name
+     */
+    public void invalidate(String jaasLoginModuleName) {
+        entries.keySet().removeIf(key -> key.jaasLoginModuleName.equals(jaasLoginModuleName));
+    }
+
+    /**
+     * Remove all cached Subjects
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Get the user name the CallbackHandler supplies to the login module, or null if the
+     * CallbackHandler does not support a NameCallback
+     */
+    private static String getUserName(CallbackHandler callbackHandler) {
+        if (callbackHandler == null) {
+            return null;
+        }
+        NameCallback nameCallback = new NameCallback("Kerberos username: ");
+        try {
+            callbackHandler.handle(new Callback[]{nameCallback});
+        } catch (IOException | UnsupportedCallbackException | RuntimeException e) {
+            // e.g. a CallbackHandler that only expects a PasswordCallback, the user name then
+            // comes from the JAAS configuration
+            LOG.debug("The CallbackHandler does not supply a Kerberos user name", e);
+            return null;
+        }
+        return nameCallback.getName();
+    }
+
+    private boolean isValid(Subject subject) {
+        KerberosTicket tgt = getTGT(subject);
+        if (tgt == null || tgt.isDestroyed() || !tgt.isCurrent() || tgt.getEndTime() == null) {
+            return false;
+        }
+        return tgt.getEndTime().getTime() - renewalMargin * 1000L > System.currentTimeMillis();
+    }
+
+    /**
+     * Get the TGT from the private credentials of the given Subject
+     * @return the TGT or null if the Subject contains no TGT
+     */
+    public static KerberosTicket getTGT(Subject subject) {
+        Set<KerberosTicket> tickets = subject.getPrivateCredentials(KerberosTicket.class);
+        for (KerberosTicket ticket : tickets) {
+            if (ticket.getServer() != null && ticket.getServer().getName().startsWith("krbtgt/")) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    private static final class CacheKey {
+        private final String jaasLoginModuleName;
+        private final CallbackHandler callbackHandler;
+        private final String userName;
+
+        CacheKey(String jaasLoginModuleName, CallbackHandler callbackHandler, String userName) {
+            this.jaasLoginModuleName = jaasLoginModuleName;
+            this.callbackHandler = callbackHandler;
+            this.userName = userName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            // the CallbackHandler is compared by identity
+            return jaasLoginModuleName.equals(that.jaasLoginModuleName)
+                && callbackHandler == that.callbackHandler
+                && Objects.equals(userName, that.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = jaasLoginModuleName.hashCode();
+            result = 31 * result + System.identityHashCode(callbackHandler);
+            return 31 * result + Objects.hashCode(userName);
+        }
+    }
+
+    private static final class CacheEntry {
+        private volatile Subject subject;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.saml;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.w3c.dom.Element;
+
+/**
+ * A client-side cache of issued SAML Assertions. Creating a SAML Assertion from a SAMLCallback,
+ * and in particular signing it (which requires a private key operation), is expensive. As long as the
+ * SAMLCallback yields the same Assertion content (subject, issuer, conditions, statements and signing
+ * configuration), this cache returns a copy of the already marshalled and signed Assertion instead. An
+ * entry is used until shortly before the NotOnOrAfter time of the Assertion, and is rebuilt in the
+ * background once it is close to expiry.
+ *
+ * Assertions with a OneTimeUse Condition, or without a NotOnOrAfter time, are never cached.
+ *
+ * If no Executor is supplied for the background rebuild, the cache starts its own daemon thread on the first
+ * rebuild, which is stopped by close().
+ */
+public class SamlAssertionCache implements Closeable {
+
+    /**
+     * The default maximum number of cached Assertions
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100;
+
+    /**
+     * The default time in seconds before NotOnOrAfter after which a cached Assertion is not used any more
+     */
+    public static final long DEFAULT_EXPIRY_MARGIN = 30L;
+
+    /**
+     * The default time in seconds before NotOnOrAfter after which a cached Assertion is rebuilt
+     */
+    public static final long DEFAULT_REFRESH_MARGIN = 90L;
+
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(SamlAssertionCache.class);
+
+    private final int maxEntries;
+    private final long expiryMargin;
+    private final long refreshMargin;
+    private final Executor refreshExecutor;
+    private final Map<List<Object>, CacheEntry> cache;
+    private ExecutorService defaultRefreshExecutor;
+    private boolean closed;
+
+    public SamlAssertionCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_EXPIRY_MARGIN, DEFAULT_REFRESH_MARGIN, null);
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached Assertions
+     * @param expiryMargin the time in seconds before NotOnOrAfter after which an Assertion is not used any more
+     * @param refreshMargin the time in seconds before NotOnOrAfter after which an Assertion is rebuilt
+     * @param refreshExecutor the Executor used to rebuild Assertions. If null, a daemon thread of this
+     *        cache is used, which is stopped by close().
+     */
+    public SamlAssertionCache(int maxEntries, long expiryMargin, long refreshMargin, Executor refreshExecutor) {
+        this.maxEntries = maxEntries;
+        this.expiryMargin = expiryMargin;
+        this.refreshMargin = Math.max(expiryMargin, refreshMargin);
+        this.refreshExecutor = refreshExecutor;
+        this.cache = new LinkedHashMap<List<Object>, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CacheEntry> eldest) {
+                return size() > SamlAssertionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a SAML Assertion for the given (populated) SAMLCallback. The returned SamlAssertionWrapper
+     * is never shared, and can be added to a message by the caller.
+     */
+    public SamlAssertionWrapper getSamlAssertion(SAMLCallback samlCallback) throws WSSecurityException {
+        if (samlCallback.getAssertionElement() != null
+            || samlCallback.getConditions() != null && samlCallback.getConditions().isOneTimeUse()) {
+            return createSamlAssertion(samlCallback);
+        }
+
+        List<Object> key = createKey(samlCallback);
+        CacheEntry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+
+        Instant now = Instant.now();
+        if (entry != null && now.isBefore(entry.expires)) {
+            if (!now.isBefore(entry.refresh) && entry.startRefresh()) {
+                refresh(key, samlCallback, entry);
+            }
+            return entry.newSamlAssertion();
+        }
+
+        SamlAssertionWrapper samlAssertion = createSamlAssertion(samlCallback);
+        entry = createEntry(samlAssertion);
+        if (entry == null) {
+            return samlAssertion;
+        }
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+        return entry.newSamlAssertion();
+    }
+
+    /**
+     * Remove all cached Assertions
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Remove all cached Assertions and stop the thread used to rebuild them, if it was created by this cache.
+     * A caller-supplied Executor is not shut down. Assertions are still created after the cache is closed,
+     * but they are not rebuilt in the background any more.
+     */
+    @Override
+    public void close() {
+        ExecutorService executor;
+        synchronized (this) {
+            closed = true;
+            executor = defaultRefreshExecutor;
+            defaultRefreshExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        clear();
+    }
+
+    /**
+     * Create and (if requested by the SAMLCallback) sign a new SAML Assertion
+     */
+    public static SamlAssertionWrapper createSamlAssertion(SAMLCallback samlCallback) throws WSSecurityException {
+        SamlAssertionWrapper samlAssertion = new SamlAssertionWrapper(samlCallback);
+        if (samlCallback.isSignAssertion()) {
+            samlAssertion.signAssertion(
+                samlCallback.getIssuerKeyName(),
+                samlCallback.getIssuerKeyPassword(),
+                samlCallback.getIssuerCrypto(),
+                samlCallback.isSendKeyValue(),
+                samlCallback.getCanonicalizationAlgorithm(),
+                samlCallback.getSignatureAlgorithm(),
+                samlCallback.getSignatureDigestAlgorithm()
+            );
+        }
+        return samlAssertion;
+    }
+
+    private CacheEntry createEntry(SamlAssertionWrapper samlAssertion) throws WSSecurityException {
+        Instant notOnOrAfter = getNotOnOrAfter(samlAssertion);
+        if (notOnOrAfter == null) {
+            return null;
+        }
+        Instant expires = notOnOrAfter.minusSeconds(expiryMargin);
+        if (!Instant.now().isBefore(expires)) {
+            return null;
+        }
+        // Marshalling the Assertion also creates the signature
+        Element assertionElement = samlAssertion.toDOM(null);
+        return new CacheEntry(assertionElement, expires, notOnOrAfter.minusSeconds(refreshMargin));
+    }
+
+    private void refresh(final List<Object> key, final SAMLCallback samlCallback, final CacheEntry oldEntry) {
+        Runnable refreshTask = new Runnable() {
+            @Override
+            public void run() {
+                boolean refreshed = false;
+                try {
+                    CacheEntry entry = createEntry(createSamlAssertion(samlCallback));
+                    if (entry != null) {
+                        synchronized (cache) {
+                            cache.put(key, entry);
+                        }
+                        refreshed = true;
+                    }
+                } catch (WSSecurityException | RuntimeException ex) {
+                    LOG.debug("Error refreshing a cached SAML Assertion: {}", ex.getMessage(), ex);
+                } finally {
+                    if (!refreshed) {
+                        // Let the next request retry the rebuild
+                        oldEntry.endRefresh();
+                    }
+                }
+            }
+        };
+        try {
+            Executor executor = refreshExecutor != null ? refreshExecutor : getDefaultRefreshExecutor();
+            if (executor == null) {
+                oldEntry.endRefresh();
+            } else {
+                executor.execute(refreshTask);
+            }
+        } catch (RejectedExecutionException ex) {
+            LOG.debug("Error refreshing a cached SAML Assertion: {}", ex.getMessage(), ex);
+            oldEntry.endRefresh();
+        }
+    }
+
+    private synchronized Executor getDefaultRefreshExecutor() {
+        if (closed) {
+            return null;
+        }
+        if (defaultRefreshExecutor == null) {
+            defaultRefreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "wss4j-saml-assertion-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultRefreshExecutor;
+    }
+
+    private static Instant getNotOnOrAfter(SamlAssertionWrapper samlAssertion) {
+        if (samlAssertion.getSaml2() != null && samlAssertion.getSaml2().getConditions() != null
+            || samlAssertion.getSaml1() != null && samlAssertion.getSaml1().getConditions() != null) {
+            return samlAssertion.getNotOnOrAfter();
+        }
+        return null;
+    }
+
+    private static List<Object> createKey(SAMLCallback samlCallback) {
+        return Arrays.asList(
+            samlCallback.getSamlVersion(),
+            samlCallback.getIssuer(),
+            samlCallback.getIssuerFormat(),
+            samlCallback.getIssuerQualifier(),
+            samlCallback.getSubject(),
+            samlCallback.getConditions(),
+            samlCallback.getAdvice(),
+            samlCallback.getAuthenticationStatementData(),
+            samlCallback.getAttributeStatementData(),
+            samlCallback.getAuthDecisionStatementData(),
+            samlCallback.isSignAssertion(),
+            samlCallback.getIssuerKeyName(),
+            samlCallback.getIssuerCrypto(),
+            samlCallback.isSendKeyValue(),
+            samlCallback.getCanonicalizationAlgorithm(),
+            samlCallback.getSignatureAlgorithm(),
+            samlCallback.getSignatureDigestAlgorithm()
+        );
+    }
+
+    private static final class CacheEntry {
+
+        private final Element assertionElement;
+        private final Instant expires;
+        private final Instant refresh;
+        private boolean refreshing;
+
+        CacheEntry(Element assertionElement, Instant expires, Instant refresh) {
+            this.assertionElement = assertionElement;
+            this.expires = expires;
+            this.refresh = refresh;
+        }
+
+        synchronized boolean startRefresh() {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void endRefresh() {
+            refreshing = false;
+        }
+
+        SamlAssertionWrapper newSamlAssertion() throws WSSecurityException {
+            Element copy;
+            // The DOM implementation is not thread-safe, so serialize the access to the cached element
+            synchronized (this) {
+                copy = (Element) assertionElement.cloneNode(true);
+            }
+            return new SamlAssertionWrapper(copy);
+        }
+    }
+}
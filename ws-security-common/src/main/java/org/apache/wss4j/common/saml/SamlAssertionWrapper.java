@@ -35,7 +35,7 @@ import org.apache.wss4j.common.saml.builder.SAML1ComponentBuilder;
 import org.apache.wss4j.common.saml.builder.SAML2ComponentBuilder;
 import org.apache.wss4j.common.util.DOM2Writer;
 import org.apache.wss4j.common.util.InetAddressUtils;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.xml.security.utils.XMLUtils;
 import org.joda.time.DateTime;
 import org.opensaml.core.xml.XMLObject;
@@ -296,14 +296,14 @@ public class SamlAssertionWrapper {
             id = ((org.opensaml.saml.saml2.core.Assertion)samlObject).getID();
             if (id == null || id.length() == 0) {
                 LOG.error("SamlAssertionWrapper: ID was null, seeting a new ID value");
-                id = IDGenerator.generateID("_");
+                id = WSRandom.generateRandomId("_");
                 ((org.opensaml.saml.saml2.core.Assertion)samlObject).setID(id);
             }
         } else if (samlVersion == SAMLVersion.VERSION_11) {
             id = ((org.opensaml.saml.saml1.core.Assertion)samlObject).getID();
             if (id == null || id.length() == 0) {
                 LOG.error("SamlAssertionWrapper: ID was null, seeting a new ID value");
-                id = IDGenerator.generateID("_");
+                id = WSRandom.generateRandomId("_");
                 ((org.opensaml.saml.saml1.core.Assertion)samlObject).setID(id);
             }
         } else {
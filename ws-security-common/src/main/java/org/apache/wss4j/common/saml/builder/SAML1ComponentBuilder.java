@@ -35,7 +35,7 @@ import org.apache.wss4j.common.saml.bean.ConditionsBean;
 import org.apache.wss4j.common.saml.bean.KeyInfoBean;
 import org.apache.wss4j.common.saml.bean.SubjectBean;
 import org.apache.wss4j.common.saml.bean.SubjectLocalityBean;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
+import org.apache.wss4j.common.util.WSRandom;
 import org.joda.time.DateTime;
 import org.opensaml.core.xml.XMLObject;
 import org.opensaml.core.xml.XMLObjectBuilderFactory;
@@ -146,7 +146,7 @@ public final class SAML1ComponentBuilder {
         assertion.setVersion(SAMLVersion.VERSION_11);
         assertion.setIssuer(issuer);
         assertion.setIssueInstant(new DateTime()); // now
-        assertion.setID(IDGenerator.generateID("_"));
+        assertion.setID(WSRandom.generateRandomId("_"));
         return assertion;
     }
 
@@ -101,13 +101,15 @@ public final class KeyUtils {
             KeyGenerator keyGen = KeyGenerator.getInstance(keyAlgorithm);
             if (algorithm.equalsIgnoreCase(XMLCipher.AES_128)
                 || algorithm.equalsIgnoreCase(XMLCipher.AES_128_GCM)) {
-                keyGen.init(128);
+                keyGen.init(128, WSRandom.getSecureRandom());
             } else if (algorithm.equalsIgnoreCase(XMLCipher.AES_192)
                 || algorithm.equalsIgnoreCase(XMLCipher.AES_192_GCM)) {
-                keyGen.init(192);
+                keyGen.init(192, WSRandom.getSecureRandom());
             } else if (algorithm.equalsIgnoreCase(XMLCipher.AES_256)
                 || algorithm.equalsIgnoreCase(XMLCipher.AES_256_GCM)) {
-                keyGen.init(256);
+                keyGen.init(256, WSRandom.getSecureRandom());
+            } else {
+                keyGen.init(WSRandom.getSecureRandom());
             }
             return keyGen;
         } catch (NoSuchAlgorithmException e) {
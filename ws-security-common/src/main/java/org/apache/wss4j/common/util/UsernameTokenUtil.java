@@ -20,11 +20,12 @@
 package org.apache.wss4j.common.util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import org.apache.wss4j.common.ext.WSSecurityException;
-import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 
 public final class UsernameTokenUtil {
     public static final int DEFAULT_ITERATION = 1000;
@@ -66,18 +67,31 @@ public final class UsernameTokenUtil {
             );
         }
         //
-        // Make the first hash round with start value
+        // Make the first hash round with start value. The following rounds digest into the same
+        // buffer, as MessageDigest copies the input before it writes the result
         //
-        byte[] k = sha.digest(pwSalt);
-        //
-        // Perform the 1st up to iteration-1 hash rounds
-        //
-        int iter = iteration;
-        if (iter <= 0) {
-            iter = DEFAULT_ITERATION;
-        }
-        for (int i = 1; i < iter; i++) {
-            k = sha.digest(k);
+        byte[] k = new byte[sha.getDigestLength()];
+        try {
+            sha.update(pwSalt);
+            sha.digest(k, 0, k.length);
+            //
+            // Perform the 1st up to iteration-1 hash rounds
+            //
+            int iter = iteration;
+            if (iter <= 0) {
+                iter = DEFAULT_ITERATION;
+            }
+            for (int i = 1; i < iter; i++) {
+                sha.update(k);
+                sha.digest(k, 0, k.length);
+            }
+        } catch (DigestException e) {
+            LOG.debug(e.getMessage(), e);
+            throw new WSSecurityException(
+                WSSecurityException.ErrorCode.FAILURE, e, "decoding.general"
+            );
+        } finally {
+            Arrays.fill(pwSalt, (byte) 0);
         }
         return k;
     }
@@ -125,15 +139,14 @@ public final class UsernameTokenUtil {
     }
 
     /**
-     * Generate a nonce of the given length using the SHA1PRNG algorithm. The SecureRandom
-     * instance that backs this method is cached for efficiency.
+     * Generate a nonce of the given length using the WSRandomSource installed in WSRandom.
      *
      * @return a nonce of the given length
      * @throws WSSecurityException
      */
     private static byte[] generateNonce(int length) throws WSSecurityException {
         try {
-            return XMLSecurityConstants.generateBytes(length);
+            return WSRandom.generateBytes(length);
         } catch (Exception ex) {
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex,
                     "empty", new Object[] {"Error in generating nonce of length " + length}
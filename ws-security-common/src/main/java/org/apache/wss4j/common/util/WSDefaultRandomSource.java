@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.util;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SecureRandomSpi;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default WSRandomSource. Each thread uses its own SecureRandom instance, so that the
+ * threads don't contend on a single instance. The instances are reseeded from a shared
+ * SecureRandom after a configurable number of generated bytes. The bytes drawn from the instance
+ * returned by getSecureRandom() are counted as well. Ids which only need to be
+ * unique are built from a random per-instance value and a counter.
+ */
+public class WSDefaultRandomSource implements WSRandomSource {
+
+    /**
+     * The default number of bytes generated by a thread's SecureRandom before it is reseeded
+     */
+    public static final long DEFAULT_RESEED_INTERVAL = 1024L * 1024L;
+
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(WSDefaultRandomSource.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int SEED_LENGTH = 32;
+
+    private final SecureRandom seedSource = new SecureRandom();
+    private final long reseedInterval;
+    private final String idBase;
+    private final AtomicLong idCounter = new AtomicLong();
+
+    private final ThreadLocal<ThreadRandom> threadRandom = new ThreadLocal<ThreadRandom>() {
+        @Override
+        protected ThreadRandom initialValue() {
+            return new ThreadRandom(createSecureRandom());
+        }
+    };
+
+    public WSDefaultRandomSource() {
+        this(DEFAULT_RESEED_INTERVAL);
+    }
+
+    /**
+     * @param reseedInterval the number of bytes generated by a thread's SecureRandom before it is reseeded
+     */
+    public WSDefaultRandomSource(long reseedInterval) {
+        this.reseedInterval = reseedInterval;
+        byte[] base = new byte[8];
+        seedSource.nextBytes(base);
+        this.idBase = toHex(base) + "-";
+    }
+
+    public SecureRandom getSecureRandom() {
+        return threadRandom.get().countingRandom;
+    }
+
+    public byte[] generateBytes(int length) {
+        byte[] bytes = new byte[length];
+        threadRandom.get().countingRandom.nextBytes(bytes);
+        return bytes;
+    }
+
+    public String generateId(String prefix) {
+        StringBuilder id = new StringBuilder(40);
+        id.append(prefix == null ? "G" : prefix);
+        id.append(idBase);
+        id.append(Long.toHexString(idCounter.incrementAndGet()));
+        return id.toString();
+    }
+
+    public String generateRandomId(String prefix) {
+        String randomPart = toHex(generateBytes(16));
+        return prefix == null ? "G" + randomPart : prefix + randomPart;
+    }
+
+    /**
+     * Create the SecureRandom instance of a thread
+     */
+    protected SecureRandom createSecureRandom() {
+        try {
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            LOG.debug(e.getMessage(), e);
+            return new SecureRandom();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The SecureRandom of a thread. It is handed out wrapped in a SecureRandom using this class as SPI,
+     * which counts the generated bytes and reseeds the SecureRandom once the reseed interval is exceeded.
+     */
+    private final class ThreadRandom extends SecureRandomSpi {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SecureRandom secureRandom;
+        private final transient SecureRandom countingRandom;
+        private long generatedBytes;
+
+        private ThreadRandom(SecureRandom secureRandom) {
+            this.secureRandom = secureRandom;
+            this.countingRandom = new CountingSecureRandom(this);
+        }
+
+        @Override
+        protected void engineSetSeed(byte[] seed) {
+            secureRandom.setSeed(seed);
+        }
+
+        @Override
+        protected void engineNextBytes(byte[] bytes) {
+            generatedBytes += bytes.length;
+            if (generatedBytes > reseedInterval) {
+                byte[] seed = new byte[SEED_LENGTH];
+                seedSource.nextBytes(seed);
+                secureRandom.setSeed(seed);
+                generatedBytes = 0;
+            }
+            secureRandom.nextBytes(bytes);
+        }
+
+        @Override
+        protected byte[] engineGenerateSeed(int numBytes) {
+            return secureRandom.generateSeed(numBytes);
+        }
+    }
+
+    private static final class CountingSecureRandom extends SecureRandom {
+        private static final long serialVersionUID = 1L;
+
+        private CountingSecureRandom(SecureRandomSpi secureRandomSpi) {
+            super(secureRandomSpi, null);
+        }
+    }
+
+}
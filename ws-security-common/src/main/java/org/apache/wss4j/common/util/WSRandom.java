@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.util;
+
+import java.security.SecureRandom;
+
+/**
+ * Gives access to the WSRandomSource used by the DOM and StAX code. By default this is a
+ * WSDefaultRandomSource, an application can install its own implementation.
+ */
+public final class WSRandom {
+
+    private static volatile WSRandomSource randomSource = new WSDefaultRandomSource();
+
+    private WSRandom() {
+        // complete
+    }
+
+    public static WSRandomSource getRandomSource() {
+        return randomSource;
+    }
+
+    /**
+     * Install the WSRandomSource to use
+     * @param randomSource the WSRandomSource to use. If null, a new WSDefaultRandomSource is installed
+     */
+    public static void setRandomSource(WSRandomSource randomSource) {
+        WSRandom.randomSource = randomSource == null ? new WSDefaultRandomSource() : randomSource;
+    }
+
+    public static SecureRandom getSecureRandom() {
+        return randomSource.getSecureRandom();
+    }
+
+    public static byte[] generateBytes(int length) {
+        return randomSource.generateBytes(length);
+    }
+
+    public static String generateId(String prefix) {
+        return randomSource.generateId(prefix);
+    }
+
+    public static String generateRandomId(String prefix) {
+        return randomSource.generateRandomId(prefix);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.util;
+
+import java.security.SecureRandom;
+
+/**
+ * This interface allows the source of the random values (nonces, salts, keys and Ids)
+ * used when creating security tokens to be overridden by the application.
+ */
+public interface WSRandomSource {
+
+    /**
+     * Get a SecureRandom instance for the calling thread, e.g. to initialize a KeyGenerator.
+     * The instance must not be shared with other threads.
+     * @return a SecureRandom instance for the calling thread
+     */
+    SecureRandom getSecureRandom();
+
+    /**
+     * Generate random bytes, e.g. for a nonce or a salt
+     * @param length the number of bytes to generate
+     * @return the random bytes
+     */
+    byte[] generateBytes(int length);
+
+    /**
+     * Generate an Id which is unique, but not necessarily unpredictable (e.g. a wsu:Id)
+     * @param prefix the prefix of the Id. If null a prefix is chosen so that the Id is a valid NCName
+     * @return the Id
+     */
+    String generateId(String prefix);
+
+    /**
+     * Generate an Id which is unique and unpredictable (e.g. a SAML Assertion ID)
+     * @param prefix the prefix of the Id. If null a prefix is chosen so that the Id is a valid NCName
+     * @return the Id
+     */
+    String generateRandomId(String prefix);
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.util.Arrays;
+
+import javax.security.auth.Subject;
+
+import org.apache.wss4j.common.instrumentation.RecordingInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AuthenticationCacheTest extends Assert {
+
+    @Test
+    public void testCache() {
+        AuthenticationCache cache = new AuthenticationCache();
+        Subject subject = new Subject();
+        cache.put("context", "alice", "password", subject);
+
+        assertSame(subject, cache.get("context", "alice", "password"));
+        assertNull(cache.get("context", "alice", "other-password"));
+        assertNull(cache.get("other-context", "alice", "password"));
+        assertNull(cache.get("context", "bob", "password"));
+
+        cache.invalidate("context", "alice");
+        assertNull(cache.get("context", "alice", "password"));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 0L);
+        cache.put("context", "alice", "password", new Subject());
+        Thread.sleep(10L);
+        assertNull(cache.get("context", "alice", "password"));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        AuthenticationCache cache = new AuthenticationCache(2, AuthenticationCache.DEFAULT_TTL);
+        Subject subject = new Subject();
+        cache.put("context", "alice", "password", subject);
+        cache.put("context", "bob", "password", new Subject());
+        // Access alice, so that bob is the least recently used entry
+        assertSame(subject, cache.get("context", "alice", "password"));
+        cache.put("context", "carol", "password", new Subject());
+
+        assertNotNull(cache.get("context", "alice", "password"));
+        assertNull(cache.get("context", "bob", "password"));
+        assertNotNull(cache.get("context", "carol", "password"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("context", "alice", "password"));
+    }
+
+    @Test
+    public void testInstrumentation() {
+        AuthenticationCache cache = new AuthenticationCache();
+        RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+        cache.setInstrumentation(instrumentation);
+
+        assertNull(cache.get("context", "alice", "password"));
+        cache.put("context", "alice", "password", new Subject());
+        assertNotNull(cache.get("context", "alice", "password"));
+
+        assertEquals(Arrays.asList("CACHE:AuthenticationCache.miss", "CACHE:AuthenticationCache.hit"),
+                     instrumentation.getCounters());
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.apache.wss4j.common.instrumentation.RecordingInstrumentation;
+import org.apache.wss4j.common.util.UsernameTokenUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DerivedKeyCacheTest extends Assert {
+
+    @Test
+    public void testCache() throws Exception {
+        DerivedKeyCache cache = new DerivedKeyCache();
+        byte[] salt = UsernameTokenUtil.generateSalt(true);
+
+        byte[] derivedKey = cache.getDerivedKey("alice", "password", salt, 1000);
+        assertArrayEquals(UsernameTokenUtil.generateDerivedKey("password", salt, 1000), derivedKey);
+
+        // A cached key is a copy
+        derivedKey[0]++;
+        assertArrayEquals(UsernameTokenUtil.generateDerivedKey("password", salt, 1000),
+                          cache.getDerivedKey("alice", "password", salt, 1000));
+
+        // The default iteration count is used for zero
+        assertArrayEquals(UsernameTokenUtil.generateDerivedKey("password", salt, 0),
+                          cache.getDerivedKey("alice", "password", salt, 0));
+
+        assertArrayEquals(UsernameTokenUtil.generateDerivedKey("other-password", salt, 1000),
+                          cache.getDerivedKey("alice", "other-password", salt, 1000));
+        assertArrayEquals(UsernameTokenUtil.generateDerivedKey("password", salt, 1500),
+                          cache.getDerivedKey("alice", "password", salt, 1500));
+        cache.close();
+    }
+
+    @Test
+    public void testDerivedKeyUnchanged() throws Exception {
+        // A reference value computed with a new digest array per round
+        byte[] derivedKey = UsernameTokenUtil.generateDerivedKey("password", "salt".getBytes(StandardCharsets.UTF_8), 2);
+        MessageDigest sha = MessageDigest.getInstance("SHA1");
+        byte[] expected = sha.digest(sha.digest("passwordsalt".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(expected, derivedKey);
+    }
+
+    @Test
+    public void testInstrumentation() throws Exception {
+        DerivedKeyCache cache = new DerivedKeyCache();
+        RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+        cache.setInstrumentation(instrumentation);
+        byte[] salt = UsernameTokenUtil.generateSalt(true);
+
+        cache.getDerivedKey("alice", "password", salt, 1000);
+        cache.getDerivedKey("alice", "password", salt, 1000);
+
+        assertEquals(Arrays.asList("CACHE:DerivedKeyCache.miss", "CACHE:DerivedKeyCache.hit"),
+                     instrumentation.getCounters());
+        cache.close();
+    }
+}
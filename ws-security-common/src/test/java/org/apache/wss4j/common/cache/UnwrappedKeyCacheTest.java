@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.cache;
+
+import java.util.Arrays;
+
+import org.apache.wss4j.common.instrumentation.RecordingInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UnwrappedKeyCacheTest extends Assert {
+
+    private static final byte[] ENCRYPTED_KEY = {1, 2, 3, 4};
+    private static final String[] PARAMETERS = {"http://www.w3.org/2001/04/xmlenc#rsa-oaep-mgf1p", null};
+
+    @Test
+    public void testCache() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache();
+        byte[] secret = {5, 6, 7, 8};
+        cache.put(ENCRYPTED_KEY, PARAMETERS, secret, null, null, "ISSUER_SERIAL");
+
+        UnwrappedKeyCache.CachedKey cachedKey = cache.get(ENCRYPTED_KEY, PARAMETERS);
+        assertNotNull(cachedKey);
+        assertArrayEquals(secret, cachedKey.getSecret());
+        assertEquals("ISSUER_SERIAL", cachedKey.getReferenceType());
+
+        // The cached secret is a copy
+        cachedKey.getSecret()[0] = 0;
+        assertArrayEquals(secret, cache.get(ENCRYPTED_KEY, PARAMETERS).getSecret());
+
+        assertNull(cache.get(new byte[] {1, 2, 3, 5}, PARAMETERS));
+        assertNull(cache.get(ENCRYPTED_KEY, "http://www.w3.org/2009/xmlenc11#rsa-oaep", null));
+        assertNull(cache.get(ENCRYPTED_KEY, PARAMETERS[0] + PARAMETERS[1]));
+
+        cache.invalidateAll();
+        assertNull(cache.get(ENCRYPTED_KEY, PARAMETERS));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(10, 0L);
+        cache.put(ENCRYPTED_KEY, PARAMETERS, new byte[] {5, 6, 7, 8}, null, null, null);
+        Thread.sleep(10L);
+        assertNull(cache.get(ENCRYPTED_KEY, PARAMETERS));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache(2, UnwrappedKeyCache.DEFAULT_TTL);
+        cache.put(new byte[] {1}, PARAMETERS, new byte[] {1}, null, null, null);
+        cache.put(new byte[] {2}, PARAMETERS, new byte[] {2}, null, null, null);
+        // Access the first key, so that the second one is the least recently used entry
+        assertNotNull(cache.get(new byte[] {1}, PARAMETERS));
+        cache.put(new byte[] {3}, PARAMETERS, new byte[] {3}, null, null, null);
+
+        assertNotNull(cache.get(new byte[] {1}, PARAMETERS));
+        assertNull(cache.get(new byte[] {2}, PARAMETERS));
+        assertNotNull(cache.get(new byte[] {3}, PARAMETERS));
+    }
+
+    @Test
+    public void testInstrumentation() {
+        UnwrappedKeyCache cache = new UnwrappedKeyCache();
+        RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+        cache.setInstrumentation(instrumentation);
+
+        assertNull(cache.get(ENCRYPTED_KEY, PARAMETERS));
+        cache.put(ENCRYPTED_KEY, PARAMETERS, new byte[] {5, 6, 7, 8}, null, null, null);
+        assertNotNull(cache.get(ENCRYPTED_KEY, PARAMETERS));
+
+        assertEquals(Arrays.asList("CACHE:UnwrappedKeyCache.miss", "CACHE:UnwrappedKeyCache.hit"),
+                     instrumentation.getCounters());
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+
+import org.apache.wss4j.common.util.Loader;
+import org.junit.Test;
+
+/**
+ * Some tests for the caching of parsed certificates and derived values in CryptoBase.
+ */
+public class CertificateCacheTest extends org.junit.Assert {
+
+    @Test
+    public void testLoadCertificate() throws Exception {
+        Merlin crypto = createCrypto();
+        X509Certificate cert = getCertificate(crypto);
+        byte[] encoded = cert.getEncoded();
+
+        X509Certificate loadedCert = crypto.loadCertificate(new ByteArrayInputStream(encoded));
+        assertEquals(cert, loadedCert);
+        assertSame(loadedCert, crypto.loadCertificate(new ByteArrayInputStream(encoded)));
+
+        X509Certificate[] certs = crypto.getCertificatesFromBytes(crypto.getBytesFromCertificates(new X509Certificate[]{cert}));
+        assertEquals(1, certs.length);
+        assertEquals(cert, certs[0]);
+        X509Certificate[] cachedCerts =
+            crypto.getCertificatesFromBytes(crypto.getBytesFromCertificates(new X509Certificate[]{cert}));
+        assertNotSame(certs, cachedCerts);
+        assertSame(certs[0], cachedCerts[0]);
+    }
+
+    @Test
+    public void testDerivedValues() throws Exception {
+        Merlin crypto = createCrypto();
+        X509Certificate cert = getCertificate(crypto);
+
+        byte[] ski = crypto.getSKIBytesFromCert(cert);
+        assertArrayEquals(ski, crypto.getSKIBytesFromCert(cert));
+        // The cached value must not be affected by modifying a returned value
+        ski[0]++;
+        assertFalse(ski[0] == crypto.getSKIBytesFromCert(cert)[0]);
+
+        byte[] thumbprint = MessageDigest.getInstance("SHA-1").digest(cert.getEncoded());
+        assertArrayEquals(thumbprint, crypto.getThumbprintBytesFromCert(cert));
+        assertArrayEquals(thumbprint, crypto.getThumbprintBytesFromCert(cert));
+    }
+
+    private Merlin createCrypto() throws Exception {
+        Merlin crypto = new Merlin();
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        ClassLoader loader = Loader.getClassLoader(CertificateCacheTest.class);
+        try (InputStream input = Merlin.loadInputStream(loader, "keys/wss40_server.jks")) {
+            keyStore.load(input, "security".toCharArray());
+        }
+        crypto.setKeyStore(keyStore);
+        return crypto;
+    }
+
+    private X509Certificate getCertificate(Crypto crypto) throws Exception {
+        CryptoType cryptoType = new CryptoType(CryptoType.TYPE.ALIAS);
+        cryptoType.setAlias("wss40_server");
+        X509Certificate[] certs = crypto.getX509Certificates(cryptoType);
+        assertTrue(certs != null && certs.length > 0);
+        return certs[0];
+    }
+}
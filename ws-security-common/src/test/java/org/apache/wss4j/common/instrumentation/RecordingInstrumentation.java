@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.instrumentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A SecurityInstrumentation which records the stages, counters and spans as Strings
+ */
+public class RecordingInstrumentation implements SecurityInstrumentation {
+
+    private final List<String> records = new ArrayList<>();
+    private final List<String> counters = new ArrayList<>();
+    private final List<String> spans = new ArrayList<>();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public synchronized void record(SecurityStage stage, String name, long durationNanos, boolean success) {
+        if (durationNanos < 0) {
+            throw new IllegalArgumentException("Negative duration " + durationNanos);
+        }
+        records.add(stage + ":" + name + ":" + success);
+    }
+
+    @Override
+    public synchronized void increment(SecurityStage stage, String name) {
+        counters.add(stage + ":" + name);
+    }
+
+    @Override
+    public synchronized Object startSpan(SecurityStage stage, String name) {
+        spans.add(stage + ":" + name);
+        return spans.size() - 1;
+    }
+
+    @Override
+    public synchronized void endSpan(Object span, boolean success) {
+        int index = (Integer) span;
+        spans.set(index, spans.get(index) + ":" + success);
+    }
+
+    public synchronized List<String> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    public synchronized List<String> getCounters() {
+        return new ArrayList<>(counters);
+    }
+
+    public synchronized List<String> getSpans() {
+        return new ArrayList<>(spans);
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.instrumentation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SecurityTimerTest extends Assert {
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertNull(SecurityTimer.start(null, SecurityStage.PROCESSOR, "Signature"));
+        assertNull(SecurityTimer.start(NoOpSecurityInstrumentation.INSTANCE, SecurityStage.PROCESSOR, "Signature"));
+        SecurityTimer.stop(null, true);
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        RecordingInstrumentation instrumentation = new RecordingInstrumentation();
+        SecurityTimer timer = SecurityTimer.start(instrumentation, SecurityStage.PROCESSOR, "Signature");
+        assertNotNull(timer);
+        assertEquals(1, instrumentation.getSpans().size());
+        SecurityTimer.stop(timer, false);
+
+        assertEquals(1, instrumentation.getRecords().size());
+        assertEquals("PROCESSOR:Signature:false", instrumentation.getRecords().get(0));
+        assertEquals("PROCESSOR:Signature:false", instrumentation.getSpans().get(0));
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.common.kerberos;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.spi.LoginModule;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the KerberosClientCredentialCache with a LoginModule that issues TGTs without a KDC.
+ */
+public class KerberosClientCredentialCacheTest extends Assert {
+
+    private static final AtomicInteger LOGINS = new AtomicInteger();
+    private static volatile CountDownLatch slowLoginStarted;
+    private static volatile CountDownLatch slowLogin;
+
+    private Configuration oldConfiguration;
+
+    @Before
+    public void setUp() {
+        LOGINS.set(0);
+        slowLoginStarted = null;
+        slowLogin = null;
+        try {
+            oldConfiguration = Configuration.getConfiguration();
+        } catch (SecurityException e) {
+            oldConfiguration = null;
+        }
+        Configuration.setConfiguration(new Configuration() {
+            @Override
+            public AppConfigurationEntry[] getAppConfigurationEntry(String name) {
+                Map<String, String> options = new HashMap<>();
+                if ("fixed".equals(name)) {
+                    options.put("principal", "service");
+                } else if ("short".equals(name)) {
+                    options.put("principal", "service");
+                    options.put("lifetime", "60");
+                }
+                return new AppConfigurationEntry[] {
+                    new AppConfigurationEntry(TestLoginModule.class.getName(),
+                        AppConfigurationEntry.LoginModuleControlFlag.REQUIRED, options)
+                };
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Configuration.setConfiguration(oldConfiguration);
+    }
+
+    @Test
+    public void testSubjectPerUser() throws Exception {
+        KerberosClientCredentialCache cache = new KerberosClientCredentialCache();
+        UserCallbackHandler callbackHandler = new UserCallbackHandler();
+
+        callbackHandler.userName = "alice";
+        Subject alice = cache.getSubject("client", callbackHandler);
+        assertEquals("alice@EXAMPLE.COM", getClientName(alice));
+        assertSame(alice, cache.getSubject("client", callbackHandler));
+        assertEquals(1, LOGINS.get());
+
+        // the same CallbackHandler now supplies the credentials of another user
+        callbackHandler.userName = "bob";
+        Subject bob = cache.getSubject("client", callbackHandler);
+        assertEquals("bob@EXAMPLE.COM", getClientName(bob));
+        assertEquals(2, LOGINS.get());
+
+        callbackHandler.userName = "alice";
+        assertSame(alice, cache.getSubject("client", callbackHandler));
+
+        // another CallbackHandler instance is not trusted to supply the same credentials
+        UserCallbackHandler otherCallbackHandler = new UserCallbackHandler();
+        otherCallbackHandler.userName = "alice";
+        assertNotSame(alice, cache.getSubject("client", otherCallbackHandler));
+        assertEquals(3, LOGINS.get());
+
+        cache.invalidate("client");
+        assertNotSame(alice, cache.getSubject("client", callbackHandler));
+        assertEquals(4, LOGINS.get());
+    }
+
+    @Test
+    public void testPrincipalFromConfiguration() throws Exception {
+        KerberosClientCredentialCache cache = new KerberosClientCredentialCache();
+
+        Subject subject = cache.getSubject("fixed", null);
+        assertEquals("service@EXAMPLE.COM", getClientName(subject));
+        assertSame(subject, cache.getSubject("fixed", null));
+
+        // a CallbackHandler that does not support a NameCallback
+        CallbackHandler passwordCallbackHandler = new CallbackHandler() {
+            @Override
+            public void handle(Callback[] callbacks) throws UnsupportedCallbackException {
+                throw new UnsupportedCallbackException(callbacks[0]);
+            }
+        };
+        Subject passwordSubject = cache.getSubject("fixed", passwordCallbackHandler);
+        assertEquals("service@EXAMPLE.COM", getClientName(passwordSubject));
+        assertSame(passwordSubject, cache.getSubject("fixed", passwordCallbackHandler));
+        assertEquals(2, LOGINS.get());
+    }
+
+    @Test
+    public void testRenewal() throws Exception {
+        // the TGT expires within the default renewal margin of 5 minutes
+        KerberosClientCredentialCache cache = new KerberosClientCredentialCache();
+        Subject subject = cache.getSubject("short", null);
+        assertNotSame(subject, cache.getSubject("short", null));
+        assertEquals(2, LOGINS.get());
+
+        cache = new KerberosClientCredentialCache(10L);
+        subject = cache.getSubject("short", null);
+        assertSame(subject, cache.getSubject("short", null));
+        assertEquals(3, LOGINS.get());
+    }
+
+    @Test
+    public void testLoginOfOtherUserNotBlocked() throws Exception {
+        final KerberosClientCredentialCache cache = new KerberosClientCredentialCache();
+        final UserCallbackHandler slowCallbackHandler = new UserCallbackHandler();
+        slowCallbackHandler.userName = "slow";
+        final UserCallbackHandler fastCallbackHandler = new UserCallbackHandler();
+        fastCallbackHandler.userName = "fast";
+
+        slowLoginStarted = new CountDownLatch(1);
+        slowLogin = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Subject> slowSubject = executor.submit(() -> cache.getSubject("client", slowCallbackHandler));
+            assertTrue(slowLoginStarted.await(10, TimeUnit.SECONDS));
+
+            // the login of another user completes while the first login still waits for the KDC
+            Subject fastSubject = cache.getSubject("client", fastCallbackHandler);
+            assertEquals("fast@EXAMPLE.COM", getClientName(fastSubject));
+            assertFalse(slowSubject.isDone());
+
+            slowLogin.countDown();
+            assertEquals("slow@EXAMPLE.COM", getClientName(slowSubject.get(10, TimeUnit.SECONDS)));
+        } finally {
+            slowLogin.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static String getClientName(Subject subject) {
+        return KerberosClientCredentialCache.getTGT(subject).getClient().getName();
+    }
+
+    private static class UserCallbackHandler implements CallbackHandler {
+        private volatile String userName;
+
+        @Override
+        public void handle(Callback[] callbacks) throws UnsupportedCallbackException {
+            for (Callback callback : callbacks) {
+                if (callback instanceof NameCallback) {
+                    ((NameCallback) callback).setName(userName);
+                } else {
+                    throw new UnsupportedCallbackException(callback);
+                }
+            }
+        }
+    }
+
+    /**
+     * A LoginModule that adds a TGT for the configured or the supplied user name to the Subject
+     */
+    public static class TestLoginModule implements LoginModule {
+
+        private Subject subject;
+        private CallbackHandler callbackHandler;
+        private Map<String, ?> options;
+        private String userName;
+
+        @Override
+        public void initialize(Subject subject, CallbackHandler callbackHandler,
+                               Map<String, ?> sharedState, Map<String, ?> options) {
+            this.subject = subject;
+            this.callbackHandler = callbackHandler;
+            this.options = options;
+        }
+
+        @Override
+        public boolean login() throws javax.security.auth.login.LoginException {
+            LOGINS.incrementAndGet();
+            userName = (String) options.get("principal");
+            if (userName == null) {
+                NameCallback nameCallback = new NameCallback("Kerberos username: ");
+                try {
+                    callbackHandler.handle(new Callback[] {nameCallback});
+                } catch (Exception e) {
+                    throw new javax.security.auth.login.LoginException(e.getMessage());
+                }
+                userName = nameCallback.getName();
+            }
+            CountDownLatch latch = slowLogin;
+            if ("slow".equals(userName) && latch != null) {
+                slowLoginStarted.countDown();
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean commit() {
+            KerberosPrincipal client = new KerberosPrincipal(userName + "@EXAMPLE.COM");
+            String lifetime = (String) options.get("lifetime");
+            long now = System.currentTimeMillis();
+            Date endTime = new Date(now + (lifetime == null ? 3600L : Long.parseLong(lifetime)) * 1000L);
+            KerberosTicket tgt = new KerberosTicket(new byte[] {0}, client,
+                new KerberosPrincipal("krbtgt/EXAMPLE.COM@EXAMPLE.COM"), new byte[16], 17,
+                new boolean[32], new Date(now), new Date(now), endTime, null, null);
+            subject.getPrincipals().add(client);
+            subject.getPrivateCredentials().add(tgt);
+            return true;
+        }
+
+        @Override
+        public boolean abort() {
+            return true;
+        }
+
+        @Override
+        public boolean logout() {
+            subject.getPrincipals().clear();
+            subject.getPrivateCredentials().clear();
+            return true;
+        }
+    }
+}
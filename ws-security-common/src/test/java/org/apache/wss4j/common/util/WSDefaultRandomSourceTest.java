@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.common.util;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WSDefaultRandomSourceTest {
+
+    @Test
+    public void testGenerateBytes() throws Exception {
+        // reseed after every call
+        WSDefaultRandomSource randomSource = new WSDefaultRandomSource(1);
+        byte[] first = randomSource.generateBytes(16);
+        byte[] second = randomSource.generateBytes(16);
+        Assert.assertEquals(16, first.length);
+        Assert.assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    public void testSecureRandomBytesCounted() throws Exception {
+        final AtomicInteger reseeds = new AtomicInteger();
+        WSDefaultRandomSource randomSource = new WSDefaultRandomSource(100) {
+            @Override
+            protected SecureRandom createSecureRandom() {
+                return new SecureRandom() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public synchronized void setSeed(byte[] seed) {
+                        reseeds.incrementAndGet();
+                        super.setSeed(seed);
+                    }
+                };
+            }
+        };
+        SecureRandom secureRandom = randomSource.getSecureRandom();
+        Assert.assertSame(secureRandom, randomSource.getSecureRandom());
+
+        secureRandom.nextBytes(new byte[64]);
+        Assert.assertEquals(0, reseeds.get());
+        secureRandom.nextBytes(new byte[64]);
+        Assert.assertEquals(1, reseeds.get());
+        randomSource.generateBytes(64);
+        Assert.assertEquals(1, reseeds.get());
+        randomSource.generateBytes(64);
+        Assert.assertEquals(2, reseeds.get());
+    }
+
+    @Test
+    public void testUniqueIds() throws Exception {
+        WSDefaultRandomSource randomSource = new WSDefaultRandomSource();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(ids.add(randomSource.generateId("TS-")));
+            Assert.assertTrue(ids.add(randomSource.generateRandomId("_")));
+        }
+
+        String id = randomSource.generateId(null);
+        Assert.assertTrue(Character.isLetter(id.charAt(0)));
+        id = randomSource.generateRandomId(null);
+        Assert.assertTrue(Character.isLetter(id.charAt(0)));
+        Assert.assertTrue(randomSource.generateId("TS-").startsWith("TS-"));
+    }
+
+    @Test
+    public void testInstalledRandomSource() throws Exception {
+        WSRandomSource randomSource = new WSDefaultRandomSource();
+        WSRandomSource previousRandomSource = WSRandom.getRandomSource();
+        try {
+            WSRandom.setRandomSource(randomSource);
+            Assert.assertSame(randomSource, WSRandom.getRandomSource());
+            WSRandom.setRandomSource(null);
+            Assert.assertTrue(WSRandom.getRandomSource() instanceof WSDefaultRandomSource);
+        } finally {
+            WSRandom.setRandomSource(previousRandomSource);
+        }
+    }
+}
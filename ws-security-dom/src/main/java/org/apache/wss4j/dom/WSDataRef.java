@@ -28,9 +28,14 @@ package org.apache.wss4j.dom;
  */
 
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
+
+import org.apache.wss4j.dom.util.EncryptionUtils;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 public class WSDataRef {
 
@@ -49,6 +54,12 @@ public class WSDataRef {
      */
     private String xpath;
 
+    /**
+     * The xpath of the parent and the name of the data element, from which the xpath is built on first access
+     */
+    private String xpathPrefix;
+    private String xpathStep;
+
     /**
      * Algorithm used to encrypt/sign the element
      */
@@ -146,6 +157,11 @@ public class WSDataRef {
      * @return the xpath
      */
     public String getXpath() {
+        if (xpath == null && xpathPrefix != null) {
+            xpath = xpathPrefix + "/" + xpathStep;
+            xpathPrefix = null;
+            xpathStep = null;
+        }
         return xpath;
     }
 
@@ -154,6 +170,29 @@ public class WSDataRef {
      */
     public void setXpath(String xpath) {
         this.xpath = xpath;
+        xpathPrefix = null;
+        xpathStep = null;
+    }
+
+    /**
+     * Set the node the xpath points to. The xpath of the parent of the node is resolved here, as the
+     * parent may be detached later on (e.g. an EncryptedHeader that is replaced by its decrypted
+     * content), only the final xpath is built on the first call of {@link #getXpath()}.
+     *
+     * @param node the Element or Attr node the xpath points to
+     * @param xpathPrefixes the per-document memo of the xpaths of the ancestors, may be null
+     */
+    public void setXpathNode(Node node, Map<Node, String> xpathPrefixes) {
+        xpath = null;
+        xpathPrefix = null;
+        xpathStep = null;
+        if (node != null && Node.ELEMENT_NODE == node.getNodeType()) {
+            xpathPrefix = EncryptionUtils.getXPathPrefix(node.getParentNode(), xpathPrefixes);
+            xpathStep = node.getNodeName();
+        } else if (node != null && Node.ATTRIBUTE_NODE == node.getNodeType()) {
+            xpathPrefix = EncryptionUtils.getXPathPrefix(((Attr)node).getOwnerElement(), xpathPrefixes);
+            xpathStep = "@" + node.getNodeName();
+        }
     }
 
     /**
@@ -33,7 +33,7 @@ package org.apache.wss4j.dom;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +46,7 @@ import org.apache.wss4j.dom.callback.CallbackLookup;
 import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 public class WSDocInfo {
     private Document doc;
@@ -57,10 +58,11 @@ public class WSDocInfo {
     // creation or validation
     private final Map<String, TokenValue> tokens = new HashMap<>();
 
-    private final List<WSSecurityEngineResult> results = new LinkedList<>();
-    private final Map<Integer, List<WSSecurityEngineResult>> actionResults = new HashMap<>();
+    private List<WSSecurityEngineResult> results = new ArrayList<>();
+    private Map<Integer, List<WSSecurityEngineResult>> actionResults = new HashMap<>();
     private CallbackLookup callbackLookup;
     private Element securityHeader;
+    private Map<Node, String> xpathPrefixes = new IdentityHashMap<>();
 
     public WSDocInfo(Document doc) {
         //
@@ -84,8 +86,10 @@ public class WSDocInfo {
         callbackLookup = null;
         securityHeader = null;
         tokens.clear();
-        results.clear();
-        actionResults.clear();
+        // The results are not cleared in place, as views of them may have been handed out
+        results = new ArrayList<>();
+        actionResults = new HashMap<>();
+        xpathPrefixes = new IdentityHashMap<>();
     }
 
     /**
@@ -212,37 +216,37 @@ public class WSDocInfo {
      */
     public void addResult(WSSecurityEngineResult result) {
         results.add(result);
-        Integer resultTag = (Integer)result.get(WSSecurityEngineResult.TAG_ACTION);
+        Integer resultTag = result.getAction();
         if (resultTag != null) {
             List<WSSecurityEngineResult> storedResults = actionResults.get(resultTag);
             if (storedResults == null) {
                 storedResults = new ArrayList<>();
+                actionResults.put(resultTag, storedResults);
             }
             storedResults.add(result);
-            actionResults.put(resultTag, storedResults);
         }
     }
 
     /**
-     * Get a copy of the security results list. Modifying the subsequent list does not
-     * change the internal results list.
+     * Get an unmodifiable view of the security results list. The view is not copied, so
+     * results stored later on are visible through it.
      */
     public List<WSSecurityEngineResult> getResults() {
         if (results.isEmpty()) {
             return Collections.emptyList();
         }
-        return new ArrayList<>(results);
+        return Collections.unmodifiableList(results);
     }
 
     /**
-     * Return a copy of the map between security actions + results. Modifying the subsequent
-     * map does not change the internal map.
+     * Return an unmodifiable view of the map between security actions + results. The view is
+     * not copied, so results stored later on are visible through it.
      */
     public Map<Integer, List<WSSecurityEngineResult>> getActionResults() {
         if (actionResults.isEmpty()) {
             return Collections.emptyMap();
         }
-        return new HashMap<>(actionResults);
+        return Collections.unmodifiableMap(actionResults);
     }
 
     /**
@@ -258,7 +262,7 @@ public class WSDocInfo {
 
         if (!results.isEmpty()) {
             for (WSSecurityEngineResult result : results) {
-                String cId = (String)result.get(WSSecurityEngineResult.TAG_ID);
+                String cId = result.getId();
                 if (id.equals(cId)) {
                     return result;
                 }
@@ -289,7 +293,7 @@ public class WSDocInfo {
 
         if (!actionResults.isEmpty() && actionResults.containsKey(tag)) {
             for (WSSecurityEngineResult result : actionResults.get(tag)) {
-                String cId = (String)result.get(WSSecurityEngineResult.TAG_ID);
+                String cId = result.getId();
                 if (id.equals(cId)) {
                     return true;
                 }
@@ -336,6 +340,14 @@ public class WSDocInfo {
         return callbackLookup;
     }
 
+    /**
+     * Get the memo of the xpaths of the ancestors of protected elements, which is shared by the
+     * WSDataRefs of this document.
+     */
+    public Map<Node, String> getXPathPrefixes() {
+        return xpathPrefixes;
+    }
+
     /**
      * @return the wsse header being processed
      */
@@ -26,13 +26,13 @@ import org.apache.wss4j.common.SignatureEncryptionActionToken;
 import org.apache.wss4j.common.derivedKey.ConversationConstants;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.WSSecDerivedKeyBase;
 import org.apache.wss4j.dom.message.WSSecEncryptedKey;
 import org.apache.wss4j.dom.message.WSSecHeader;
 import org.apache.wss4j.dom.message.token.SecurityContextToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 
 public abstract class AbstractDerivedAction {
 
@@ -87,7 +87,7 @@ public abstract class AbstractDerivedAction {
             derivedKeyBase.setExternalKey(secret, tokenIdentifier);
             return null;
         }  else {
-            String tokenIdentifier = IDGenerator.generateID("uuid:");
+            String tokenIdentifier = WSRandom.generateRandomId("uuid:");
             derivedKeyBase.setExternalKey(passwordCallback.getKey(), tokenIdentifier);
 
             actionToken.setKey(passwordCallback.getKey());
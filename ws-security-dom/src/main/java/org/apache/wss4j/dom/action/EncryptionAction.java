@@ -111,6 +111,9 @@ public class EncryptionAction implements Action {
             wsEncrypt.setCustomEKKeyInfoElement(pwcb.getKeyInfoReference());
         }
         wsEncrypt.setEphemeralKey(ephemeralKey);
+        if (encryptionToken.isEncSymmetricEncryptionKey() && ephemeralKey == null) {
+            wsEncrypt.setEncryptedKeySession(reqData.getEncryptedKeySession());
+        }
 
         if (encryptionToken.getTokenId() != null) {
             wsEncrypt.setEncKeyId(encryptionToken.getTokenId());
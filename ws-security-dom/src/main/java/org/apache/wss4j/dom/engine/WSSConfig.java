@@ -24,6 +24,7 @@ import java.security.PrivilegedAction;
 import java.security.Security;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -33,8 +34,11 @@ import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.WsuIdAllocator;
 import org.apache.wss4j.dom.action.Action;
 import org.apache.wss4j.common.crypto.WSProviderConfig;
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.util.WSCurrentTimeSource;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.common.util.WSTimeSource;
 import org.apache.wss4j.dom.processor.Processor;
 import org.apache.wss4j.dom.resolvers.ResolverAttachment;
@@ -42,7 +46,6 @@ import org.apache.wss4j.dom.transform.AttachmentCiphertextTransform;
 import org.apache.wss4j.dom.transform.AttachmentCompleteSignatureTransformProvider;
 import org.apache.wss4j.dom.transform.AttachmentContentSignatureTransformProvider;
 import org.apache.wss4j.dom.validate.Validator;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.transforms.Transform;
 import org.apache.xml.security.utils.resolver.ResourceResolver;
 
@@ -258,18 +261,23 @@ public final class WSSConfig {
      */
     private WSTimeSource currentTime;
 
+    /**
+     * The SecurityInstrumentation to report the security processing to
+     */
+    private SecurityInstrumentation instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+
     public static final WsuIdAllocator DEFAULT_ID_ALLOCATOR = new WsuIdAllocator() {
 
         public String createId(String prefix, Object o) {
             if (prefix == null) {
-                return IDGenerator.generateID("_");
+                return WSRandom.generateId("_");
             }
 
-            return IDGenerator.generateID(prefix);
+            return WSRandom.generateId(prefix);
         }
 
         public String createSecureId(String prefix, Object o) {
-            return IDGenerator.generateID(prefix);
+            return WSRandom.generateRandomId(prefix);
         }
     };
     protected WsuIdAllocator idAllocator = DEFAULT_ID_ALLOCATOR;
@@ -290,6 +298,21 @@ public final class WSSConfig {
      */
     private final Map<QName, Object> processorMap = new HashMap<>(DEFAULT_PROCESSORS);
 
+    /**
+     * The known processors, keyed by namespace and then by local name, so that the
+     * security header can be dispatched without creating a QName per child element.
+     * The default processors are stateless and so are instantiated once and shared: a frozen
+     * instance builds the table with the instances eagerly, a mutable instance builds it on first
+     * use after the processors have been modified, and instantiates a default processor on its
+     * first lookup.
+     */
+    private volatile Map<String, Map<String, Object>> processorTable;
+
+    /**
+     * Whether this instance is an immutable snapshot created by freeze()
+     */
+    private final boolean frozen;
+
     /**
      * The known validators. This map is of the form <QName, Class<?>> or
      * <QName, Validator>.
@@ -310,7 +333,47 @@ public final class WSSConfig {
     }
 
     private WSSConfig() {
-        // complete
+        frozen = false;
+    }
+
+    private WSSConfig(WSSConfig wssConfig) {
+        frozen = true;
+        idAllocator = wssConfig.idAllocator;
+        currentTime = wssConfig.getCurrentTime();
+        instrumentation = wssConfig.instrumentation;
+        copyInstances(wssConfig.actionMap, actionMap, DEFAULT_ACTIONS);
+        copyInstances(wssConfig.processorMap, processorMap, DEFAULT_PROCESSORS);
+        copyInstances(wssConfig.validatorMap, validatorMap, DEFAULT_VALIDATORS);
+        processorTable = createProcessorTable(processorMap);
+    }
+
+    /**
+     * Copy the source map to the target map, replacing the default classes with an instance
+     * of the class. The default classes are stateless, so the instances can be shared. Any
+     * other class is still instantiated per lookup. If a class can't be instantiated it is
+     * left in place, so that the error is reported on lookup.
+     */
+    private static <T> void copyInstances(
+        Map<T, Object> source, Map<T, Object> target, Map<T, Class<?>> defaults
+    ) {
+        target.clear();
+        for (Map.Entry<T, Object> entry : source.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Class<?> && defaults.containsValue(value)) {
+                try {
+                    value = ((Class<?>)value).newInstance();
+                } catch (Exception ex) {
+                    LOG.debug(ex.getMessage(), ex);
+                }
+            }
+            target.put(entry.getKey(), value);
+        }
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("This WSSConfig instance is frozen");
+        }
     }
 
     public static synchronized void init() {
@@ -353,6 +416,36 @@ public final class WSSConfig {
         return new WSSConfig();
     }
 
+    /**
+     * @return a frozen WSSConfig instance configured with the default values, that is
+     *         shared by all callers. This is used if no WSSConfig is configured.
+     */
+    public static WSSConfig getSharedInstance() {
+        return SharedInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Create an immutable snapshot of this WSSConfig instance, which is thread-safe and can
+     * be shared between requests. The default actions, processors and validators are
+     * instantiated once and shared, so that no instances are created per lookup. Any
+     * setter called on the snapshot throws an UnsupportedOperationException.
+     *
+     * @return a frozen copy of this WSSConfig instance, or this instance if it is frozen already
+     */
+    public WSSConfig freeze() {
+        if (frozen) {
+            return this;
+        }
+        return new WSSConfig(this);
+    }
+
+    /**
+     * @return whether this WSSConfig instance is an immutable snapshot created by freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /**
      * @return Returns the WsuIdAllocator used to generate wsu:Id attributes
      */
@@ -361,6 +454,7 @@ public final class WSSConfig {
     }
 
     public void setIdAllocator(WsuIdAllocator idAllocator) {
+        checkNotFrozen();
         this.idAllocator = idAllocator;
     }
 
@@ -374,6 +468,7 @@ public final class WSSConfig {
      * it is up to the implementing class to ensure that it is thread-safe.
      */
     public Class<?> setAction(int code, Action action) {
+        checkNotFrozen();
         Object result = actionMap.put(code, action);
         if (result instanceof Class<?>) {
             return (Class<?>)result;
@@ -390,6 +485,7 @@ public final class WSSConfig {
      * actions for well-known operations.
      */
     public Class<?> setAction(int code, Class<?> clazz) {
+        checkNotFrozen();
         Object result = actionMap.put(code, clazz);
         if (result instanceof Class<?>) {
             return (Class<?>)result;
@@ -432,7 +528,9 @@ public final class WSSConfig {
      * it is up to the implementing class to ensure that it is thread-safe.
      */
     public Class<?> setProcessor(QName el, Processor processor) {
+        checkNotFrozen();
         Object result = processorMap.put(el, processor);
+        processorTable = null;
         if (result instanceof Class<?>) {
             return (Class<?>)result;
         } else if (result instanceof Processor) {
@@ -447,7 +545,9 @@ public final class WSSConfig {
      * called when processing header elements with the specified type.
      */
     public Class<?> setProcessor(QName el, Class<?> clazz) {
+        checkNotFrozen();
         Object result = processorMap.put(el, clazz);
+        processorTable = null;
         if (result instanceof Class<?>) {
             return (Class<?>)result;
         } else if (result instanceof Processor) {
@@ -465,6 +565,7 @@ public final class WSSConfig {
      * it is up to the implementing class to ensure that it is thread-safe.
      */
     public Class<?> setValidator(QName el, Validator validator) {
+        checkNotFrozen();
         Object result = validatorMap.put(el, validator);
         if (result instanceof Class<?>) {
             return (Class<?>)result;
@@ -480,6 +581,7 @@ public final class WSSConfig {
      * called when processing header elements with the specified type.
      */
     public Class<?> setValidator(QName el, Class<?> clazz) {
+        checkNotFrozen();
         Object result = validatorMap.put(el, clazz);
         if (result instanceof Class<?>) {
             return (Class<?>)result;
@@ -521,8 +623,51 @@ public final class WSSConfig {
      *              specified QName.
      */
     public Processor getProcessor(QName el) throws WSSecurityException {
-        final Object processorObject = processorMap.get(el);
+        return getProcessor(el.getNamespaceURI(), el.getLocalPart());
+    }
+
+    /**
+     * @return      the SOAP processor associated with the specified namespace
+     *              and local name of an element in a SOAP security header.
+     *              This operation returns null if there is no processor
+     *              associated with the element.
+     */
+    public Processor getProcessor(String namespace, String localName) throws WSSecurityException {
+        Map<String, Map<String, Object>> table = processorTable;
+        if (table == null) {
+            table = createProcessorTable(processorMap);
+            processorTable = table;
+        }
+        Map<String, Object> processors = table.get(namespace == null ? "" : namespace);
+        if (processors == null) {
+            return null;
+        }
+        Object processorObject = processors.get(localName);
+        Processor processor = loadProcessor(processorObject);
+        if (processorObject instanceof Class<?> && DEFAULT_PROCESSORS.containsValue(processorObject)) {
+            processors.put(localName, processor);
+        }
+        return processor;
+    }
 
+    private static Map<String, Map<String, Object>> createProcessorTable(Map<QName, Object> processorMap) {
+        Map<String, Map<String, Object>> table = new HashMap<>();
+        for (Map.Entry<QName, Object> entry : processorMap.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            QName el = entry.getKey();
+            Map<String, Object> processors = table.get(el.getNamespaceURI());
+            if (processors == null) {
+                processors = new ConcurrentHashMap<>();
+                table.put(el.getNamespaceURI(), processors);
+            }
+            processors.put(el.getLocalPart(), entry.getValue());
+        }
+        return table;
+    }
+
+    private static Processor loadProcessor(Object processorObject) throws WSSecurityException {
         if (processorObject instanceof Class<?>) {
             try {
                 return (Processor)((Class<?>)processorObject).newInstance();
@@ -545,9 +690,27 @@ public final class WSSConfig {
     }
 
     public void setCurrentTime(WSTimeSource currentTime) {
+        checkNotFrozen();
         this.currentTime = currentTime;
     }
 
+    public SecurityInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Set the SecurityInstrumentation to report the security processing to.
+     * @param instrumentation the SecurityInstrumentation, or null to not report anything
+     */
+    public void setInstrumentation(SecurityInstrumentation instrumentation) {
+        checkNotFrozen();
+        if (instrumentation == null) {
+            this.instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+        } else {
+            this.instrumentation = instrumentation;
+        }
+    }
+
 
     public static boolean isAddJceProviders() {
         return addJceProviders;
@@ -557,4 +720,8 @@ public final class WSSConfig {
         WSSConfig.addJceProviders = addJceProviders;
         WSProviderConfig.setAddJceProviders(addJceProviders);
     }
+
+    private static final class SharedInstanceHolder {
+        private static final WSSConfig INSTANCE = getNewInstance().freeze();
+    }
 }
@@ -19,17 +19,19 @@
 
 package org.apache.wss4j.dom.engine;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import javax.security.auth.callback.CallbackHandler;
-import javax.xml.namespace.QName;
 
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.WSDocInfo;
 import org.apache.wss4j.dom.callback.CallbackLookup;
@@ -69,6 +71,17 @@ public class WSSecurityEngine {
         return wssConfig;
     }
 
+    /**
+     * @return      the WSSConfig object set on this instance, or the shared
+     *              WSSConfig instance if none has been set
+     */
+    private WSSConfig getWssConfigToUse() {
+        if (wssConfig == null) {
+            return WSSConfig.getSharedInstance();
+        }
+        return wssConfig;
+    }
+
     /**
      * @param cfg   the WSSConfig instance for this WSSecurityEngine to use
      *
@@ -214,7 +227,7 @@ public class WSSecurityEngine {
     ) throws WSSecurityException {
         RequestData data = new RequestData();
         data.setActor(actor);
-        data.setWssConfig(getWssConfig());
+        data.setWssConfig(getWssConfigToUse());
         data.setDecCrypto(decCrypto);
         data.setSigVerCrypto(sigVerCrypto);
         data.setCallbackHandler(cb);
@@ -296,7 +309,7 @@ public class WSSecurityEngine {
         }
 
         if (requestData.getWssConfig() == null) {
-            requestData.setWssConfig(getWssConfig());
+            requestData.setWssConfig(getWssConfigToUse());
         }
 
         //
@@ -314,54 +327,78 @@ public class WSSecurityEngine {
         wsDocInfo.setSecurityHeader(securityHeader);
         requestData.setWsDocInfo(wsDocInfo);
 
-        final WSSConfig cfg = getWssConfig();
+        final WSSConfig cfg = getWssConfigToUse();
+        final SecurityInstrumentation instrumentation = requestData.getInstrumentation();
         Node node = securityHeader.getFirstChild();
 
-        List<WSSecurityEngineResult> returnResults = new LinkedList<>();
+        // The results are collected in reverse order, i.e. the results of the last token first
+        List<WSSecurityEngineResult> returnResults = new ArrayList<>();
         boolean foundTimestamp = false;
-        while (node != null) {
-            Node nextSibling = node.getNextSibling();
-            if (Node.ELEMENT_NODE == node.getNodeType()) {
-                QName el = new QName(node.getNamespaceURI(), node.getLocalName());
+        String actor = requestData.getActor();
+        SecurityTimer headerTimer = SecurityTimer.start(
+            instrumentation, SecurityStage.SECURITY_HEADER, actor == null ? "" : actor);
+        boolean headerSuccess = false;
+        try {
+            while (node != null) {
+                Node nextSibling = node.getNextSibling();
+                if (Node.ELEMENT_NODE == node.getNodeType()) {
+                    String namespace = node.getNamespaceURI();
+                    String localName = node.getLocalName();
 
-                // Check for multiple timestamps
-                if (foundTimestamp && el.equals(WSConstants.TIMESTAMP)) {
-                    requestData.getBSPEnforcer().handleBSPRule(BSPRule.R3227);
-                } else if (el.equals(WSConstants.TIMESTAMP)) {
-                    foundTimestamp = true;
+                    // Check for multiple timestamps
+                    if (WSConstants.TIMESTAMP_TOKEN_LN.equals(localName)
+                        && WSConstants.WSU_NS.equals(namespace)) {
+                        if (foundTimestamp) {
+                            requestData.getBSPEnforcer().handleBSPRule(BSPRule.R3227);
+                        }
+                        foundTimestamp = true;
+                    }
+                    //
+                    // Call the processor for this token. After the processor returns,
+                    // store it for later retrieval. The token processor may store some
+                    // information about the processed token
+                    //
+                    Processor p = cfg.getProcessor(namespace, localName);
+                    if (p != null) {
+                        SecurityTimer timer =
+                            SecurityTimer.start(instrumentation, SecurityStage.PROCESSOR, localName);
+                        boolean success = false;
+                        List<WSSecurityEngineResult> results;
+                        try {
+                            results = p.handleToken((Element) node, requestData);
+                            success = true;
+                        } finally {
+                            SecurityTimer.stop(timer, success);
+                        }
+                        for (int i = results.size() - 1; i >= 0; i--) {
+                            returnResults.add(results.get(i));
+                        }
+                    } else {
+                        if (doDebug) {
+                            LOG.debug(
+                                "Unknown Element: " + localName + " " + namespace
+                            );
+                        }
+                    }
                 }
                 //
-                // Call the processor for this token. After the processor returns,
-                // store it for later retrieval. The token processor may store some
-                // information about the processed token
+                // If the next sibling is null and the stored next sibling is not null, then we have
+                // encountered an EncryptedData element which was decrypted, and so the next sibling
+                // of the current node is null. In that case, go on to the previously stored next
+                // sibling
                 //
-                Processor p = cfg.getProcessor(el);
-                if (p != null) {
-                    List<WSSecurityEngineResult> results = p.handleToken((Element) node, requestData);
-                    if (!results.isEmpty()) {
-                        returnResults.addAll(0, results);
-                    }
+                if (node.getNextSibling() == null && nextSibling != null
+                    && nextSibling.getParentNode() != null) {
+                    node = nextSibling;
                 } else {
-                    if (doDebug) {
-                        LOG.debug(
-                            "Unknown Element: " + node.getLocalName() + " " + node.getNamespaceURI()
-                        );
-                    }
+                    node = node.getNextSibling();
                 }
             }
-            //
-            // If the next sibling is null and the stored next sibling is not null, then we have
-            // encountered an EncryptedData element which was decrypted, and so the next sibling
-            // of the current node is null. In that case, go on to the previously stored next
-            // sibling
-            //
-            if (node.getNextSibling() == null && nextSibling != null
-                && nextSibling.getParentNode() != null) {
-                node = nextSibling;
-            } else {
-                node = node.getNextSibling();
-            }
+            headerSuccess = true;
+        } finally {
+            SecurityTimer.stop(headerTimer, headerSuccess);
         }
+        Collections.reverse(returnResults);
 
         WSHandlerResult handlerResult =
             new WSHandlerResult(requestData.getActor(), returnResults, wsDocInfo.getActionResults());
@@ -29,10 +29,29 @@ import org.apache.wss4j.dom.message.token.UsernameToken;
 
 import java.security.Principal;
 import java.security.cert.X509Certificate;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import org.w3c.dom.Element;
 
-public class WSSecurityEngineResult extends java.util.HashMap<String, Object> {
+/**
+ * The result of processing a security token or a security operation. The values of the
+ * TAG_* keys defined in this class are kept in a fixed array of slots, other keys are kept
+ * in the HashMap itself. All the (overridden) Map methods give access to both, the typed
+ * accessors read the slots directly.
+ */
+public class WSSecurityEngineResult extends HashMap<String, Object> {
 
     //
     // Tokens
@@ -358,5 +377,610 @@ public class WSSecurityEngineResult extends java.util.HashMap<String, Object> {
         put(TAG_TOKEN_ELEMENT, token.getElement());
     }
 
+    /**
+     * The slots of the values of the well-known tags
+     */
+    private enum Slot {
+        SAML_ASSERTION(TAG_SAML_ASSERTION),
+        TIMESTAMP(TAG_TIMESTAMP),
+        SECURITY_CONTEXT_TOKEN(TAG_SECURITY_CONTEXT_TOKEN),
+        USERNAME_TOKEN(TAG_USERNAME_TOKEN),
+        DERIVED_KEY_TOKEN(TAG_DERIVED_KEY_TOKEN),
+        SIGNATURE_CONFIRMATION(TAG_SIGNATURE_CONFIRMATION),
+        BINARY_SECURITY_TOKEN(TAG_BINARY_SECURITY_TOKEN),
+        TRANSFORMED_TOKEN(TAG_TRANSFORMED_TOKEN),
+        VALIDATED_TOKEN(TAG_VALIDATED_TOKEN),
+        TOKEN_ELEMENT(TAG_TOKEN_ELEMENT),
+        X509_CERTIFICATE(TAG_X509_CERTIFICATE),
+        SIGNATURE_VALUE(TAG_SIGNATURE_VALUE),
+        X509_CERTIFICATES(TAG_X509_CERTIFICATES),
+        X509_REFERENCE_TYPE(TAG_X509_REFERENCE_TYPE),
+        ENCRYPTED_EPHEMERAL_KEY(TAG_ENCRYPTED_EPHEMERAL_KEY),
+        SECRET(TAG_SECRET),
+        PUBLIC_KEY(TAG_PUBLIC_KEY),
+        ACTION(TAG_ACTION),
+        PRINCIPAL(TAG_PRINCIPAL),
+        SUBJECT(TAG_SUBJECT),
+        DATA_REF_URIS(TAG_DATA_REF_URIS),
+        ENCRYPTED_KEY_TRANSPORT_METHOD(TAG_ENCRYPTED_KEY_TRANSPORT_METHOD),
+        SIGNATURE_METHOD(TAG_SIGNATURE_METHOD),
+        CANONICALIZATION_METHOD(TAG_CANONICALIZATION_METHOD),
+        DELEGATION_CREDENTIAL(TAG_DELEGATION_CREDENTIAL),
+        ID(TAG_ID);
+
+        private final String tag;
+
+        Slot(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Slot[] SLOTS = Slot.values();
+    private static final Map<String, Slot> SLOTS_BY_TAG = new HashMap<>();
+
+    static {
+        for (Slot slot : SLOTS) {
+            SLOTS_BY_TAG.put(slot.tag, slot);
+        }
+    }
+
+    private Object[] values = new Object[SLOTS.length];
+
+    // A bit for each slot which holds a value, as a null value can be stored as well
+    private int presentSlots;
+
+    private transient Set<Map.Entry<String, Object>> entrySetView;
+    private transient Set<String> keySetView;
+    private transient Collection<Object> valuesView;
+
+    /**
+     * @return the value of TAG_ACTION, or null if not set
+     */
+    public Integer getAction() {
+        return (Integer)values[Slot.ACTION.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_ID, or null if not set
+     */
+    public String getId() {
+        return (String)values[Slot.ID.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_PRINCIPAL, or null if not set
+     */
+    public Principal getPrincipal() {
+        return (Principal)values[Slot.PRINCIPAL.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_X509_CERTIFICATE, or null if not set
+     */
+    public X509Certificate getX509Certificate() {
+        return (X509Certificate)values[Slot.X509_CERTIFICATE.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_X509_CERTIFICATES, or null if not set
+     */
+    public X509Certificate[] getX509Certificates() {
+        return (X509Certificate[])values[Slot.X509_CERTIFICATES.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_DATA_REF_URIS, or null if not set
+     */
+    @SuppressWarnings("unchecked")
+    public List<WSDataRef> getDataRefUris() {
+        return (List<WSDataRef>)values[Slot.DATA_REF_URIS.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_SECRET, or null if not set
+     */
+    public byte[] getSecret() {
+        return (byte[])values[Slot.SECRET.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_SAML_ASSERTION, or null if not set
+     */
+    public SamlAssertionWrapper getSamlAssertion() {
+        return (SamlAssertionWrapper)values[Slot.SAML_ASSERTION.ordinal()];
+    }
+
+    /**
+     * @return the value of TAG_TOKEN_ELEMENT, or null if not set
+     */
+    public Element getTokenElement() {
+        return (Element)values[Slot.TOKEN_ELEMENT.ordinal()];
+    }
+
+    /**
+     * @return whether TAG_VALIDATED_TOKEN is set to true
+     */
+    public boolean isValidatedToken() {
+        return Boolean.TRUE.equals(values[Slot.VALIDATED_TOKEN.ordinal()]);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return values[index];
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return isPresent(index) ? values[index] : defaultValue;
+        }
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return isPresent(index);
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < SLOTS.length; i++) {
+            if (isPresent(i) && Objects.equals(values[i], value)) {
+                return true;
+            }
+        }
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return setSlot(index, value);
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> map) {
+        for (Map.Entry<? extends String, ? extends Object> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            Object currentValue = values[index];
+            if (currentValue == null) {
+                setSlot(index, value);
+            }
+            return currentValue;
+        }
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return removeSlot(index);
+        }
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            if (isPresent(index) && Objects.equals(values[index], value)) {
+                removeSlot(index);
+                return true;
+            }
+            return false;
+        }
+        return super.remove(key, value);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return isPresent(index) ? setSlot(index, value) : null;
+        }
+        return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            if (isPresent(index) && Objects.equals(values[index], oldValue)) {
+                setSlot(index, newValue);
+                return true;
+            }
+            return false;
+        }
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ? extends Object> mappingFunction) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            Object value = values[index];
+            if (value == null) {
+                value = mappingFunction.apply(key);
+                if (value != null) {
+                    setSlot(index, value);
+                }
+            }
+            return value;
+        }
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(
+        String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction
+    ) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            Object value = values[index];
+            if (value == null) {
+                return null;
+            }
+            return computeSlot(index, remappingFunction.apply(key, value));
+        }
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            return computeSlot(index, remappingFunction.apply(key, values[index]));
+        }
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(
+        String key, Object value, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction
+    ) {
+        int index = slotIndex(key);
+        if (index >= 0) {
+            Objects.requireNonNull(value);
+            Object oldValue = values[index];
+            return computeSlot(index, oldValue == null ? value : remappingFunction.apply(oldValue, value));
+        }
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < SLOTS.length; i++) {
+            if (isPresent(i)) {
+                action.accept(SLOTS[i].tag, values[i]);
+            }
+        }
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+        for (int i = 0; i < SLOTS.length; i++) {
+            if (isPresent(i)) {
+                values[i] = function.apply(SLOTS[i].tag, values[i]);
+            }
+        }
+        super.replaceAll(function);
+    }
+
+    @Override
+    public int size() {
+        return Integer.bitCount(presentSlots) + super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return presentSlots == 0 && super.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+        }
+        presentSlots = 0;
+        super.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySetView == null) {
+            entrySetView = new EntrySet();
+        }
+        return entrySetView;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        if (keySetView == null) {
+            keySetView = new KeySet();
+        }
+        return keySetView;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        if (valuesView == null) {
+            valuesView = new Values();
+        }
+        return valuesView;
+    }
+
+    @Override
+    public Object clone() {
+        WSSecurityEngineResult result = (WSSecurityEngineResult)super.clone();
+        // HashMap#clone copies all the entries (including the slots) into the map of the clone
+        for (Slot slot : SLOTS) {
+            result.removeOtherValue(slot.tag);
+        }
+        result.values = values.clone();
+        result.entrySetView = null;
+        result.keySetView = null;
+        result.valuesView = null;
+        return result;
+    }
+
+    private void removeOtherValue(String key) {
+        super.remove(key);
+    }
+
+    private Iterator<Map.Entry<String, Object>> otherEntries() {
+        return super.entrySet().iterator();
+    }
+
+    private static int slotIndex(Object key) {
+        Slot slot = SLOTS_BY_TAG.get(key);
+        return slot == null ? -1 : slot.ordinal();
+    }
+
+    private boolean isPresent(int index) {
+        return (presentSlots & (1 << index)) != 0;
+    }
+
+    private Object setSlot(int index, Object value) {
+        Object previousValue = values[index];
+        values[index] = value;
+        presentSlots |= 1 << index;
+        return previousValue;
+    }
+
+    private Object computeSlot(int index, Object value) {
+        if (value == null) {
+            removeSlot(index);
+        } else {
+            setSlot(index, value);
+        }
+        return value;
+    }
+
+    private Object removeSlot(int index) {
+        Object previousValue = values[index];
+        values[index] = null;
+        presentSlots &= ~(1 << index);
+        return previousValue;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return WSSecurityEngineResult.this.size();
+        }
+
+        @Override
+        public void clear() {
+            WSSecurityEngineResult.this.clear();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            final Iterator<Map.Entry<String, Object>> iterator = new EntryIterator();
+            return new Iterator<String>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return iterator.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return WSSecurityEngineResult.this.size();
+        }
+
+        @Override
+        public void clear() {
+            WSSecurityEngineResult.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<Object> {
+
+        @Override
+        public Iterator<Object> iterator() {
+            final Iterator<Map.Entry<String, Object>> iterator = new EntryIterator();
+            return new Iterator<Object>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    return iterator.next().getValue();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return containsValue(value);
+        }
+
+        @Override
+        public int size() {
+            return WSSecurityEngineResult.this.size();
+        }
+
+        @Override
+        public void clear() {
+            WSSecurityEngineResult.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int nextSlot;
+        private int lastSlot = -1;
+        private Iterator<Map.Entry<String, Object>> otherIterator;
+
+        EntryIterator() {
+            nextSlot = findSlot(0);
+        }
+
+        private int findSlot(int from) {
+            for (int i = from; i < SLOTS.length; i++) {
+                if (isPresent(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextSlot >= 0) {
+                return true;
+            }
+            if (otherIterator == null) {
+                otherIterator = otherEntries();
+            }
+            return otherIterator.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextSlot >= 0) {
+                lastSlot = nextSlot;
+                nextSlot = findSlot(nextSlot + 1);
+                return new SlotEntry(lastSlot);
+            }
+            lastSlot = -1;
+            return otherIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot >= 0) {
+                removeSlot(lastSlot);
+                lastSlot = -1;
+            } else if (otherIterator != null) {
+                otherIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private final class SlotEntry implements Map.Entry<String, Object> {
+
+        private final int index;
+
+        SlotEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return SLOTS[index].tag;
+        }
+
+        @Override
+        public Object getValue() {
+            return values[index];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previousValue = values[index];
+            values[index] = value;
+            return previousValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>)o;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
 
 }
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * The configuration of a WSHandler that was decoded once from its options (see WSHandler#getOption),
+ * rather than for every message. Only values that are configured as options are held here - a value
+ * that is not available as an option is still looked up (and decoded) via the message context for
+ * each message. A value that can't be decoded is not held either, so that the error is reported
+ * when the value is actually used, as before.
+ *
+ * It is only used if the WSHandler enables it via WSHandler#setCompileOptions. An instance is then
+ * cached on the WSHandler, and must be discarded via WSHandler#resetCompiledConfig when the options
+ * of the handler change. A CallbackHandler class that is configured as an option is instantiated
+ * once, and the instance is then used by all threads that process messages with this handler, so
+ * it must be thread-safe.
+ */
+public final class CompiledHandlerConfig {
+
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(CompiledHandlerConfig.class);
+
+    private static final String[] BOOLEAN_OPTIONS = {
+        WSHandlerConstants.ADD_INCLUSIVE_PREFIXES,
+        WSHandlerConstants.ADD_USERNAMETOKEN_CREATED,
+        WSHandlerConstants.ADD_USERNAMETOKEN_NONCE,
+        WSHandlerConstants.ALLOW_NAMESPACE_QUALIFIED_PASSWORD_TYPES,
+        WSHandlerConstants.ALLOW_RSA15_KEY_TRANSPORT_ALGORITHM,
+        WSHandlerConstants.ALLOW_USERNAMETOKEN_NOPASSWORD,
+        WSHandlerConstants.ENABLE_REVOCATION,
+        WSHandlerConstants.ENABLE_SIGNATURE_CONFIRMATION,
+        WSHandlerConstants.EXPAND_XOP_INCLUDE,
+        WSHandlerConstants.EXPAND_XOP_INCLUDE_FOR_SIGNATURE,
+        WSHandlerConstants.GET_SECRET_KEY_FROM_CALLBACK_HANDLER,
+        WSHandlerConstants.HANDLE_CUSTOM_PASSWORD_TYPES,
+        WSHandlerConstants.INCLUDE_ENCRYPTION_TOKEN,
+        WSHandlerConstants.INCLUDE_SIGNATURE_TOKEN,
+        WSHandlerConstants.IS_BSP_COMPLIANT,
+        WSHandlerConstants.MUST_UNDERSTAND,
+        WSHandlerConstants.REQUIRE_SIGNED_ENCRYPTED_DATA_ELEMENTS,
+        WSHandlerConstants.REQUIRE_TIMESTAMP_EXPIRES,
+        WSHandlerConstants.STORE_BYTES_IN_ATTACHMENT,
+        WSHandlerConstants.TIMESTAMP_PRECISION,
+        WSHandlerConstants.TIMESTAMP_STRICT,
+        WSHandlerConstants.USE_2005_12_NAMESPACE,
+        WSHandlerConstants.USE_ENCODED_PASSWORDS,
+        WSHandlerConstants.USE_SINGLE_CERTIFICATE,
+        WSHandlerConstants.VALIDATE_SAML_SUBJECT_CONFIRMATION,
+    };
+
+    private static final String[] INTEGER_OPTIONS = {
+        WSHandlerConstants.TTL_TIMESTAMP,
+        WSHandlerConstants.TTL_USERNAMETOKEN,
+        WSHandlerConstants.TTL_FUTURE_TIMESTAMP,
+        WSHandlerConstants.TTL_FUTURE_USERNAMETOKEN,
+    };
+
+    private static final String[] PATTERN_OPTIONS = {
+        WSHandlerConstants.SIG_SUBJECT_CERT_CONSTRAINTS,
+        WSHandlerConstants.SIG_ISSUER_CERT_CONSTRAINTS,
+    };
+
+    private final Map<String, Boolean> booleanOptions = new HashMap<>();
+    private final Map<String, Integer> integerOptions = new HashMap<>();
+    private final Map<String, Collection<Pattern>> patternOptions = new HashMap<>();
+    private final Map<String, CallbackHandler> callbackHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * An empty configuration, for a WSHandler that decodes its options for every message
+     */
+    CompiledHandlerConfig() {
+    }
+
+    CompiledHandlerConfig(WSHandler handler) {
+        for (String key : BOOLEAN_OPTIONS) {
+            String value = handler.getStringOption(key);
+            if ("0".equals(value) || "false".equals(value)) {
+                booleanOptions.put(key, Boolean.FALSE);
+            } else if ("1".equals(value) || "true".equals(value)) {
+                booleanOptions.put(key, Boolean.TRUE);
+            }
+        }
+
+        for (String key : INTEGER_OPTIONS) {
+            String value = handler.getStringOption(key);
+            if (value != null) {
+                try {
+                    integerOptions.put(key, Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    LOG.debug("The value of option {} is not an integer, the default value is used", key);
+                }
+            }
+        }
+
+        for (String key : PATTERN_OPTIONS) {
+            String value = handler.getStringOption(key);
+            if (value != null) {
+                try {
+                    patternOptions.put(key, compilePatterns(value));
+                } catch (PatternSyntaxException e) {
+                    LOG.debug("The value of option {} can't be compiled: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the decoded value of a boolean option, or null if the option is not (validly) configured
+     */
+    public Boolean getBooleanOption(String key) {
+        return booleanOptions.get(key);
+    }
+
+    /**
+     * Get the decoded value of an integer option (such as a time-to-live), or null if the option
+     * is not (validly) configured
+     */
+    public Integer getIntegerOption(String key) {
+        return integerOptions.get(key);
+    }
+
+    /**
+     * Get the compiled patterns of a comma separated regular expression option (such as the
+     * certificate constraints), or null if the option is not (validly) configured
+     */
+    public Collection<Pattern> getPatternOption(String key) {
+        return patternOptions.get(key);
+    }
+
+    /**
+     * Get the CallbackHandler instance of the given class, which is shared by all messages (and
+     * threads)
+     */
+    CallbackHandler getCallbackHandler(String callbackHandlerClass) {
+        return callbackHandlers.get(callbackHandlerClass);
+    }
+
+    void putCallbackHandler(String callbackHandlerClass, CallbackHandler callbackHandler) {
+        callbackHandlers.putIfAbsent(callbackHandlerClass, callbackHandler);
+    }
+
+    static Collection<Pattern> compilePatterns(String value) {
+        String[] values = value.split(",");
+        Collection<Pattern> patterns = new ArrayList<>(values.length);
+        for (String pattern : values) {
+            patterns.add(Pattern.compile(pattern.trim()));
+        }
+        return Collections.unmodifiableCollection(patterns);
+    }
+}
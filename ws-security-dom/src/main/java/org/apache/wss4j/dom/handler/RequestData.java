@@ -36,11 +36,17 @@ import org.apache.wss4j.common.EncryptionActionToken;
 import org.apache.wss4j.common.SignatureActionToken;
 import org.apache.wss4j.common.bsp.BSPEnforcer;
 import org.apache.wss4j.common.bsp.BSPRule;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
 import org.apache.wss4j.common.cache.ReplayCache;
+import org.apache.wss4j.common.cache.UnwrappedKeyCache;
 import org.apache.wss4j.common.crypto.AlgorithmSuite;
 import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.crypto.PasswordEncryptor;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
 import org.apache.wss4j.dom.SOAPConstants;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.WSDocInfo;
@@ -75,6 +81,10 @@ public class RequestData {
     private ReplayCache timestampReplayCache;
     private ReplayCache nonceReplayCache;
     private ReplayCache samlOneTimeUseReplayCache;
+    private SamlAssertionCache samlAssertionCache;
+    private EncryptedKeySession encryptedKeySession;
+    private UnwrappedKeyCache unwrappedKeyCache;
+    private DerivedKeyCache derivedKeyCache;
     private Collection<Pattern> subjectDNPatterns = new ArrayList<>();
     private Collection<Pattern> issuerDNPatterns = new ArrayList<>();
     private final List<BSPRule> ignoredBSPRules = new LinkedList<>();
@@ -378,6 +388,16 @@ public class RequestData {
         this.attachmentCallbackHandler = attachmentCallbackHandler;
     }
 
+    /**
+     * @return the SecurityInstrumentation of the WSSConfig, or a no-op instance if no WSSConfig is set
+     */
+    public SecurityInstrumentation getInstrumentation() {
+        if (wssConfig != null) {
+            return wssConfig.getInstrumentation();
+        }
+        return NoOpSecurityInstrumentation.INSTANCE;
+    }
+
     /**
      * Get the Validator instance corresponding to the QName
      * @param qName the QName with which to find a Validator instance
@@ -445,6 +465,62 @@ public class RequestData {
         return samlOneTimeUseReplayCache;
     }
 
+    /**
+     * Set the cache used to reuse outbound SAML Assertions
+     */
+    public void setSamlAssertionCache(SamlAssertionCache samlAssertionCache) {
+        this.samlAssertionCache = samlAssertionCache;
+    }
+
+    /**
+     * Get the cache used to reuse outbound SAML Assertions
+     */
+    public SamlAssertionCache getSamlAssertionCache() {
+        return samlAssertionCache;
+    }
+
+    /**
+     * Set the session used to reuse outbound EncryptedKeys
+     */
+    public void setEncryptedKeySession(EncryptedKeySession encryptedKeySession) {
+        this.encryptedKeySession = encryptedKeySession;
+    }
+
+    /**
+     * Get the session used to reuse outbound EncryptedKeys
+     */
+    public EncryptedKeySession getEncryptedKeySession() {
+        return encryptedKeySession;
+    }
+
+    /**
+     * Set the cache used to reuse the unwrapped keys of inbound EncryptedKeys
+     */
+    public void setUnwrappedKeyCache(UnwrappedKeyCache unwrappedKeyCache) {
+        this.unwrappedKeyCache = unwrappedKeyCache;
+    }
+
+    /**
+     * Get the cache used to reuse the unwrapped keys of inbound EncryptedKeys
+     */
+    public UnwrappedKeyCache getUnwrappedKeyCache() {
+        return unwrappedKeyCache;
+    }
+
+    /**
+     * Set the cache used to reuse the keys derived from inbound UsernameTokens
+     */
+    public void setDerivedKeyCache(DerivedKeyCache derivedKeyCache) {
+        this.derivedKeyCache = derivedKeyCache;
+    }
+
+    /**
+     * Get the cache used to reuse the keys derived from inbound UsernameTokens
+     */
+    public DerivedKeyCache getDerivedKeyCache() {
+        return derivedKeyCache;
+    }
+
     /**
      * Set the Signature Subject Cert Constraints
      */
@@ -44,13 +44,17 @@ import org.apache.wss4j.common.EncryptionActionToken;
 import org.apache.wss4j.common.SignatureActionToken;
 import org.apache.wss4j.common.SignatureEncryptionActionToken;
 import org.apache.wss4j.common.WSEncryptionPart;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
+import org.apache.wss4j.common.cache.UnwrappedKeyCache;
 import org.apache.wss4j.common.crypto.AlgorithmSuite;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.crypto.JasyptPasswordEncryptor;
 import org.apache.wss4j.common.crypto.PasswordEncryptor;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
 import org.apache.wss4j.common.util.Loader;
 import org.apache.wss4j.dom.message.WSSecHeader;
 import org.apache.wss4j.dom.message.token.SignatureConfirmation;
@@ -65,6 +69,9 @@ public abstract class WSHandler {
     private static final org.slf4j.Logger LOG =
         org.slf4j.LoggerFactory.getLogger(WSHandler.class);
     protected Map<String, Crypto> cryptos = new ConcurrentHashMap<String, Crypto>();
+    private static final CompiledHandlerConfig EMPTY_COMPILED_CONFIG = new CompiledHandlerConfig();
+    private volatile boolean compileOptions;
+    private volatile CompiledHandlerConfig compiledConfig;
 
     /**
      * Performs all defined security actions to set-up the SOAP request.
@@ -85,7 +92,7 @@ public abstract class WSHandler {
 
         WSSConfig wssConfig = reqData.getWssConfig();
         if (wssConfig == null) {
-            wssConfig = WSSConfig.getNewInstance();
+            wssConfig = WSSConfig.getSharedInstance();
             reqData.setWssConfig(wssConfig);
         }
 
@@ -124,6 +131,14 @@ public abstract class WSHandler {
             reqData.setCallbackHandler(passwordCallbackHandler);
         }
 
+        if (reqData.getSamlAssertionCache() == null) {
+            reqData.setSamlAssertionCache(getSamlAssertionCache(reqData));
+        }
+
+        if (reqData.getEncryptedKeySession() == null) {
+            reqData.setEncryptedKeySession(getEncryptedKeySession(reqData));
+        }
+
         if (!reqData.isStoreBytesInAttachment()) {
             boolean storeBytesInAttachment =
                 decodeBooleanConfigValue(mc, WSHandlerConstants.STORE_BYTES_IN_ATTACHMENT, false);
@@ -297,7 +312,7 @@ public abstract class WSHandler {
 
         WSSConfig wssConfig = reqData.getWssConfig();
         if (wssConfig == null) {
-            wssConfig = WSSConfig.getNewInstance();
+            wssConfig = WSSConfig.getSharedInstance();
             reqData.setWssConfig(wssConfig);
         }
 
@@ -345,6 +360,14 @@ public abstract class WSHandler {
             reqData.setCallbackHandler(passwordCallbackHandler);
         }
 
+        if (reqData.getUnwrappedKeyCache() == null) {
+            reqData.setUnwrappedKeyCache(getUnwrappedKeyCache(reqData));
+        }
+
+        if (reqData.getDerivedKeyCache() == null) {
+            reqData.setDerivedKeyCache(getDerivedKeyCache(reqData));
+        }
+
         if (actions.contains(WSConstants.SIGN) || actions.contains(WSConstants.ST_SIGNED)
             || actions.contains(WSConstants.ST_UNSIGNED)) {
             decodeSignatureParameter2(reqData);
@@ -787,8 +810,12 @@ public abstract class WSHandler {
         if (!timestamp) {
             tag = WSHandlerConstants.TTL_USERNAMETOKEN;
         }
-        String ttl = getString(tag, reqData.getMsgContext());
         int defaultTimeToLive = 300;
+        Integer compiledTTL = getCompiledConfig().getIntegerOption(tag);
+        if (compiledTTL != null) {
+            return compiledTTL < 0 ? defaultTimeToLive : compiledTTL;
+        }
+        String ttl = getString(tag, reqData.getMsgContext());
         if (ttl != null) {
             try {
                 int ttlI = Integer.parseInt(ttl);
@@ -812,8 +839,12 @@ public abstract class WSHandler {
         if (!timestamp) {
             tag = WSHandlerConstants.TTL_FUTURE_USERNAMETOKEN;
         }
-        String ttl = getString(tag, reqData.getMsgContext());
         int defaultFutureTimeToLive = 60;
+        Integer compiledTTL = getCompiledConfig().getIntegerOption(tag);
+        if (compiledTTL != null) {
+            return compiledTTL < 0 ? defaultFutureTimeToLive : compiledTTL;
+        }
+        String ttl = getString(tag, reqData.getMsgContext());
         if (ttl != null) {
             try {
                 int ttlI = Integer.parseInt(ttl);
@@ -844,6 +875,11 @@ public abstract class WSHandler {
         Object messageContext, String configTag, boolean defaultToTrue
     ) throws WSSecurityException {
 
+        Boolean compiledValue = getCompiledConfig().getBooleanOption(configTag);
+        if (compiledValue != null) {
+            return compiledValue;
+        }
+
         String value = getString(configTag, messageContext);
 
         if (value == null) {
@@ -1032,9 +1068,20 @@ public abstract class WSHandler {
             cbHandler = (CallbackHandler) getProperty(mc, callbackHandlerRef);
         }
         if (cbHandler == null) {
-            String callback = getString(callbackHandlerClass, mc);
+            String callback = compileOptions ? getStringOption(callbackHandlerClass) : null;
             if (callback != null) {
-                cbHandler = loadCallbackHandler(callback, requestData);
+                // A CallbackHandler class configured as an option is only instantiated once
+                CompiledHandlerConfig config = getCompiledConfig();
+                cbHandler = config.getCallbackHandler(callback);
+                if (cbHandler == null) {
+                    cbHandler = loadCallbackHandler(callback, requestData);
+                    config.putCallbackHandler(callback, cbHandler);
+                }
+            } else {
+                callback = getString(callbackHandlerClass, mc);
+                if (callback != null) {
+                    cbHandler = loadCallbackHandler(callback, requestData);
+                }
             }
         }
         return cbHandler;
@@ -1095,6 +1142,39 @@ public abstract class WSHandler {
         return cbHandler;
     }
 
+    protected SamlAssertionCache getSamlAssertionCache(RequestData requestData) {
+        return getInstance(requestData, WSHandlerConstants.SAML_ASSERTION_CACHE_INSTANCE, SamlAssertionCache.class);
+    }
+
+    protected EncryptedKeySession getEncryptedKeySession(RequestData requestData) {
+        return getInstance(requestData, WSHandlerConstants.ENCRYPTED_KEY_SESSION_INSTANCE, EncryptedKeySession.class);
+    }
+
+    protected UnwrappedKeyCache getUnwrappedKeyCache(RequestData requestData) {
+        return getInstance(requestData, WSHandlerConstants.UNWRAPPED_KEY_CACHE_INSTANCE, UnwrappedKeyCache.class);
+    }
+
+    protected DerivedKeyCache getDerivedKeyCache(RequestData requestData) {
+        return getInstance(requestData, WSHandlerConstants.DERIVED_KEY_CACHE_INSTANCE, DerivedKeyCache.class);
+    }
+
+    /**
+     * Get an instance of the given type that is configured as an option, or else as a property
+     * of the message context.
+     *
+     * @return the instance, or null if none of the given type is configured
+     */
+    private <T> T getInstance(RequestData requestData, String key, Class<T> type) {
+        Object o = getOption(key);
+        if (o == null) {
+            o = getProperty(requestData.getMsgContext(), key);
+        }
+        if (type.isInstance(o)) {
+            return type.cast(o);
+        }
+        return null;
+    }
+
     protected PasswordEncryptor getPasswordEncryptor(RequestData requestData) {
         PasswordEncryptor passwordEncryptor = requestData.getPasswordEncryptor();
         if (passwordEncryptor == null) {
@@ -1330,16 +1410,28 @@ public abstract class WSHandler {
             );
         reqData.setEnableRevocation(enableRevocation);
 
-        String certConstraints =
-            getString(WSHandlerConstants.SIG_SUBJECT_CERT_CONSTRAINTS, reqData.getMsgContext());
-        if (certConstraints != null) {
-            Collection<Pattern> subjectCertConstraints = getCertConstraints(certConstraints);
+        Collection<Pattern> subjectCertConstraints =
+            getCompiledConfig().getPatternOption(WSHandlerConstants.SIG_SUBJECT_CERT_CONSTRAINTS);
+        if (subjectCertConstraints == null) {
+            String certConstraints =
+                getString(WSHandlerConstants.SIG_SUBJECT_CERT_CONSTRAINTS, reqData.getMsgContext());
+            if (certConstraints != null) {
+                subjectCertConstraints = getCertConstraints(certConstraints);
+            }
+        }
+        if (subjectCertConstraints != null) {
             reqData.setSubjectCertConstraints(subjectCertConstraints);
         }
-        String issuerCertConstraintsStringValue =
-            getString(WSHandlerConstants.SIG_ISSUER_CERT_CONSTRAINTS, reqData.getMsgContext());
-        if (issuerCertConstraintsStringValue != null) {
-            Collection<Pattern> issuerCertConstraints = getCertConstraints(issuerCertConstraintsStringValue);
+        Collection<Pattern> issuerCertConstraints =
+            getCompiledConfig().getPatternOption(WSHandlerConstants.SIG_ISSUER_CERT_CONSTRAINTS);
+        if (issuerCertConstraints == null) {
+            String issuerCertConstraintsStringValue =
+                getString(WSHandlerConstants.SIG_ISSUER_CERT_CONSTRAINTS, reqData.getMsgContext());
+            if (issuerCertConstraintsStringValue != null) {
+                issuerCertConstraints = getCertConstraints(issuerCertConstraintsStringValue);
+            }
+        }
+        if (issuerCertConstraints != null) {
             reqData.setIssuerDNPatterns(issuerCertConstraints);
         }
 
@@ -1360,22 +1452,12 @@ public abstract class WSHandler {
     }
 
     private Collection<Pattern> getCertConstraints(String certConstraints) throws WSSecurityException {
-        String[] certConstraintsList = certConstraints.split(",");
-        if (certConstraintsList != null && certConstraintsList.length > 0) {
-            Collection<Pattern> certConstraintsCollection =
-                new ArrayList<>(certConstraintsList.length);
-            for (String certConstraint : certConstraintsList) {
-                try {
-                    certConstraintsCollection.add(Pattern.compile(certConstraint.trim()));
-                } catch (PatternSyntaxException ex) {
-                    LOG.debug(ex.getMessage(), ex);
-                    throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex);
-                }
-            }
-
-            return certConstraintsCollection;
+        try {
+            return CompiledHandlerConfig.compilePatterns(certConstraints);
+        } catch (PatternSyntaxException ex) {
+            LOG.debug(ex.getMessage(), ex);
+            throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex);
         }
-        return Collections.emptyList();
     }
 
     /*
@@ -1449,6 +1531,57 @@ public abstract class WSHandler {
         }
     }
 
+    /**
+     * Get the configuration that was decoded from the options of this handler. If decoding the
+     * options once is enabled (see setCompileOptions), it is created on first use, and then shared
+     * by all messages until resetCompiledConfig is called. Otherwise an empty configuration is
+     * returned, and the options are decoded for every message.
+     *
+     * @return the CompiledHandlerConfig of this handler
+     */
+    public CompiledHandlerConfig getCompiledConfig() {
+        if (!compileOptions) {
+            return EMPTY_COMPILED_CONFIG;
+        }
+        CompiledHandlerConfig config = compiledConfig;
+        if (config == null) {
+            config = new CompiledHandlerConfig(this);
+            compiledConfig = config;
+        }
+        return config;
+    }
+
+    /**
+     * Discard the configuration that was decoded from the options of this handler. If decoding the
+     * options once is enabled, this must be called by subclasses when the options (see getOption)
+     * change.
+     */
+    public void resetCompiledConfig() {
+        compiledConfig = null;
+    }
+
+    /**
+     * Whether the options of this handler (see getOption) are decoded once, rather than for every
+     * message. The default is false.
+     */
+    public boolean isCompileOptions() {
+        return compileOptions;
+    }
+
+    /**
+     * Set whether the options of this handler (see getOption) are decoded once, rather than for
+     * every message. This should only be enabled if the options don't change after the handler is
+     * configured, or if the subclass calls resetCompiledConfig when they do. A CallbackHandler class
+     * that is configured as an option is then only instantiated once, and the instance is used
+     * by all threads, so it must be thread-safe.
+     *
+     * @param compileOptions whether the options of this handler are decoded once
+     */
+    public void setCompileOptions(boolean compileOptions) {
+        this.compileOptions = compileOptions;
+        compiledConfig = null;
+    }
+
     public abstract Object getOption(String key);
     public abstract Object getProperty(Object msgContext, String key);
 
@@ -42,6 +42,7 @@ import javax.xml.crypto.dsig.keyinfo.KeyValue;
 
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoType;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.token.BinarySecurity;
 import org.apache.wss4j.common.token.DOMX509Data;
@@ -50,10 +51,10 @@ import org.apache.wss4j.common.token.Reference;
 import org.apache.wss4j.common.token.SecurityTokenReference;
 import org.apache.wss4j.common.token.X509Security;
 import org.apache.wss4j.common.util.KeyUtils;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.util.WSSecurityUtil;
 import org.apache.xml.security.algorithms.JCEMapper;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.utils.Constants;
 import org.apache.xml.security.utils.XMLUtils;
 import org.w3c.dom.Document;
@@ -146,6 +147,7 @@ public class WSSecEncryptedKey extends WSSecBase {
     private boolean includeEncryptionToken;
     private Element customEKKeyInfoElement;
     private Provider provider;
+    private EncryptedKeySession encryptedKeySession;
 
     public WSSecEncryptedKey(WSSecHeader securityHeader) {
         super(securityHeader);
@@ -250,6 +252,20 @@ public class WSSecEncryptedKey extends WSSecBase {
 
     private void encryptSymmetricKey(PublicKey encryptingKey, SecretKey keyToBeEncrypted)
         throws WSSecurityException {
+        String[] sessionAlgorithms = null;
+        if (encryptedKeySession != null) {
+            sessionAlgorithms = new String[] {symEncAlgo, keyEncAlgo, digestAlgo, mgfAlgo};
+            EncryptedKeySession.SessionKey sessionKey =
+                encryptedKeySession.acquire(encryptingKey, sessionAlgorithms);
+            if (sessionKey != null) {
+                LOG.debug("Reusing the wrapped key of the EncryptedKey session");
+                symmetricKey = (SecretKey) sessionKey.getKey();
+                ephemeralKey = symmetricKey.getEncoded();
+                encryptedEphemeralKey = sessionKey.getEncryptedKey();
+                return;
+            }
+        }
+
         Cipher cipher = KeyUtils.getCipherInstance(keyEncAlgo);
         try {
             OAEPParameterSpec oaepParameterSpec = null;
@@ -298,6 +314,10 @@ public class WSSecEncryptedKey extends WSSecBase {
                 WSSecurityException.ErrorCode.FAILED_ENCRYPTION, ex
             );
         }
+
+        if (encryptedKeySession != null) {
+            encryptedKeySession.store(encryptingKey, keyToBeEncrypted, encryptedEphemeralKey, sessionAlgorithms);
+        }
     }
 
     /**
@@ -329,7 +349,7 @@ public class WSSecEncryptedKey extends WSSecBase {
         //
         encryptedKeyElement = createEncryptedKey(getDocument(), keyEncAlgo);
         if (encKeyId == null || "".equals(encKeyId)) {
-            encKeyId = IDGenerator.generateID("EK-");
+            encKeyId = WSRandom.generateId("EK-");
         }
         encryptedKeyElement.setAttributeNS(null, "Id", encKeyId);
 
@@ -381,7 +401,7 @@ public class WSSecEncryptedKey extends WSSecBase {
 
             case WSConstants.BST_DIRECT_REFERENCE:
                 Reference ref = new Reference(getDocument());
-                String certUri = IDGenerator.generateID(null);
+                String certUri = WSRandom.generateId(null);
                 ref.setURI("#" + certUri);
                 bstToken = new X509Security(getDocument());
                 ((X509Security) bstToken).setX509Certificate(remoteCert);
@@ -480,7 +500,7 @@ public class WSSecEncryptedKey extends WSSecBase {
         //
         encryptedKeyElement = createEncryptedKey(getDocument(), keyEncAlgo);
         if (encKeyId == null || "".equals(encKeyId)) {
-            encKeyId = IDGenerator.generateID("EK-");
+            encKeyId = WSRandom.generateId("EK-");
         }
         encryptedKeyElement.setAttributeNS(null, "Id", encKeyId);
 
@@ -600,7 +620,7 @@ public class WSSecEncryptedKey extends WSSecBase {
     protected void prepareInternal(SecretKey secretKey) throws WSSecurityException {
         encryptedKeyElement = createEncryptedKey(getDocument(), keyEncAlgo);
         if (encKeyId == null || "".equals(encKeyId)) {
-            encKeyId = IDGenerator.generateID("EK-");
+            encKeyId = WSRandom.generateId("EK-");
         }
         encryptedKeyElement.setAttributeNS(null, "Id", encKeyId);
 
@@ -694,7 +714,7 @@ public class WSSecEncryptedKey extends WSSecBase {
         ((X509Security) bstToken).setX509Certificate(cert);
 
         bstAddedToSecurityHeader = false;
-        bstToken.setID(IDGenerator.generateID(null));
+        bstToken.setID(WSRandom.generateId(null));
     }
 
     /**
@@ -1018,5 +1038,18 @@ public class WSSecEncryptedKey extends WSSecBase {
         this.customEKKeyInfoElement = customEKKeyInfoElement;
     }
 
+    public EncryptedKeySession getEncryptedKeySession() {
+        return encryptedKeySession;
+    }
 
+    /**
+     * Set the session to reuse the symmetric key and its wrapped form for the messages to
+     * the same recipient, instead of wrapping a new key with the public key of the recipient
+     * for every message. If the session holds a current key, it replaces the symmetric key
+     * of this builder, so a session should only be set if the symmetric key is generated.
+     * @param encryptedKeySession the session, or null to use a new key for every message
+     */
+    public void setEncryptedKeySession(EncryptedKeySession encryptedKeySession) {
+        this.encryptedKeySession = encryptedKeySession;
+    }
 }
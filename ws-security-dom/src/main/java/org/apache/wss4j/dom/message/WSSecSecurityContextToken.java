@@ -169,7 +169,7 @@ public class WSSecSecurityContextToken {
 
     private WSSConfig getWsConfig() {
         if (wssConfig == null) {
-            wssConfig = WSSConfig.getNewInstance();
+            wssConfig = WSSConfig.getSharedInstance();
         }
         return wssConfig;
     }
@@ -39,6 +39,7 @@ import org.apache.wss4j.common.bsp.BSPEnforcer;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.ext.WSSecurityException.ErrorCode;
+import org.apache.wss4j.common.kerberos.KerberosClientCredentialCache;
 import org.apache.wss4j.common.kerberos.KerberosClientExceptionAction;
 import org.apache.wss4j.common.kerberos.KerberosContext;
 import org.apache.wss4j.common.kerberos.KerberosContextAndServiceNameCallback;
@@ -56,6 +57,7 @@ public class KerberosSecurity extends BinarySecurity {
     private static final org.slf4j.Logger LOG =
         org.slf4j.LoggerFactory.getLogger(KerberosSecurity.class);
     private SecretKey secretKey;
+    private KerberosClientCredentialCache credentialCache;
 
     /**
      * This constructor creates a new Kerberos token object and initializes
@@ -186,14 +188,20 @@ public class KerberosSecurity extends BinarySecurity {
         GSSCredential delegatedCredential
     ) throws WSSecurityException {
         // Get a TGT from the KDC using JAAS
-        LoginContext loginContext = null;
+        Subject clientSubject = null;
         try {
-            if (callbackHandler == null) {
-                loginContext = new LoginContext(jaasLoginModuleName);
+            if (credentialCache != null) {
+                clientSubject = credentialCache.getSubject(jaasLoginModuleName, callbackHandler);
             } else {
-                loginContext = new LoginContext(jaasLoginModuleName, callbackHandler);
+                LoginContext loginContext = null;
+                if (callbackHandler == null) {
+                    loginContext = new LoginContext(jaasLoginModuleName);
+                } else {
+                    loginContext = new LoginContext(jaasLoginModuleName, callbackHandler);
+                }
+                loginContext.login();
+                clientSubject = loginContext.getSubject();
             }
-            loginContext.login();
         } catch (LoginException ex) {
             LOG.debug(ex.getMessage(), ex);
             throw new WSSecurityException(
@@ -204,7 +212,6 @@ public class KerberosSecurity extends BinarySecurity {
         }
         LOG.debug("Successfully authenticated to the TGT");
 
-        Subject clientSubject = loginContext.getSubject();
         Set<Principal> clientPrincipals = clientSubject.getPrincipals();
         if (clientPrincipals.isEmpty()) {
             throw new WSSecurityException(
@@ -284,6 +291,19 @@ public class KerberosSecurity extends BinarySecurity {
         return null;
     }
 
+    /**
+     * Set a KerberosClientCredentialCache to reuse the TGT (and the service tickets) of
+     * a previous JAAS login. The default is null, meaning that a JAAS login is performed
+     * every time a service ticket is retrieved.
+     */
+    public void setCredentialCache(KerberosClientCredentialCache credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
+    public KerberosClientCredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+
     /**
      * Get the SecretKey associated with the service principal
      * @return the SecretKey associated with the service principal
@@ -24,9 +24,9 @@ import javax.xml.namespace.QName;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.util.DOM2Writer;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.common.derivedKey.ConversationConstants;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -88,7 +88,7 @@ public class SecurityContextToken {
 
         element.appendChild(elementIdentifier);
 
-        String uuid = IDGenerator.generateID("uuid:");
+        String uuid = WSRandom.generateRandomId("uuid:");
 
         elementIdentifier.appendChild(doc.createTextNode(uuid));
     }
@@ -38,6 +38,7 @@ import javax.xml.namespace.QName;
 
 import org.apache.wss4j.common.bsp.BSPEnforcer;
 import org.apache.wss4j.common.bsp.BSPRule;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.principal.WSUsernameTokenPrincipalImpl;
@@ -656,6 +657,20 @@ public class UsernameToken {
      * @throws WSSecurityException
      */
     public byte[] getDerivedKey(BSPEnforcer bspEnforcer) throws WSSecurityException {
+        return getDerivedKey(bspEnforcer, null);
+    }
+
+    /**
+     * This method gets a derived key as defined in WSS Username Token Profile.
+     *
+     * @param bspEnforcer The BSPEnforcer
+     * @param derivedKeyCache The cache of derived keys, or null to derive the key
+     * @return Returns the derived key as a byte array
+     * @throws WSSecurityException
+     */
+    public byte[] getDerivedKey(
+        BSPEnforcer bspEnforcer, DerivedKeyCache derivedKeyCache
+    ) throws WSSecurityException {
         if (rawPassword == null) {
             LOG.debug("The raw password was null");
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILED_AUTHENTICATION);
@@ -677,6 +692,13 @@ public class UsernameToken {
 
         int iteration = getIteration();
         byte[] salt = getSalt();
+        if (derivedKeyCache != null) {
+            if (passwordsAreEncoded) {
+                return derivedKeyCache.getDerivedKey(getName(), Base64.getMimeDecoder().decode(rawPassword),
+                                                     salt, iteration);
+            }
+            return derivedKeyCache.getDerivedKey(getName(), rawPassword, salt, iteration);
+        }
         if (passwordsAreEncoded) {
             return UsernameTokenUtil.generateDerivedKey(Base64.getMimeDecoder().decode(rawPassword), salt, iteration);
         } else {
@@ -37,6 +37,7 @@ import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.token.KerberosSecurity;
 import org.apache.wss4j.dom.util.WSSecurityUtil;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 import org.w3c.dom.Element;
 
@@ -90,7 +91,8 @@ public class BinarySecurityTokenProcessor implements Processor {
             credential.setBinarySecurityToken(token);
             credential.setCertificates(certs);
 
-            Credential returnedCredential = validator.validate(credential, data);
+            Credential returnedCredential =
+                InstrumentedValidator.validate(validator, elem.getLocalName(), credential, data);
             result.put(WSSecurityEngineResult.TAG_VALIDATED_TOKEN, Boolean.TRUE);
             result.put(WSSecurityEngineResult.TAG_SECRET, returnedCredential.getSecretKey());
 
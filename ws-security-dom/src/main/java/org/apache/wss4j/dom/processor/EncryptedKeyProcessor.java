@@ -30,6 +30,7 @@ import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.security.spec.MGF1ParameterSpec;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 
@@ -45,13 +46,16 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.apache.wss4j.common.bsp.BSPEnforcer;
 import org.apache.wss4j.common.bsp.BSPRule;
+import org.apache.wss4j.common.cache.UnwrappedKeyCache;
 import org.apache.wss4j.common.crypto.AlgorithmSuite;
 import org.apache.wss4j.common.crypto.AlgorithmSuiteValidator;
 import org.apache.wss4j.common.crypto.CryptoType;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.token.DOMX509IssuerSerial;
 import org.apache.wss4j.common.token.SecurityTokenReference;
+import org.apache.wss4j.common.util.DOM2Writer;
 import org.apache.wss4j.common.util.KeyUtils;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.WSDataRef;
@@ -144,11 +148,40 @@ public class EncryptedKeyProcessor implements Processor {
 
         Element keyInfoChildElement = getKeyInfoChildElement(elem, data);
 
+        // Get the key bytes from CipherValue directly or via an attachment
+        byte[] encryptedEphemeralKey = null;
+        String xopUri = EncryptionUtils.getXOPURIFromCipherValue(xencCipherValue);
+        if (xopUri != null && xopUri.startsWith("cid:")) {
+            encryptedEphemeralKey = WSSecurityUtil.getBytesFromAttachment(xopUri, data);
+        } else {
+            encryptedEphemeralKey = EncryptionUtils.getDecodedBase64EncodedData(xencCipherValue);
+        }
+
         X509Certificate[] certs = null;
         STRParser.REFERENCE_TYPE referenceType = null;
         PublicKey publicKey = null;
+        byte[] decryptedBytes = null;
         boolean symmetricKeyWrap = isSymmetricKeyWrap(encryptedKeyTransportMethod);
-        if (!symmetricKeyWrap) {
+
+        // See if this key was unwrapped before. If so then skip the recipient lookup and the unwrapping
+        UnwrappedKeyCache unwrappedKeyCache = symmetricKeyWrap ? null : data.getUnwrappedKeyCache();
+        String[] cacheParameters = null;
+        if (unwrappedKeyCache != null) {
+            cacheParameters = getCacheParameters(elem, encryptedKeyTransportMethod, keyInfoChildElement);
+            UnwrappedKeyCache.CachedKey cachedKey =
+                unwrappedKeyCache.get(encryptedEphemeralKey, cacheParameters);
+            if (cachedKey != null) {
+                LOG.debug("Using the cached unwrapped key");
+                decryptedBytes = cachedKey.getSecret();
+                certs = cachedKey.getCertificates();
+                publicKey = cachedKey.getPublicKey();
+                if (cachedKey.getReferenceType() != null) {
+                    referenceType = STRParser.REFERENCE_TYPE.valueOf(cachedKey.getReferenceType());
+                }
+            }
+        }
+
+        if (!symmetricKeyWrap && decryptedBytes == null) {
             if (SecurityTokenReference.SECURITY_TOKEN_REFERENCE.equals(keyInfoChildElement.getLocalName())
                 && WSConstants.WSSE_NS.equals(keyInfoChildElement.getNamespaceURI())) {
                 STRParserParameters parameters = new STRParserParameters();
@@ -206,27 +239,22 @@ public class EncryptedKeyProcessor implements Processor {
             );
         }
 
-        byte[] encryptedEphemeralKey = null;
-        byte[] decryptedBytes = null;
         Element refList =
             XMLUtils.getDirectChildElement(elem, "ReferenceList", WSConstants.ENC_NS);
 
-        // Get the key bytes from CipherValue directly or via an attachment
-        String xopUri = EncryptionUtils.getXOPURIFromCipherValue(xencCipherValue);
-        if (xopUri != null && xopUri.startsWith("cid:")) {
-            encryptedEphemeralKey = WSSecurityUtil.getBytesFromAttachment(xopUri, data);
-        } else {
-            encryptedEphemeralKey = EncryptionUtils.getDecodedBase64EncodedData(xencCipherValue);
-        }
-
         if (symmetricKeyWrap) {
             decryptedBytes = getSymmetricDecryptedBytes(data, data.getWsDocInfo(), keyInfoChildElement,
                                                         refList, encryptedEphemeralKey);
-        } else {
+        } else if (decryptedBytes == null) {
             PrivateKey privateKey = getPrivateKey(data, certs, publicKey);
-            decryptedBytes = getAsymmetricDecryptedBytes(data, data.getWsDocInfo(), encryptedKeyTransportMethod,
-                                                         encryptedEphemeralKey, refList,
-                                                         elem, privateKey);
+            decryptedBytes = getAsymmetricDecryptedBytes(data, encryptedKeyTransportMethod,
+                                                         encryptedEphemeralKey, elem, privateKey);
+            if (decryptedBytes == null) {
+                decryptedBytes = getRandomKey(refList, data.getWsDocInfo());
+            } else if (unwrappedKeyCache != null) {
+                unwrappedKeyCache.put(encryptedEphemeralKey, cacheParameters, decryptedBytes, certs, publicKey,
+                                      referenceType == null ? null : referenceType.name());
+            }
         }
 
         List<WSDataRef> dataRefs = decryptDataRefs(refList, data.getWsDocInfo(), decryptedBytes, data);
@@ -291,12 +319,14 @@ public class EncryptedKeyProcessor implements Processor {
                                      data.getCallbackHandler(), encryptedEphemeralKey);
     }
 
+    /**
+     * Unwraps the key with the private key. Returns null if the key can't be unwrapped, so that
+     * the caller falls back to a random key.
+     */
     private static byte[] getAsymmetricDecryptedBytes(
         RequestData data,
-        WSDocInfo wsDocInfo,
         String encryptedKeyTransportMethod,
         byte[] encryptedEphemeralKey,
-        Element refList,
         Element encryptedKeyElement,
         PrivateKey privateKey
     ) throws WSSecurityException {
@@ -357,10 +387,28 @@ public class EncryptedKeyProcessor implements Processor {
         } catch (IllegalStateException ex) {
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILED_CHECK, ex);
         } catch (Exception ex) {
-            return getRandomKey(refList, wsDocInfo);
+            return null;
         }
     }
 
+    /**
+     * The values the unwrapped key and its recipient depend on, apart from the encrypted key bytes
+     */
+    private static String[] getCacheParameters(
+        Element encryptedKeyElement,
+        String encryptedKeyTransportMethod,
+        Element keyInfoChildElement
+    ) throws WSSecurityException {
+        byte[] pSourceBytes = EncryptionUtils.getPSource(encryptedKeyElement);
+        return new String[] {
+            encryptedKeyTransportMethod,
+            EncryptionUtils.getDigestAlgorithm(encryptedKeyElement),
+            EncryptionUtils.getMGFAlgorithm(encryptedKeyElement),
+            pSourceBytes == null ? null : Base64.getEncoder().encodeToString(pSourceBytes),
+            keyInfoChildElement == null ? null : DOM2Writer.nodeToString(keyInfoChildElement),
+        };
+    }
+
     private static boolean isSymmetricKeyWrap(String transportAlgorithm) {
         return XMLCipher.AES_128_KeyWrap.equals(transportAlgorithm)
             || XMLCipher.AES_192_KeyWrap.equals(transportAlgorithm)
@@ -391,14 +439,14 @@ public class EncryptedKeyProcessor implements Processor {
                 size = KeyUtils.getKeyLength(algorithmURI);
             }
             KeyGenerator kgen = KeyGenerator.getInstance(alg);
-            kgen.init(size * 8);
+            kgen.init(size * 8, WSRandom.getSecureRandom());
             SecretKey k = kgen.generateKey();
             return k.getEncoded();
         } catch (Throwable ex) {
             // Fallback to just using AES to avoid attacks on EncryptedData algorithms
             try {
                 KeyGenerator kgen = KeyGenerator.getInstance("AES");
-                kgen.init(128);
+                kgen.init(128, WSRandom.getSecureRandom());
                 SecretKey k = kgen.generateKey();
                 return k.getEncoded();
             } catch (NoSuchAlgorithmException e) {
@@ -601,7 +649,7 @@ public class EncryptedKeyProcessor implements Processor {
 
         return EncryptionUtils.decryptEncryptedData(
             doc, dataRefURI, encryptedDataElement, symmetricKey, symEncAlgo, data.getAttachmentCallbackHandler(),
-            data.getEncryptionSerializer()
+            data.getEncryptionSerializer(), data.getWsDocInfo()
         );
     }
 
@@ -44,11 +44,12 @@ import org.apache.wss4j.common.saml.SamlAssertionWrapper;
 import org.apache.wss4j.common.util.DOM2Writer;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.WSDataRef;
+import org.apache.wss4j.dom.WSDocInfo;
 import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.saml.WSSSAMLKeyInfoProcessor;
-import org.apache.wss4j.dom.util.EncryptionUtils;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 import org.opensaml.xmlsec.signature.KeyInfo;
 import org.opensaml.xmlsec.signature.Signature;
@@ -92,7 +93,7 @@ public class SAMLTokenProcessor implements Processor {
 
         SamlAssertionWrapper samlAssertion = new SamlAssertionWrapper(elem);
         XMLSignature xmlSignature = verifySignatureKeysAndAlgorithms(samlAssertion, data);
-        List<WSDataRef> dataRefs = createDataRefs(elem, samlAssertion, xmlSignature);
+        List<WSDataRef> dataRefs = createDataRefs(elem, samlAssertion, xmlSignature, data.getWsDocInfo());
 
         Credential credential = handleSAMLToken(samlAssertion, data, validator);
         samlAssertion = credential.getSamlAssertion();
@@ -165,7 +166,7 @@ public class SAMLTokenProcessor implements Processor {
         Credential credential = new Credential();
         credential.setSamlAssertion(samlAssertion);
         if (validator != null) {
-            return validator.validate(credential, data);
+            return InstrumentedValidator.validate(validator, WSConstants.ASSERTION_LN, credential, data);
         }
         return credential;
     }
@@ -239,7 +240,7 @@ public class SAMLTokenProcessor implements Processor {
     }
 
     private List<WSDataRef> createDataRefs(
-        Element token, SamlAssertionWrapper samlAssertion, XMLSignature xmlSignature
+        Element token, SamlAssertionWrapper samlAssertion, XMLSignature xmlSignature, WSDocInfo wsDocInfo
     ) {
         if (xmlSignature == null) {
             return null;
@@ -271,7 +272,7 @@ public class SAMLTokenProcessor implements Processor {
                 }
                 ref.setTransformAlgorithms(transformAlgorithms);
 
-                ref.setXpath(EncryptionUtils.getXPath(token));
+                ref.setXpathNode(token, wsDocInfo == null ? null : wsDocInfo.getXPathPrefixes());
                 protectedRefs.add(ref);
             }
         }
@@ -27,6 +27,7 @@ import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.token.SecurityContextToken;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 import org.w3c.dom.Element;
 
@@ -59,7 +60,8 @@ public class SecurityContextTokenProcessor implements Processor {
             Credential credential = new Credential();
             credential.setSecurityContextToken(sct);
 
-            Credential returnedCredential = validator.validate(credential, data);
+            Credential returnedCredential =
+                InstrumentedValidator.validate(validator, elem.getLocalName(), credential, data);
             result.put(WSSecurityEngineResult.TAG_VALIDATED_TOKEN, Boolean.TRUE);
             String tokenId = sct.getID();
             if (!"".equals(tokenId)) {
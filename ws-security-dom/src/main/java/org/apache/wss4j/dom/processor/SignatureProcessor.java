@@ -79,10 +79,10 @@ import org.apache.wss4j.dom.str.SignatureSTRParser;
 import org.apache.wss4j.dom.transform.AttachmentContentSignatureTransform;
 import org.apache.wss4j.dom.transform.STRTransform;
 import org.apache.wss4j.dom.transform.STRTransformUtil;
-import org.apache.wss4j.dom.util.EncryptionUtils;
 import org.apache.wss4j.dom.util.WSSecurityUtil;
 import org.apache.wss4j.dom.util.X509Util;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -163,7 +163,7 @@ public class SignatureProcessor implements Processor {
                     credential.setPublicKey(publicKey);
                     principal = new PublicKeyPrincipalImpl(publicKey);
                     credential.setPrincipal(principal);
-                    credential = validator.validate(credential, data);
+                    credential = InstrumentedValidator.validate(validator, WSConstants.SIG_LN, credential, data);
                 }
             } else {
                 STRParserParameters parameters = new STRParserParameters();
@@ -189,7 +189,7 @@ public class SignatureProcessor implements Processor {
                     credential.setPublicKey(publicKey);
                     credential.setCertificates(certs);
                     credential.setPrincipal(principal);
-                    credential = validator.validate(credential, data);
+                    credential = InstrumentedValidator.validate(validator, WSConstants.SIG_LN, credential, data);
                 }
             }
         }
@@ -574,7 +574,7 @@ public class SignatureProcessor implements Processor {
                 }
                 ref.setTransformAlgorithms(transformAlgorithms);
 
-                ref.setXpath(EncryptionUtils.getXPath(se));
+                ref.setXpathNode(se, wsDocInfo.getXPathPrefixes());
                 protectedRefs.add(ref);
             }
         }
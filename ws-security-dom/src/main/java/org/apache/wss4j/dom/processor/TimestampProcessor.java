@@ -27,6 +27,7 @@ import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.token.Timestamp;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 import org.w3c.dom.Element;
 
@@ -55,7 +56,7 @@ public class TimestampProcessor implements Processor {
 
         Validator validator = data.getValidator(WSConstants.TIMESTAMP);
         if (validator != null) {
-            validator.validate(credential, data);
+            InstrumentedValidator.validate(validator, WSConstants.TIMESTAMP_TOKEN_LN, credential, data);
 
             result.put(WSSecurityEngineResult.TAG_VALIDATED_TOKEN, Boolean.TRUE);
         }
@@ -33,6 +33,7 @@ import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.token.UsernameToken;
 import org.apache.wss4j.dom.validate.Credential;
+import org.apache.wss4j.dom.validate.InstrumentedValidator;
 import org.apache.wss4j.dom.validate.Validator;
 
 public class UsernameTokenProcessor implements Processor {
@@ -68,7 +69,7 @@ public class UsernameTokenProcessor implements Processor {
             action = WSConstants.UT_NOPASSWORD;
             if (token.isDerivedKey()) {
                 token.setRawPassword(data.getCallbackHandler());
-                secretKey = token.getDerivedKey(data.getBSPEnforcer());
+                secretKey = token.getDerivedKey(data.getBSPEnforcer(), data.getDerivedKeyCache());
             }
         }
         WSSecurityEngineResult result = new WSSecurityEngineResult(action, token);
@@ -164,7 +165,7 @@ public class UsernameTokenProcessor implements Processor {
         Credential credential = new Credential();
         credential.setUsernametoken(ut);
         if (validator != null) {
-            return validator.validate(credential, data);
+            return InstrumentedValidator.validate(validator, WSConstants.USERNAME_TOKEN_LN, credential, data);
         }
         return credential;
     }
@@ -148,7 +148,7 @@ public class SecurityTokenRefSTRParser implements STRParser {
                 (UsernameToken)result.get(WSSecurityEngineResult.TAG_USERNAME_TOKEN);
 
             usernameToken.setRawPassword(data.getCallbackHandler());
-            byte[] secretKey = usernameToken.getDerivedKey(data.getBSPEnforcer());
+            byte[] secretKey = usernameToken.getDerivedKey(data.getBSPEnforcer(), data.getDerivedKeyCache());
             parserResult.setSecretKey(secretKey);
         }
 
@@ -56,6 +56,7 @@ import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 public final class EncryptionUtils {
 
@@ -142,6 +143,33 @@ public final class EncryptionUtils {
         CallbackHandler attachmentCallbackHandler,
         Serializer encryptionSerializer
     ) throws WSSecurityException {
+        return decryptEncryptedData(doc, dataRefURI, encData, symmetricKey,
+                                    symEncAlgo, attachmentCallbackHandler, encryptionSerializer, null);
+    }
+
+    /**
+     * Decrypt the EncryptedData argument using a SecretKey.
+     * @param doc The (document) owner of EncryptedData
+     * @param dataRefURI The URI of EncryptedData
+     * @param encData The EncryptedData element
+     * @param symmetricKey The SecretKey with which to decrypt EncryptedData
+     * @param symEncAlgo The symmetric encryption algorithm to use
+     * @param attachmentCallbackHandler The CallbackHandler from which to get attachments
+     * @param encryptionSerializer The Serializer to use, may be null
+     * @param wsDocInfo The WSDocInfo whose xpath memo is used for the returned WSDataRef, may be null
+     * @throws WSSecurityException
+     */
+    public static WSDataRef
+    decryptEncryptedData(
+        Document doc,
+        String dataRefURI,
+        Element encData,
+        SecretKey symmetricKey,
+        String symEncAlgo,
+        CallbackHandler attachmentCallbackHandler,
+        Serializer encryptionSerializer,
+        WSDocInfo wsDocInfo
+    ) throws WSSecurityException {
 
         // See if it is an attachment, and handle that differently
         String typeStr = encData.getAttributeNS(null, "Type");
@@ -163,6 +191,7 @@ public final class EncryptionUtils {
             return decryptAttachment(dataRefURI, uri, encData, symmetricKey, symEncAlgo, attachmentCallbackHandler);
         }
 
+        Map<Node, String> xpathPrefixes = wsDocInfo == null ? null : wsDocInfo.getXPathPrefixes();
         WSDataRef dataRef = new WSDataRef();
         dataRef.setEncryptedElement(encData);
         dataRef.setWsuId(dataRefURI);
@@ -226,10 +255,10 @@ public final class EncryptionUtils {
             soapHeader.replaceChild(decryptedHeader, parent);
 
             dataRef.setProtectedElement((Element)decryptedHeader);
-            dataRef.setXpath(getXPath(decryptedHeader));
+            dataRef.setXpathNode(decryptedHeader, xpathPrefixes);
         } else if (content) {
             dataRef.setProtectedElement(encData);
-            dataRef.setXpath(getXPath(encData));
+            dataRef.setXpathNode(encData, xpathPrefixes);
         } else {
             if (decryptedNode == null) {
                 if (previousSibling == null) {
@@ -241,7 +270,7 @@ public final class EncryptionUtils {
             if (decryptedNode != null && Node.ELEMENT_NODE == decryptedNode.getNodeType()) {
                 dataRef.setProtectedElement((Element)decryptedNode);
             }
-            dataRef.setXpath(getXPath(decryptedNode));
+            dataRef.setXpathNode(decryptedNode, xpathPrefixes);
         }
 
         return dataRef;
@@ -464,40 +493,61 @@ public final class EncryptionUtils {
             return null;
         }
 
-        String result = "";
         if (Node.ELEMENT_NODE == decryptedNode.getNodeType()) {
-            result = decryptedNode.getNodeName();
-            result = prependFullPath(result, decryptedNode.getParentNode());
+            return getXPath(decryptedNode.getParentNode(), decryptedNode.getNodeName(), null);
         } else if (Node.ATTRIBUTE_NODE == decryptedNode.getNodeType()) {
-            result = "@" + decryptedNode.getNodeName();
-            result = prependFullPath(result, ((Attr)decryptedNode).getOwnerElement());
-        } else {
-            return null;
+            return getXPath(((Attr)decryptedNode).getOwnerElement(), "@" + decryptedNode.getNodeName(), null);
         }
-
-        return result;
+        return null;
     }
 
+    /**
+     * Build an absolute xpath from the xpath of the parent node. The xpaths of the ancestors are
+     * memoized in the given map, so that the paths of siblings are built from a shared prefix.
+     *
+     * @param parent the parent of the node, or the owner Element of an Attr node
+     * @param step the name of the node, prefixed with &quot;@&quot; for an Attr node
+     * @param xpathPrefixes the memo of the xpaths of the ancestors, may be null
+     * @return a fully built xpath, or <code>null</code> if the parent is detached from the document
+     */
+    public static String getXPath(Node parent, String step, Map<Node, String> xpathPrefixes) {
+        String prefix = getXPathPrefix(parent, xpathPrefixes);
+        if (prefix == null) {
+            return null;
+        }
+        return prefix + "/" + step;
+    }
 
     /**
-     * Recursively build an absolute xpath (starting with the root &quot;/&quot;)
+     * Get the absolute xpath of the given node, without a trailing &quot;/&quot;. The xpaths of the node
+     * and its ancestors are memoized in the given map.
      *
-     * @param xpath the xpath expression built so far
-     * @param node the current node whose name is to be prepended
-     * @return a fully built xpath
+     * @param node the Element node, or a node whose closest ancestor Element is used
+     * @param xpathPrefixes the memo of the xpaths of the ancestors, may be null
+     * @return the xpath, the empty String for the Document, or <code>null</code> if the node is detached
      */
-    private static String prependFullPath(String xpath, Node node) {
+    public static String getXPathPrefix(Node node, Map<Node, String> xpathPrefixes) {
         if (node == null) {
             // probably a detached node... not really useful
             return null;
-        } else if (Node.ELEMENT_NODE == node.getNodeType()) {
-            xpath = node.getNodeName() + "/" + xpath;
-            return prependFullPath(xpath, node.getParentNode());
         } else if (Node.DOCUMENT_NODE == node.getNodeType()) {
-            return "/" + xpath;
-        } else {
-            return prependFullPath(xpath, node.getParentNode());
+            return "";
+        } else if (Node.ELEMENT_NODE != node.getNodeType()) {
+            return getXPathPrefix(node.getParentNode(), xpathPrefixes);
+        }
+
+        String prefix = xpathPrefixes == null ? null : xpathPrefixes.get(node);
+        if (prefix == null) {
+            String parentPrefix = getXPathPrefix(node.getParentNode(), xpathPrefixes);
+            if (parentPrefix == null) {
+                return null;
+            }
+            prefix = parentPrefix + "/" + node.getNodeName();
+            if (xpathPrefixes != null) {
+                xpathPrefixes.put(node, prefix);
+            }
         }
+        return prefix;
     }
 
     public static String getDigestAlgorithm(Node encBodyData) throws WSSecurityException {
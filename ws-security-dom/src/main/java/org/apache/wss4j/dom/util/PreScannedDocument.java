@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+import org.xml.sax.SAXException;
+
+/**
+ * The result of {@link SecurityHeaderPreScanner#preScan(InputStream)}: a Document which contains the
+ * SOAP Envelope, the complete SOAP Header and those children of the SOAP Body which are referenced from
+ * the Header. Each unreferenced child of the Body is represented by a
+ * <code>&lt;?wss4j-deferred n?&gt;</code> processing instruction, where n is the index of the
+ * serialized fragment. The Document can be passed to
+ * {@link org.apache.wss4j.dom.engine.WSSecurityEngine#processSecurityHeader(Document,
+ * org.apache.wss4j.dom.handler.RequestData)} as usual.
+ *
+ * The deferred fragments can either be streamed as they are, or parsed into the Document with
+ * {@link #expand()} once (and only if) the application needs them.
+ */
+public class PreScannedDocument {
+
+    public static final String PLACEHOLDER = "wss4j-deferred";
+
+    private final Document document;
+    private final List<byte[]> fragments;
+    private boolean expanded;
+
+    PreScannedDocument(Document document, List<byte[]> fragments) {
+        this.document = document;
+        this.fragments = fragments;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the count of the children of the SOAP Body which were not built
+     */
+    public int getDeferredFragmentCount() {
+        return fragments.size();
+    }
+
+    /**
+     * @param index the index of the fragment, as given by its placeholder
+     * @return the serialized fragment, UTF-8 encoded and with all namespaces in scope declared on its root
+     */
+    public InputStream getDeferredFragment(int index) {
+        return new ByteArrayInputStream(fragments.get(index));
+    }
+
+    /**
+     * Parse the deferred fragments and replace their placeholders in the Document.
+     *
+     * @throws WSSecurityException if a fragment can't be parsed
+     */
+    public synchronized void expand() throws WSSecurityException {
+        if (expanded) {
+            return;
+        }
+        // The placeholders are direct children of the Body
+        List<ProcessingInstruction> placeholders = new ArrayList<>(fragments.size());
+        Element body = WSSecurityUtil.findBodyElement(document);
+        for (Node child = body == null ? null : body.getFirstChild(); child != null;
+            child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.PROCESSING_INSTRUCTION_NODE
+                && PLACEHOLDER.equals(((ProcessingInstruction)child).getTarget())) {
+                placeholders.add((ProcessingInstruction)child);
+            }
+        }
+
+        DocumentBuilder documentBuilder = null;
+        try {
+            documentBuilder = org.apache.xml.security.utils.XMLUtils.createDocumentBuilder(false);
+            for (ProcessingInstruction placeholder : placeholders) {
+                byte[] fragment = fragments.get(Integer.parseInt(placeholder.getData().trim()));
+                Document parsed = documentBuilder.parse(new ByteArrayInputStream(fragment));
+                Node node = document.importNode(parsed.getDocumentElement(), true);
+                placeholder.getParentNode().replaceChild(node, placeholder);
+            }
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
+        } finally {
+            if (documentBuilder != null) {
+                org.apache.xml.security.utils.XMLUtils.repoolDocumentBuilder(documentBuilder);
+            }
+        }
+        fragments.clear();
+        expanded = true;
+    }
+
+}
@@ -0,0 +1,415 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.XMLUtils;
+import org.apache.wss4j.dom.WSConstants;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Builds a DOM for the inbound security processing from a stream, without building the parts of the
+ * SOAP Body which are not referenced from the SOAP Header. The Envelope and the Header are always built
+ * completely. A child of the Body is built only if it, or one of its descendants, carries an Id which
+ * is referenced by an URI in the Header (e.g. by a ds:Reference or a xenc:DataReference). Every other
+ * child of the Body is kept as a serialized fragment and is replaced in the DOM by a placeholder, see
+ * {@link PreScannedDocument}.
+ *
+ * If the Header references the whole document, the Envelope or the Body, everything is built. The same
+ * applies if the Header contains encrypted content (a xenc:EncryptedData or a wsse11:EncryptedHeader), as
+ * the references of e.g. an encrypted ds:Signature are only known after decryption, or if a referenced Id
+ * is not found in the built parts of the document.
+ */
+public final class SecurityHeaderPreScanner {
+
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(SecurityHeaderPreScanner.class);
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private SecurityHeaderPreScanner() {
+        // complete
+    }
+
+    /**
+     * Pre-scan a SOAP message.
+     *
+     * @param inputStream the SOAP message, which is not closed by this method
+     * @return the partially built document
+     * @throws WSSecurityException if the message can't be parsed
+     */
+    public static PreScannedDocument preScan(InputStream inputStream) throws WSSecurityException {
+        DocumentBuilder documentBuilder = null;
+        XMLStreamReader reader = null;
+        try {
+            documentBuilder = org.apache.xml.security.utils.XMLUtils.createDocumentBuilder(false);
+            Document document = documentBuilder.newDocument();
+            List<byte[]> fragments = new ArrayList<>();
+
+            reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+            Node current = document;
+            int depth = 0;
+            Set<String> referencedIds = null;
+            boolean deferBody = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 3 && deferBody && isBody(current)) {
+                        ByteArrayOutputStream fragment = new ByteArrayOutputStream();
+                        if (writeFragment(reader, (Element)current, referencedIds, fragment)) {
+                            Document parsed =
+                                documentBuilder.parse(new ByteArrayInputStream(fragment.toByteArray()));
+                            current.appendChild(document.importNode(parsed.getDocumentElement(), true));
+                        } else {
+                            current.appendChild(document.createProcessingInstruction(
+                                PreScannedDocument.PLACEHOLDER, String.valueOf(fragments.size())));
+                            fragments.add(fragment.toByteArray());
+                        }
+                        depth--;
+                        continue;
+                    }
+                    Element element = createElement(document, reader);
+                    current.appendChild(element);
+                    current = element;
+                    if (depth == 2 && referencedIds == null && isBody(element)) {
+                        referencedIds = getReferencedIds(document.getDocumentElement());
+                        deferBody = referencedIds != null && !hasId(element, referencedIds)
+                            && !hasId(document.getDocumentElement(), referencedIds);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    current = current.getParentNode();
+                } else if (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.SPACE) {
+                    if (current != document) {
+                        current.appendChild(document.createTextNode(reader.getText()));
+                    }
+                } else if (event == XMLStreamConstants.CDATA) {
+                    current.appendChild(document.createCDATASection(reader.getText()));
+                } else if (event == XMLStreamConstants.COMMENT) {
+                    current.appendChild(document.createComment(reader.getText()));
+                } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                    current.appendChild(
+                        document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                }
+            }
+            PreScannedDocument preScanned = new PreScannedDocument(document, fragments);
+            if (!fragments.isEmpty() && !isResolved(document.getDocumentElement(), referencedIds)) {
+                LOG.debug("Not every referenced Id was found, building the complete SOAP Body");
+                preScanned.expand();
+            }
+            LOG.debug("Deferred {} fragments of the SOAP Body", preScanned.getDeferredFragmentCount());
+            return preScanned;
+        } catch (XMLStreamException | ParserConfigurationException | SAXException | IOException e) {
+            throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    LOG.debug(e.getMessage(), e);
+                }
+            }
+            if (documentBuilder != null) {
+                org.apache.xml.security.utils.XMLUtils.repoolDocumentBuilder(documentBuilder);
+            }
+        }
+    }
+
+    private static boolean isBody(Node node) {
+        return node instanceof Element && WSConstants.ELEM_BODY.equals(node.getLocalName())
+            && (WSConstants.URI_SOAP11_ENV.equals(node.getNamespaceURI())
+                || WSConstants.URI_SOAP12_ENV.equals(node.getNamespaceURI()));
+    }
+
+    /**
+     * Collect the local references of every URI attribute below the Header. Returns null
+     * if the Header references something which can't be resolved to an Id, e.g. the whole document,
+     * or if it contains encrypted content, whose references are not known before decryption.
+     */
+    private static Set<String> getReferencedIds(Element envelope) {
+        Set<String> referencedIds = new HashSet<>();
+        Node node = envelope.getFirstChild();
+        while (node != null && !(node instanceof Element)) {
+            node = node.getNextSibling();
+        }
+        if (node == null || !WSConstants.ELEM_HEADER.equals(node.getLocalName())) {
+            return referencedIds;
+        }
+        Node header = node;
+        while (node != null) {
+            if (isEncrypted(node)) {
+                return null;
+            }
+            if (node instanceof Element && ((Element)node).hasAttributeNS(null, "URI")) {
+                String uri = ((Element)node).getAttributeNS(null, "URI").trim();
+                if ("".equals(uri)) {
+                    return null;
+                } else if (uri.startsWith("#xpointer(")) {
+                    if (!uri.startsWith("#xpointer(id(") || !uri.endsWith("))")) {
+                        return null;
+                    }
+                    referencedIds.add(uri.substring(14, uri.length() - 3));
+                } else if (uri.charAt(0) == '#') {
+                    referencedIds.add(XMLUtils.getIDFromReference(uri));
+                }
+            }
+            // depth-first walk of the Header subtree
+            Node next = node.getFirstChild();
+            while (next == null && node != header) {
+                next = node.getNextSibling();
+                if (next == null) {
+                    node = node.getParentNode();
+                }
+            }
+            node = next;
+        }
+        return referencedIds;
+    }
+
+    private static boolean isEncrypted(Node node) {
+        if (!(node instanceof Element)) {
+            return false;
+        }
+        if (WSConstants.ENC_NS.equals(node.getNamespaceURI())) {
+            return WSConstants.ENC_DATA_LN.equals(node.getLocalName());
+        }
+        return WSConstants.WSSE11_NS.equals(node.getNamespaceURI())
+            && WSConstants.ENCRYPTED_HEADER.equals(node.getLocalName());
+    }
+
+    /**
+     * Check that every referenced Id is carried by an element which has been built.
+     */
+    private static boolean isResolved(Element envelope, Set<String> referencedIds) {
+        Set<String> unresolvedIds = new HashSet<>(referencedIds);
+        Node node = envelope;
+        while (node != null && !unresolvedIds.isEmpty()) {
+            if (node instanceof Element) {
+                NamedNodeMap attributes = node.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    Attr attr = (Attr)attributes.item(i);
+                    if (isIdAttribute(attr.getNamespaceURI(), attr.getLocalName())) {
+                        unresolvedIds.remove(attr.getValue());
+                    }
+                }
+            }
+            Node next = node.getFirstChild();
+            while (next == null && node != envelope) {
+                next = node.getNextSibling();
+                if (next == null) {
+                    node = node.getParentNode();
+                }
+            }
+            node = next;
+        }
+        return unresolvedIds.isEmpty();
+    }
+
+    private static boolean hasId(Element element, Set<String> referencedIds) {
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attr = (Attr)attributes.item(i);
+            if (isIdAttribute(attr.getNamespaceURI(), attr.getLocalName())
+                && referencedIds.contains(attr.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasId(XMLStreamReader reader, Set<String> referencedIds) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (isIdAttribute(reader.getAttributeNamespace(i), reader.getAttributeLocalName(i))
+                && referencedIds.contains(reader.getAttributeValue(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdAttribute(String namespace, String localName) {
+        if (namespace == null || "".equals(namespace)) {
+            return "Id".equals(localName) || "ID".equals(localName) || "AssertionID".equals(localName);
+        }
+        return WSConstants.WSU_NS.equals(namespace) && "Id".equals(localName);
+    }
+
+    private static Element createElement(Document document, XMLStreamReader reader) {
+        Element element = document.createElementNS(
+            emptyToNull(reader.getNamespaceURI()), getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            String uri = reader.getNamespaceURI(i) == null ? "" : reader.getNamespaceURI(i);
+            if (prefix == null || "".equals(prefix)) {
+                element.setAttributeNS(WSConstants.XMLNS_NS, "xmlns", uri);
+            } else {
+                element.setAttributeNS(WSConstants.XMLNS_NS, "xmlns:" + prefix, uri);
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(
+                emptyToNull(reader.getAttributeNamespace(i)),
+                getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                reader.getAttributeValue(i)
+            );
+        }
+        return element;
+    }
+
+    /**
+     * Serialize the subtree the reader is positioned on, including the namespace declarations
+     * which are in scope from the ancestors. Returns whether the subtree carries a referenced Id.
+     */
+    private static boolean writeFragment(
+        XMLStreamReader reader, Element parent, Set<String> referencedIds, ByteArrayOutputStream out
+    ) throws XMLStreamException {
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        boolean referenced = false;
+        int depth = 0;
+        do {
+            switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                referenced |= hasId(reader, referencedIds);
+                writer.writeStartElement(nullToEmpty(reader.getPrefix()), reader.getLocalName(),
+                                         nullToEmpty(reader.getNamespaceURI()));
+                Set<String> declaredPrefixes = new HashSet<>();
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = nullToEmpty(reader.getNamespacePrefix(i));
+                    declaredPrefixes.add(prefix);
+                    writeNamespace(writer, prefix, nullToEmpty(reader.getNamespaceURI(i)));
+                }
+                if (depth == 0) {
+                    writeInScopeNamespaces(writer, parent, declaredPrefixes);
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String namespace = reader.getAttributeNamespace(i);
+                    if (namespace == null || "".equals(namespace)) {
+                        writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    } else {
+                        writer.writeAttribute(reader.getAttributePrefix(i), namespace,
+                                              reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    }
+                }
+                depth++;
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                writer.writeEndElement();
+                depth--;
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(),
+                                       reader.getTextLength());
+                break;
+            case XMLStreamConstants.CDATA:
+                writer.writeCData(reader.getText());
+                break;
+            case XMLStreamConstants.COMMENT:
+                writer.writeComment(reader.getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                break;
+            default:
+                break;
+            }
+            if (depth > 0) {
+                reader.next();
+            }
+        } while (depth > 0);
+        writer.close();
+        return referenced;
+    }
+
+    private static void writeInScopeNamespaces(
+        XMLStreamWriter writer, Element parent, Set<String> declaredPrefixes
+    ) throws XMLStreamException {
+        for (Node node = parent; node instanceof Element; node = node.getParentNode()) {
+            NamedNodeMap attributes = node.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Attr attr = (Attr)attributes.item(i);
+                if (WSConstants.XMLNS_NS.equals(attr.getNamespaceURI())) {
+                    String prefix = "xmlns".equals(attr.getName()) ? "" : attr.getLocalName();
+                    if (declaredPrefixes.add(prefix)) {
+                        writeNamespace(writer, prefix, attr.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeNamespace(XMLStreamWriter writer, String prefix, String uri)
+        throws XMLStreamException {
+        if ("".equals(prefix)) {
+            writer.writeDefaultNamespace(uri);
+        } else {
+            writer.writeNamespace(prefix, uri);
+        }
+    }
+
+    private static String getQualifiedName(String prefix, String localName) {
+        if (prefix == null || "".equals(prefix)) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || "".equals(value) ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+}
@@ -30,11 +30,11 @@ import org.apache.wss4j.common.ext.Attachment;
 import org.apache.wss4j.common.ext.AttachmentRequestCallback;
 import org.apache.wss4j.common.ext.AttachmentResultCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.dom.handler.HandlerAction;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.handler.WSHandlerConstants;
-import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.utils.JavaUtils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -574,15 +574,14 @@ public final class WSSecurityUtil {
     }
 
     /**
-     * Generate a nonce of the given length using the SHA1PRNG algorithm. The SecureRandom
-     * instance that backs this method is cached for efficiency.
+     * Generate a nonce of the given length using the WSRandomSource installed in WSRandom.
      *
      * @return a nonce of the given length
      * @throws WSSecurityException
      */
     public static byte[] generateNonce(int length) throws WSSecurityException {
         try {
-            return XMLSecurityConstants.generateBytes(length);
+            return WSRandom.generateBytes(length);
         } catch (Exception ex) {
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex,
                     "empty", new Object[] {"Error in generating nonce of length " + length}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.dom.validate;
+
+import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
+import org.apache.wss4j.dom.handler.RequestData;
+
+/**
+ * This class wraps a Validator to report the time spent validating to a SecurityInstrumentation.
+ * The Processors don't wrap the Validator returned by RequestData.getValidator, but call the static
+ * validate method instead, so that the configured Validator instance is the one that is used.
+ */
+public class InstrumentedValidator implements Validator {
+
+    private final Validator delegate;
+    private final String name;
+    private final SecurityInstrumentation instrumentation;
+
+    public InstrumentedValidator(Validator delegate, String name, SecurityInstrumentation instrumentation) {
+        this.delegate = delegate;
+        this.name = name;
+        this.instrumentation = instrumentation;
+    }
+
+    public Credential validate(Credential credential, RequestData data) throws WSSecurityException {
+        return validate(delegate, name, credential, data, instrumentation);
+    }
+
+    /**
+     * Validate the Credential with the given Validator, and report the time spent to the
+     * SecurityInstrumentation of the RequestData, if it is enabled.
+     * @param validator the Validator
+     * @param name the name to report, i.e. the local name of the token
+     * @param credential the Credential to validate
+     * @param data the RequestData
+     * @return the Credential returned by the Validator
+     * @throws WSSecurityException on a failed validation
+     */
+    public static Credential validate(
+        Validator validator, String name, Credential credential, RequestData data
+    ) throws WSSecurityException {
+        return validate(validator, name, credential, data, data.getInstrumentation());
+    }
+
+    private static Credential validate(
+        Validator validator, String name, Credential credential, RequestData data,
+        SecurityInstrumentation instrumentation
+    ) throws WSSecurityException {
+        SecurityTimer timer = SecurityTimer.start(instrumentation, SecurityStage.VALIDATOR, name);
+        boolean success = false;
+        try {
+            Credential validatedCredential = validator.validate(credential, data);
+            success = true;
+            return validatedCredential;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
+    }
+
+    /**
+     * @return the wrapped Validator
+     */
+    public Validator getDelegate() {
+        return delegate;
+    }
+
+}
@@ -26,6 +26,7 @@ import javax.security.auth.login.LoginException;
 
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.common.NamePasswordCallbackHandler;
+import org.apache.wss4j.common.cache.AuthenticationCache;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.dom.handler.RequestData;
 import org.apache.wss4j.dom.message.token.UsernameToken;
@@ -42,6 +43,7 @@ public class JAASUsernameTokenValidator implements Validator {
         org.slf4j.LoggerFactory.getLogger(JAASUsernameTokenValidator.class);
 
     private String contextName;
+    private AuthenticationCache authenticationCache;
 
     public void setContextName(String name) {
         contextName = name;
@@ -51,6 +53,19 @@ public class JAASUsernameTokenValidator implements Validator {
         return contextName;
     }
 
+    public AuthenticationCache getAuthenticationCache() {
+        return authenticationCache;
+    }
+
+    /**
+     * Set an AuthenticationCache to cache successful JAAS logins. The default is null,
+     * meaning that a JAAS login is performed for every UsernameToken. The cache can be
+     * shared with other JAAS UsernameToken validators.
+     */
+    public void setAuthenticationCache(AuthenticationCache authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
+
     /**
      * Validate the credential argument. It must contain a non-null UsernameToken. A
      * CallbackHandler implementation is also required to be set.
@@ -97,12 +112,24 @@ public class JAASUsernameTokenValidator implements Validator {
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILED_AUTHENTICATION);
         }
 
+        if (authenticationCache != null) {
+            Subject subject = authenticationCache.get(getContextName(), user, password);
+            if (subject != null) {
+                LOG.debug("Using the cached authentication of user {}", user);
+                credential.setSubject(subject);
+                return credential;
+            }
+        }
+
         try {
             CallbackHandler handler = getCallbackHandler(user, password);
             LoginContext ctx = new LoginContext(getContextName(), handler);
             ctx.login();
             Subject subject = ctx.getSubject();
             credential.setSubject(subject);
+            if (authenticationCache != null) {
+                authenticationCache.put(getContextName(), user, password, subject);
+            }
 
         } catch (LoginException ex) {
             LOG.info("Authentication failed", ex);
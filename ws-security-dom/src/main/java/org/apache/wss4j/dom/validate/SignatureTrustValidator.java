@@ -26,6 +26,8 @@ import java.util.regex.Pattern;
 
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.dom.handler.RequestData;
 
 /**
@@ -106,7 +108,15 @@ public class SignatureTrustValidator implements Validator {
         //
         Collection<Pattern> subjectCertConstraints = data.getSubjectCertConstraints();
         Collection<Pattern> issuerCertConstraints = data.getIssuerDNPatterns();
-        crypto.verifyTrust(certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
+        SecurityTimer timer = SecurityTimer.start(
+            data.getInstrumentation(), SecurityStage.VERIFY_TRUST, certificates[0].getSigAlgName());
+        boolean success = false;
+        try {
+            crypto.verifyTrust(certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
         String subjectString = certificates[0].getSubjectX500Principal().getName();
         LOG.debug(
             "Certificate path has been verified for certificate with subject {}", subjectString
@@ -126,4 +126,42 @@ public class CallbackRefTest extends org.junit.Assert {
         assertTrue(outputString.contains("securityPassword"));
     }
 
+    /**
+     * A CallbackHandler class that is configured as a handler option is only instantiated once,
+     * if the handler decodes its options once
+     */
+    @Test
+    public void
+    testHandlerOptionClass() throws Exception {
+        CustomHandler handler = new CustomHandler();
+        handler.setOption(
+            WSHandlerConstants.PW_CALLBACK_CLASS, UsernamePasswordCallbackHandler.class.getName()
+        );
+
+        // By default the options are decoded for every message
+        RequestData reqData = new RequestData();
+        reqData.setMsgContext(new java.util.TreeMap<String, String>());
+        CallbackHandler firstHandler = handler.getPasswordCallbackHandler(reqData);
+        assertTrue(firstHandler instanceof UsernamePasswordCallbackHandler);
+        assertNotSame(firstHandler, handler.getPasswordCallbackHandler(reqData));
+        handler.setOption(WSHandlerConstants.MUST_UNDERSTAND, "false");
+        assertNull(handler.getCompiledConfig().getBooleanOption(WSHandlerConstants.MUST_UNDERSTAND));
+        assertFalse(handler.decodeBooleanConfigValue(reqData.getMsgContext(), WSHandlerConstants.MUST_UNDERSTAND, true));
+        handler.setOption(WSHandlerConstants.MUST_UNDERSTAND, "true");
+        assertTrue(handler.decodeBooleanConfigValue(reqData.getMsgContext(), WSHandlerConstants.MUST_UNDERSTAND, true));
+
+        handler.setCompileOptions(true);
+        firstHandler = handler.getPasswordCallbackHandler(reqData);
+        reqData = new RequestData();
+        reqData.setMsgContext(new java.util.TreeMap<String, String>());
+        assertSame(firstHandler, handler.getPasswordCallbackHandler(reqData));
+        assertEquals(Boolean.TRUE, handler.getCompiledConfig().getBooleanOption(WSHandlerConstants.MUST_UNDERSTAND));
+
+        // The compiled configuration must be discarded when the options change
+        handler.setOption(WSHandlerConstants.MUST_UNDERSTAND, "false");
+        handler.resetCompiledConfig();
+        assertEquals(Boolean.FALSE, handler.getCompiledConfig().getBooleanOption(WSHandlerConstants.MUST_UNDERSTAND));
+        assertNotSame(firstHandler, handler.getPasswordCallbackHandler(reqData));
+    }
+
 }
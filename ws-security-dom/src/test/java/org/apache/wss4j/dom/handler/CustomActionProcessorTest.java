@@ -34,6 +34,7 @@ import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.dom.message.WSSecSignature;
 import org.apache.wss4j.dom.message.WSSecHeader;
+import org.apache.wss4j.dom.processor.Processor;
 import org.apache.wss4j.dom.util.WSSecurityUtil;
 import org.junit.Test;
 import org.w3c.dom.Document;
@@ -268,4 +269,24 @@ public class CustomActionProcessorTest extends org.junit.Assert {
         }
     }
 
+    /**
+     * Test that the default processors are shared, and that a custom processor class
+     * replaces the default processor and is still instantiated per lookup
+     */
+    @Test
+    public void
+    testProcessorLookup() throws Exception {
+        WSSConfig cfg = WSSConfig.getNewInstance();
+        Processor processor = cfg.getProcessor(WSConstants.SIG_NS, WSConstants.SIG_LN);
+        assertNotNull(processor);
+        assertSame(processor, cfg.getProcessor(WSConstants.SIGNATURE));
+        assertNull(cfg.getProcessor(WSConstants.SIG_NS, "Unknown"));
+        assertNull(cfg.getProcessor("urn:unknown", WSConstants.SIG_LN));
+
+        cfg.setProcessor(WSConstants.SIGNATURE, CustomProcessor.class);
+        processor = cfg.getProcessor(WSConstants.SIG_NS, WSConstants.SIG_LN);
+        assertTrue(processor instanceof CustomProcessor);
+        assertNotSame(processor, cfg.getProcessor(WSConstants.SIGNATURE));
+    }
+
 }
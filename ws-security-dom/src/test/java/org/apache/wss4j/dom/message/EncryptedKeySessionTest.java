@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.message;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.UnsupportedCallbackException;
+
+import org.apache.wss4j.common.cache.UnwrappedKeyCache;
+import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
+import org.apache.wss4j.common.util.XMLUtils;
+import org.apache.wss4j.dom.WSConstants;
+import org.apache.wss4j.dom.common.KeystoreCallbackHandler;
+import org.apache.wss4j.dom.common.SOAPUtil;
+import org.apache.wss4j.dom.common.SecurityTestUtil;
+import org.apache.wss4j.dom.engine.WSSConfig;
+import org.apache.wss4j.dom.engine.WSSecurityEngine;
+import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
+import org.apache.wss4j.dom.handler.RequestData;
+import org.apache.wss4j.dom.handler.WSHandlerResult;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Some tests for reusing outbound EncryptedKeys with an EncryptedKeySession, and for
+ * reusing inbound unwrapped keys with an UnwrappedKeyCache.
+ */
+public class EncryptedKeySessionTest extends org.junit.Assert {
+
+    private WSSecurityEngine secEngine = new WSSecurityEngine();
+    private CallbackHandler keystoreCallbackHandler = new KeystoreCallbackHandler();
+    private Crypto crypto;
+
+    @org.junit.AfterClass
+    public static void cleanup() throws Exception {
+        SecurityTestUtil.cleanup();
+    }
+
+    public EncryptedKeySessionTest() throws Exception {
+        crypto = CryptoFactory.getInstance("wss40.properties");
+        WSSConfig.init();
+    }
+
+    @Test
+    public void testReuseEncryptedKey() throws Exception {
+        EncryptedKeySession session = new EncryptedKeySession(2, 300L);
+
+        String first = encrypt(session);
+        String second = encrypt(session);
+        String third = encrypt(session);
+
+        // The second message reuses the wrapped key of the first one
+        assertEquals(first, second);
+
+        // The key is rotated after two messages
+        assertNotEquals(first, third);
+    }
+
+    @Test
+    public void testRotate() throws Exception {
+        EncryptedKeySession session = new EncryptedKeySession();
+
+        String first = encrypt(session);
+        session.rotate();
+        String second = encrypt(session);
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void testDifferentAlgorithms() throws Exception {
+        EncryptedKeySession session = new EncryptedKeySession();
+
+        String first = encrypt(session);
+
+        Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecEncrypt builder = new WSSecEncrypt(secHeader);
+        builder.setUserInfo("wss40");
+        builder.setSymmetricEncAlgorithm(WSConstants.AES_256);
+        builder.setEncryptedKeySession(session);
+        Document encryptedDoc = builder.build(crypto);
+
+        assertNotEquals(first, getEncryptedKeyCipherValue(encryptedDoc));
+    }
+
+    @Test
+    public void testUnwrappedKeyCache() throws Exception {
+        EncryptedKeySession session = new EncryptedKeySession();
+        UnwrappedKeyCache cache = new UnwrappedKeyCache();
+        final AtomicInteger callbacks = new AtomicInteger();
+        CallbackHandler countingCallbackHandler = new CallbackHandler() {
+            @Override
+            public void handle(Callback[] callbacksToHandle) throws IOException, UnsupportedCallbackException {
+                callbacks.incrementAndGet();
+                keystoreCallbackHandler.handle(callbacksToHandle);
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+            WSSecHeader secHeader = new WSSecHeader(doc);
+            secHeader.insertSecurityHeader();
+
+            WSSecEncrypt builder = new WSSecEncrypt(secHeader);
+            builder.setUserInfo("wss40");
+            builder.setEncryptedKeySession(session);
+            Document encryptedDoc = builder.build(crypto);
+
+            RequestData data = new RequestData();
+            data.setDecCrypto(crypto);
+            data.setCallbackHandler(countingCallbackHandler);
+            data.setUnwrappedKeyCache(cache);
+            WSHandlerResult results = secEngine.processSecurityHeader(encryptedDoc, data);
+
+            String outputString = XMLUtils.prettyDocumentToString(encryptedDoc);
+            assertTrue(outputString.contains("counter_port_type"));
+            WSSecurityEngineResult result =
+                results.getActionResults().get(WSConstants.ENCR).get(0);
+            assertNotNull(result.get(WSSecurityEngineResult.TAG_X509_CERTIFICATES));
+        }
+
+        // The private key is only retrieved (and used) for the first message
+        assertEquals(1, callbacks.get());
+        cache.close();
+    }
+
+    /**
+     * Encrypt a message with the given session and return the CipherValue of its EncryptedKey
+     */
+    private String encrypt(EncryptedKeySession session) throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecEncrypt builder = new WSSecEncrypt(secHeader);
+        builder.setUserInfo("wss40");
+        builder.setKeyIdentifierType(WSConstants.BST_DIRECT_REFERENCE);
+        builder.setEncryptedKeySession(session);
+        Document encryptedDoc = builder.build(crypto);
+        String cipherValue = getEncryptedKeyCipherValue(encryptedDoc);
+
+        String outputString = XMLUtils.prettyDocumentToString(encryptedDoc);
+        assertFalse(outputString.contains("counter_port_type"));
+
+        secEngine.processSecurityHeader(encryptedDoc, null, keystoreCallbackHandler, crypto);
+        outputString = XMLUtils.prettyDocumentToString(encryptedDoc);
+        assertTrue(outputString.contains("counter_port_type"));
+        return cipherValue;
+    }
+
+    private static String getEncryptedKeyCipherValue(Document doc) {
+        Element encryptedKey =
+            (Element) doc.getElementsByTagNameNS(WSConstants.ENC_NS, "EncryptedKey").item(0);
+        assertNotNull(encryptedKey);
+        return encryptedKey.getElementsByTagNameNS(WSConstants.ENC_NS, "CipherValue").item(0).getTextContent();
+    }
+
+}
@@ -297,6 +297,52 @@ public class EncryptionPartsTest extends org.junit.Assert {
         assertEquals("/soapenv:Envelope/soapenv:Header/foo:foobar", xpath);
     }
 
+    /**
+     * Test signing the EncryptedData of a wsse11:EncryptedHeader. The EncryptedHeader is replaced when
+     * it is decrypted after the signature is verified, which must not affect the xpath of the signed element.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSignedSOAPEncryptedHeader() throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPMSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecEncrypt encrypt = new WSSecEncrypt(secHeader);
+        encrypt.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e", "security");
+        encrypt.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        encrypt.getParts().add(new WSEncryptionPart("foobar", "urn:foo.bar", "Header"));
+        Document encryptedDoc = encrypt.build(crypto);
+
+        Element encryptedData =
+            (Element)encryptedDoc.getElementsByTagNameNS(WSConstants.ENC_NS, "EncryptedData").item(0);
+        WSSecSignature sign = new WSSecSignature(secHeader);
+        sign.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e", "security");
+        sign.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        sign.getParts().add(new WSEncryptionPart(encryptedData.getAttributeNS(null, "Id")));
+        Document signedDoc = sign.build(crypto);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(XMLUtils.prettyDocumentToString(signedDoc));
+        }
+
+        WSHandlerResult results =
+            secEngine.processSecurityHeader(signedDoc, null, callbackHandler, crypto, crypto);
+
+        WSSecurityEngineResult actionResult =
+            results.getActionResults().get(WSConstants.SIGN).get(0);
+        final List<WSDataRef> refs =
+            (List<WSDataRef>) actionResult.get(WSSecurityEngineResult.TAG_DATA_REF_URIS);
+        assertEquals(1, refs.size());
+        assertEquals("/soapenv:Envelope/soapenv:Header/wsse11:EncryptedHeader/xenc:EncryptedData",
+                     refs.get(0).getXpath());
+
+        actionResult = results.getActionResults().get(WSConstants.ENCR).get(0);
+        List<WSDataRef> encryptionRefs =
+            (List<WSDataRef>) actionResult.get(WSSecurityEngineResult.TAG_DATA_REF_URIS);
+        assertEquals("/soapenv:Envelope/soapenv:Header/foo:foobar", encryptionRefs.get(0).getXpath());
+    }
+
     /**
      * Test encrypting a custom SOAP header using wsse11:EncryptedHeader
      */
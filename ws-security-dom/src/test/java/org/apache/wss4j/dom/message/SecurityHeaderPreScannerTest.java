@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.message;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.wss4j.common.WSEncryptionPart;
+import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.util.XMLUtils;
+import org.apache.wss4j.dom.WSConstants;
+import org.apache.wss4j.dom.common.KeystoreCallbackHandler;
+import org.apache.wss4j.dom.common.SOAPUtil;
+import org.apache.wss4j.dom.common.SecurityTestUtil;
+import org.apache.wss4j.dom.engine.WSSConfig;
+import org.apache.wss4j.dom.engine.WSSecurityEngine;
+import org.apache.wss4j.dom.handler.WSHandlerResult;
+import org.apache.wss4j.dom.util.PreScannedDocument;
+import org.apache.wss4j.dom.util.SecurityHeaderPreScanner;
+import org.apache.wss4j.dom.util.WSSecurityUtil;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Tests for building the DOM of an inbound message from a stream, without the unreferenced
+ * children of the SOAP Body.
+ */
+public class SecurityHeaderPreScannerTest extends org.junit.Assert {
+    private static final org.slf4j.Logger LOG =
+        org.slf4j.LoggerFactory.getLogger(SecurityHeaderPreScannerTest.class);
+    private static final String SOAPMSG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<soapenv:Envelope xmlns:foo=\"urn:foo.bar\" xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "   <soapenv:Header>" +
+            "       <foo:foobar>baz</foo:foobar>" +
+            "   </soapenv:Header>" +
+            "   <soapenv:Body>" +
+            "      <foo:first>asf1</foo:first>" +
+            "      <foo:second><foo:nested>asf2</foo:nested></foo:second>" +
+            "   </soapenv:Body>" +
+            "</soapenv:Envelope>";
+
+    private WSSecurityEngine secEngine = new WSSecurityEngine();
+    private Crypto crypto;
+
+    @org.junit.AfterClass
+    public static void cleanup() throws Exception {
+        SecurityTestUtil.cleanup();
+    }
+
+    public SecurityHeaderPreScannerTest() throws Exception {
+        WSSConfig.init();
+        crypto = CryptoFactory.getInstance();
+    }
+
+    /**
+     * Only the SOAP header is signed, so nothing of the SOAP Body is built.
+     */
+    @Test
+    public void testSignedHeader() throws Exception {
+        byte[] message = sign(new WSEncryptionPart("foobar", "urn:foo.bar", ""));
+
+        PreScannedDocument preScanned =
+            SecurityHeaderPreScanner.preScan(new ByteArrayInputStream(message));
+        assertEquals(2, preScanned.getDeferredFragmentCount());
+        Element body = WSSecurityUtil.findBodyElement(preScanned.getDocument());
+        assertNull(XMLUtils.getDirectChildElement(body, "first", "urn:foo.bar"));
+
+        WSHandlerResult results = verify(preScanned.getDocument());
+        assertNotNull(results.getActionResults().get(WSConstants.SIGN));
+
+        preScanned.expand();
+        assertEquals(0, preScanned.getDeferredFragmentCount());
+        assertEquals("asf1", XMLUtils.getElementText(
+            XMLUtils.getDirectChildElement(body, "first", "urn:foo.bar")));
+        Element second = XMLUtils.getDirectChildElement(body, "second", "urn:foo.bar");
+        assertEquals("asf2", XMLUtils.getElementText(
+            XMLUtils.getDirectChildElement(second, "nested", "urn:foo.bar")));
+    }
+
+    /**
+     * A child of the SOAP Body is signed, so only this child is built.
+     */
+    @Test
+    public void testSignedBodyChild() throws Exception {
+        byte[] message = sign(new WSEncryptionPart("first", "urn:foo.bar", "Element"));
+
+        PreScannedDocument preScanned =
+            SecurityHeaderPreScanner.preScan(new ByteArrayInputStream(message));
+        assertEquals(1, preScanned.getDeferredFragmentCount());
+        Element body = WSSecurityUtil.findBodyElement(preScanned.getDocument());
+        assertNotNull(XMLUtils.getDirectChildElement(body, "first", "urn:foo.bar"));
+        assertNull(XMLUtils.getDirectChildElement(body, "second", "urn:foo.bar"));
+
+        verify(preScanned.getDocument());
+    }
+
+    /**
+     * The SOAP Body is signed, so everything is built.
+     */
+    @Test
+    public void testSignedBody() throws Exception {
+        byte[] message =
+            sign(new WSEncryptionPart(WSConstants.ELEM_BODY, WSConstants.URI_SOAP11_ENV, "Content"));
+
+        PreScannedDocument preScanned =
+            SecurityHeaderPreScanner.preScan(new ByteArrayInputStream(message));
+        assertEquals(0, preScanned.getDeferredFragmentCount());
+
+        verify(preScanned.getDocument());
+    }
+
+    /**
+     * The content of the SOAP Body is encrypted, so the EncryptedData is built and decrypted.
+     */
+    @Test
+    public void testEncryptedBody() throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPMSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecEncrypt builder = new WSSecEncrypt(secHeader);
+        builder.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e");
+        builder.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        Document encryptedDoc = builder.build(crypto);
+        byte[] message = XMLUtils.prettyDocumentToString(encryptedDoc).getBytes(StandardCharsets.UTF_8);
+
+        PreScannedDocument preScanned =
+            SecurityHeaderPreScanner.preScan(new ByteArrayInputStream(message));
+        assertEquals(0, preScanned.getDeferredFragmentCount());
+
+        secEngine.processSecurityHeader(
+            preScanned.getDocument(), null, new KeystoreCallbackHandler(), crypto
+        );
+        Element body = WSSecurityUtil.findBodyElement(preScanned.getDocument());
+        assertNotNull(XMLUtils.getDirectChildElement(body, "second", "urn:foo.bar"));
+    }
+
+    /**
+     * The SOAP Body is signed and only the Signature is encrypted. The reference to the SOAP Body
+     * is not visible before decryption, so everything is built.
+     */
+    @Test
+    public void testSignedBodyEncryptedSignature() throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPMSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecSignature sign = new WSSecSignature(secHeader);
+        sign.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e", "security");
+        sign.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        sign.getParts().add(
+            new WSEncryptionPart(WSConstants.ELEM_BODY, WSConstants.URI_SOAP11_ENV, "Content"));
+        sign.build(crypto);
+
+        WSSecEncrypt encrypt = new WSSecEncrypt(secHeader);
+        encrypt.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e");
+        encrypt.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        encrypt.getParts().add(new WSEncryptionPart(WSConstants.SIG_LN, WSConstants.SIG_NS, "Element"));
+        Document encryptedDoc = encrypt.build(crypto);
+        byte[] message = XMLUtils.prettyDocumentToString(encryptedDoc).getBytes(StandardCharsets.UTF_8);
+
+        PreScannedDocument preScanned =
+            SecurityHeaderPreScanner.preScan(new ByteArrayInputStream(message));
+        assertEquals(0, preScanned.getDeferredFragmentCount());
+
+        WSHandlerResult results = secEngine.processSecurityHeader(
+            preScanned.getDocument(), null, new KeystoreCallbackHandler(), crypto
+        );
+        assertNotNull(results.getActionResults().get(WSConstants.SIGN));
+        assertNotNull(results.getActionResults().get(WSConstants.ENCR));
+    }
+
+    private byte[] sign(WSEncryptionPart part) throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPMSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecSignature sign = new WSSecSignature(secHeader);
+        sign.setUserInfo("16c73ab6-b892-458f-abf5-2f875f74882e", "security");
+        sign.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        sign.getParts().add(part);
+
+        Document signedDoc = sign.build(crypto);
+
+        String outputString = XMLUtils.prettyDocumentToString(signedDoc);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(outputString);
+        }
+        return outputString.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private WSHandlerResult verify(Document doc) throws Exception {
+        WSHandlerResult results =
+            secEngine.processSecurityHeader(doc, null, null, crypto);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Verfied and decrypted message:");
+            String outputString =
+                XMLUtils.prettyDocumentToString(doc);
+            LOG.debug(outputString);
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.misc;
+
+import org.apache.wss4j.dom.WSConstants;
+import org.apache.wss4j.dom.common.CustomProcessor;
+import org.apache.wss4j.dom.engine.WSSConfig;
+import org.apache.wss4j.dom.processor.Processor;
+import org.apache.wss4j.dom.validate.SignatureTrustValidator;
+import org.junit.Test;
+
+/**
+ * Some tests for frozen WSSConfig instances.
+ */
+public class WSSConfigTest extends org.junit.Assert {
+
+    @Test
+    public void testFreeze() throws Exception {
+        WSSConfig config = WSSConfig.getNewInstance();
+        config.setProcessor(WSConstants.SIGNATURE, CustomProcessor.class);
+        assertFalse(config.isFrozen());
+
+        WSSConfig frozenConfig = config.freeze();
+        assertTrue(frozenConfig.isFrozen());
+        assertSame(frozenConfig, frozenConfig.freeze());
+
+        // Default classes are instantiated once, other classes per lookup
+        assertSame(frozenConfig.getAction(WSConstants.SIGN), frozenConfig.getAction(WSConstants.SIGN));
+        assertSame(frozenConfig.getValidator(WSConstants.SIGNATURE),
+                   frozenConfig.getValidator(WSConstants.SIGNATURE));
+        assertTrue(frozenConfig.getValidator(WSConstants.SIGNATURE) instanceof SignatureTrustValidator);
+        assertTrue(frozenConfig.getProcessor(WSConstants.SIGNATURE) instanceof CustomProcessor);
+        assertNotSame(frozenConfig.getProcessor(WSConstants.SIGNATURE),
+                      frozenConfig.getProcessor(WSConstants.SIGNATURE));
+
+        // The original instance is still mutable and not affected by the snapshot
+        config.setProcessor(WSConstants.SIGNATURE, (Processor)null);
+        assertNull(config.getProcessor(WSConstants.SIGNATURE));
+        assertNotNull(frozenConfig.getProcessor(WSConstants.SIGNATURE));
+    }
+
+    @Test
+    public void testSharedInstance() throws Exception {
+        WSSConfig config = WSSConfig.getSharedInstance();
+        assertTrue(config.isFrozen());
+        assertSame(config, WSSConfig.getSharedInstance());
+
+        try {
+            config.setValidator(WSConstants.SIGNATURE, new SignatureTrustValidator());
+            fail("Failure expected on modifying a frozen WSSConfig");
+        } catch (UnsupportedOperationException ex) {
+            assertTrue(ex.getMessage().contains("frozen"));
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.wss4j.dom.misc;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.wss4j.dom.WSConstants;
+import org.apache.wss4j.dom.engine.WSSecurityEngineResult;
+import org.junit.Test;
+
+/**
+ * Some tests for the Map view of the WSSecurityEngineResult.
+ */
+public class WSSecurityEngineResultTest extends org.junit.Assert {
+
+    @Test
+    public void testWellKnownTags() throws Exception {
+        WSSecurityEngineResult result = new WSSecurityEngineResult(WSConstants.SIGN);
+        assertEquals(1, result.size());
+        assertEquals(WSConstants.SIGN, result.get(WSSecurityEngineResult.TAG_ACTION));
+        assertEquals(Integer.valueOf(WSConstants.SIGN), result.getAction());
+
+        result.put(WSSecurityEngineResult.TAG_ID, "id-1");
+        result.put(WSSecurityEngineResult.TAG_PRINCIPAL, null);
+        assertEquals("id-1", result.getId());
+        assertTrue(result.containsKey(WSSecurityEngineResult.TAG_PRINCIPAL));
+        assertNull(result.getPrincipal());
+        assertEquals(3, result.size());
+
+        assertEquals("id-1", result.remove(WSSecurityEngineResult.TAG_ID));
+        assertFalse(result.containsKey(WSSecurityEngineResult.TAG_ID));
+        assertNull(result.getId());
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    public void testOtherTags() throws Exception {
+        WSSecurityEngineResult result = new WSSecurityEngineResult(WSConstants.UT);
+        result.put("custom-tag", "custom-value");
+        assertEquals("custom-value", result.get("custom-tag"));
+        assertEquals(2, result.size());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(WSSecurityEngineResult.TAG_ACTION, WSConstants.UT);
+        expected.put("custom-tag", "custom-value");
+        assertEquals(expected, result);
+        assertEquals(expected.hashCode(), result.hashCode());
+
+        Iterator<Map.Entry<String, Object>> iterator = result.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (WSSecurityEngineResult.TAG_ACTION.equals(entry.getKey())) {
+                entry.setValue(WSConstants.UT_NOPASSWORD);
+            } else {
+                iterator.remove();
+            }
+        }
+        assertEquals(1, result.size());
+        assertNull(result.get("custom-tag"));
+        assertEquals(Integer.valueOf(WSConstants.UT_NOPASSWORD), result.getAction());
+    }
+
+    @Test
+    public void testHashMapMethods() throws Exception {
+        WSSecurityEngineResult result = new WSSecurityEngineResult(WSConstants.SIGN);
+        assertTrue(result instanceof HashMap);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(WSSecurityEngineResult.TAG_ID, "id-1");
+        values.put("custom-tag", "custom-value");
+        result.putAll(values);
+        assertEquals("id-1", result.getId());
+        assertEquals(3, result.size());
+        assertTrue(result.keySet().contains(WSSecurityEngineResult.TAG_ID));
+        assertTrue(result.values().contains("custom-value"));
+        assertTrue(result.containsValue("id-1"));
+
+        assertEquals("id-1", result.putIfAbsent(WSSecurityEngineResult.TAG_ID, "id-2"));
+        assertEquals("id-3", result.merge(WSSecurityEngineResult.TAG_ID, "-3", (a, b) -> "id" + b));
+        assertNull(result.computeIfPresent(WSSecurityEngineResult.TAG_ID, (k, v) -> null));
+        assertFalse(result.containsKey(WSSecurityEngineResult.TAG_ID));
+        assertEquals("default", result.getOrDefault(WSSecurityEngineResult.TAG_ID, "default"));
+
+        WSSecurityEngineResult clone = (WSSecurityEngineResult)result.clone();
+        assertEquals(result, clone);
+        assertEquals(2, clone.size());
+        clone.put(WSSecurityEngineResult.TAG_ACTION, WSConstants.ENCR);
+        clone.put("custom-tag", "other-value");
+        assertEquals(Integer.valueOf(WSConstants.SIGN), result.getAction());
+        assertEquals("custom-value", result.get("custom-tag"));
+        assertEquals(Integer.valueOf(WSConstants.ENCR), clone.getAction());
+        assertEquals(2, clone.size());
+
+        result.clear();
+        assertTrue(result.isEmpty());
+        assertNull(result.getAction());
+    }
+
+}
@@ -252,6 +252,50 @@ public class SamlNegativeTest extends org.junit.Assert {
         }
     }
 
+    /**
+     * Test that receives a signed SAML 2 Assertion, and then the same Assertion again with a
+     * modified Issuer. The signature of the modified Assertion is signed with the same key as the
+     * Assertion that was accepted before, but it must still be verified and hence fail.
+     */
+    @Test
+    public void testSAML2SignedAssertionModifiedAfterAccepted() throws Exception {
+        SAML2CallbackHandler callbackHandler = new SAML2CallbackHandler();
+        callbackHandler.setStatement(SAML2CallbackHandler.Statement.AUTHN);
+        callbackHandler.setConfirmationMethod(SAML2Constants.CONF_HOLDER_KEY);
+        callbackHandler.setIssuer("www.example.com");
+
+        SAMLCallback samlCallback = new SAMLCallback();
+        SAMLUtil.doSAMLCallback(callbackHandler, samlCallback);
+        SamlAssertionWrapper samlAssertion = new SamlAssertionWrapper(samlCallback);
+
+        samlAssertion.signAssertion("wss40_server", "security", issuerCrypto, false);
+
+        Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecSAMLToken wsSign = new WSSecSAMLToken(secHeader);
+
+        String signedMessage = XMLUtils.prettyDocumentToString(wsSign.build(samlAssertion));
+
+        verify(SOAPUtil.toSOAPPart(signedMessage), trustCrypto);
+
+        //
+        // Modify the Issuer of the same assertion
+        //
+        Document modifiedDoc = SOAPUtil.toSOAPPart(signedMessage);
+        NodeList list = modifiedDoc.getElementsByTagNameNS(WSConstants.SAML2_NS, "Issuer");
+        Element issuerElement = (Element)list.item(0);
+        issuerElement.setTextContent("www.attacker.com");
+
+        try {
+            verify(modifiedDoc, trustCrypto);
+            fail("Expected failure on a modified signature");
+        } catch (WSSecurityException ex) {
+            assertTrue(ex.getErrorCode() == WSSecurityException.ErrorCode.FAILURE);
+        }
+    }
+
     /**
      * Test that creates a signed SAML 1.1 authentication assertion that uses holder-of-key, but
      * does not include a KeyInfo in the Subject, and hence will fail processing.
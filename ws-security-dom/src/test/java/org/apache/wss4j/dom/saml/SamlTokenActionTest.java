@@ -22,13 +22,19 @@ package org.apache.wss4j.dom.saml;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.security.auth.callback.CallbackHandler;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoFactory;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.saml.SAMLCallback;
+import org.apache.wss4j.common.saml.SAMLUtil;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
+import org.apache.wss4j.common.saml.bean.ConditionsBean;
 import org.apache.wss4j.common.util.XMLUtils;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.common.CustomHandler;
@@ -216,6 +222,99 @@ public class SamlTokenActionTest extends org.junit.Assert {
         verify(doc, callbackHandler);
     }
 
+    @Test
+    public void testSignedAssertionActionWithAssertionCache() throws Exception {
+        CallbackHandler callbackHandler = new KeystoreCallbackHandler();
+
+        SAML1CallbackHandler samlCallbackHandler = new SAML1CallbackHandler();
+        samlCallbackHandler.setStatement(SAML1CallbackHandler.Statement.AUTHN);
+        samlCallbackHandler.setIssuer("www.example.com");
+        samlCallbackHandler.setIssuerCrypto(crypto);
+        samlCallbackHandler.setIssuerName("wss40");
+        samlCallbackHandler.setIssuerPassword("security");
+
+        SamlAssertionCache samlAssertionCache = new SamlAssertionCache();
+
+        String assertionId = null;
+        for (int i = 0; i < 2; i++) {
+            final RequestData reqData = new RequestData();
+            reqData.setWssConfig(WSSConfig.getNewInstance());
+
+            java.util.Map<String, Object> config = new java.util.TreeMap<String, Object>();
+            config.put(WSHandlerConstants.PW_CALLBACK_REF, callbackHandler);
+            config.put(WSHandlerConstants.SAML_CALLBACK_REF, samlCallbackHandler);
+            config.put(WSHandlerConstants.SAML_ASSERTION_CACHE_INSTANCE, samlAssertionCache);
+            reqData.setMsgContext(config);
+
+            final Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+            CustomHandler handler = new CustomHandler();
+            HandlerAction action = new HandlerAction(WSConstants.ST_SIGNED);
+            handler.send(
+                doc,
+                reqData,
+                Collections.singletonList(action),
+                true
+            );
+            if (LOG.isDebugEnabled()) {
+                String outputString = XMLUtils.prettyDocumentToString(doc);
+                LOG.debug(outputString);
+            }
+
+            verify(doc, callbackHandler);
+
+            Element assertion =
+                (Element)doc.getElementsByTagNameNS(WSConstants.SAML_NS, "Assertion").item(0);
+            if (assertionId == null) {
+                assertionId = assertion.getAttributeNS(null, "AssertionID");
+            } else {
+                // the signed assertion of the first message must have been reused
+                assertEquals(assertionId, assertion.getAttributeNS(null, "AssertionID"));
+            }
+        }
+    }
+
+    @Test
+    public void testAssertionCacheRefreshFailure() throws Exception {
+        SAML1CallbackHandler samlCallbackHandler = new SAML1CallbackHandler();
+        samlCallbackHandler.setStatement(SAML1CallbackHandler.Statement.AUTHN);
+        samlCallbackHandler.setIssuer("www.example.com");
+        samlCallbackHandler.setIssuerCrypto(crypto);
+        samlCallbackHandler.setIssuerName("wss40");
+        samlCallbackHandler.setIssuerPassword("security");
+        ConditionsBean conditions = new ConditionsBean();
+        conditions.setTokenPeriodMinutes(5);
+        samlCallbackHandler.setConditions(conditions);
+
+        SAMLCallback samlCallback = new SAMLCallback();
+        SAMLUtil.doSAMLCallback(samlCallbackHandler, samlCallback);
+        samlCallback.setSignAssertion(true);
+
+        // The Assertion is valid for 5 minutes, so it is rebuilt on every request
+        final List<Runnable> refreshTasks = new ArrayList<>();
+        SamlAssertionCache samlAssertionCache = new SamlAssertionCache(10, 30L, 600L, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                refreshTasks.add(command);
+            }
+        });
+        try {
+            assertNotNull(samlAssertionCache.getSamlAssertion(samlCallback));
+            assertNotNull(samlAssertionCache.getSamlAssertion(samlCallback));
+            assertNotNull(samlAssertionCache.getSamlAssertion(samlCallback));
+            assertEquals(1, refreshTasks.size());
+
+            // The rebuild fails, as the private key can't be retrieved
+            samlCallback.setIssuerKeyPassword("wrong");
+            refreshTasks.remove(0).run();
+
+            // The next request starts another rebuild
+            assertNotNull(samlAssertionCache.getSamlAssertion(samlCallback));
+            assertEquals(1, refreshTasks.size());
+        } finally {
+            samlAssertionCache.close();
+        }
+    }
+
     private WSHandlerResult verify(
         Document doc, CallbackHandler callbackHandler
     ) throws Exception {
@@ -20,6 +20,7 @@
 package org.apache.wss4j.dom.validate;
 
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,6 +31,8 @@ import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoFactory;
 import org.apache.wss4j.common.crypto.CryptoType;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
 import org.apache.wss4j.common.saml.SAMLCallback;
 import org.apache.wss4j.common.saml.SAMLUtil;
 import org.apache.wss4j.common.saml.SamlAssertionWrapper;
@@ -102,6 +105,53 @@ public class ValidatorTest extends org.junit.Assert {
         verify(createdDoc, wssConfig, null, null);
     }
 
+    /**
+     * The configured Validator instance is returned and used when a SecurityInstrumentation is enabled.
+     */
+    @Test
+    public void testInstrumentedValidator() throws Exception {
+        Document doc = SOAPUtil.toSOAPPart(SOAPUtil.SAMPLE_SOAP_MSG);
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecTimestamp timestamp = new WSSecTimestamp(secHeader);
+        Document createdDoc = timestamp.build();
+
+        final List<String> records = new ArrayList<>();
+        WSSConfig wssConfig = WSSConfig.getNewInstance();
+        wssConfig.setValidator(WSConstants.TIMESTAMP, NoOpValidator.class);
+        wssConfig.setInstrumentation(new SecurityInstrumentation() {
+            public boolean isEnabled() {
+                return true;
+            }
+
+            public void record(SecurityStage stage, String name, long durationNanos, boolean success) {
+                records.add(stage + ":" + name + ":" + success);
+            }
+
+            public void increment(SecurityStage stage, String name) {
+                // do nothing
+            }
+
+            public Object startSpan(SecurityStage stage, String name) {
+                return null;
+            }
+
+            public void endSpan(Object span, boolean success) {
+                // do nothing
+            }
+        });
+
+        RequestData data = new RequestData();
+        data.setWssConfig(wssConfig);
+        assertTrue(data.getValidator(WSConstants.TIMESTAMP) instanceof NoOpValidator);
+
+        WSSecurityEngine newEngine = new WSSecurityEngine();
+        newEngine.setWssConfig(wssConfig);
+        newEngine.processSecurityHeader(createdDoc, data);
+        assertTrue(records.contains("VALIDATOR:Timestamp:true"));
+    }
+
     /**
      * Test for processing an untrusted signature
      */
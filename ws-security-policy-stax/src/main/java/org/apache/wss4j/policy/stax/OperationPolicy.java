@@ -21,6 +21,7 @@ package org.apache.wss4j.policy.stax;
 import javax.xml.namespace.QName;
 
 import org.apache.neethi.Policy;
+import org.apache.wss4j.common.WSSPolicyException;
 
 public class OperationPolicy {
 
@@ -28,6 +29,7 @@ public class OperationPolicy {
     private String operationAction;
     private Policy policy;
     private String soapMessageVersionNamespace;
+    private volatile PolicyEnforcementPlan enforcementPlan;
 
     public OperationPolicy(QName operationName) {
         this.operationName = operationName;
@@ -55,6 +57,21 @@ public class OperationPolicy {
 
     public void setPolicy(Policy policy) {
         this.policy = policy;
+        this.enforcementPlan = null;
+    }
+
+    /**
+     * Returns the compiled enforcement plan of the policy. The plan is built on first access
+     * and then shared by every PolicyEnforcer of this operation.
+     * Precondition: Policy _must_ be normalized!
+     */
+    public PolicyEnforcementPlan getEnforcementPlan() throws WSSPolicyException {
+        PolicyEnforcementPlan plan = enforcementPlan;
+        if (plan == null) {
+            plan = PolicyEnforcementPlan.compile(this);
+            enforcementPlan = plan;
+        }
+        return plan;
     }
 
     public String getSoapMessageVersionNamespace() {
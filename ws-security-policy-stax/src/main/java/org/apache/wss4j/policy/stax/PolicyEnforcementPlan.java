@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.policy.stax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.neethi.ExactlyOne;
+import org.apache.neethi.PolicyComponent;
+import org.apache.neethi.PolicyContainingAssertion;
+import org.apache.neethi.PolicyOperator;
+import org.apache.neethi.builders.PrimitiveAssertion;
+import org.apache.wss4j.common.WSSPolicyException;
+import org.apache.wss4j.policy.model.AbstractSecurityAssertion;
+import org.apache.xml.security.stax.securityEvent.SecurityEventConstants;
+
+/**
+ * An immutable, precompiled view of an OperationPolicy. The (normalized) policy tree is walked
+ * once and flattened into a list of security assertions per policy alternative. A plan
+ * does not hold any per-message state and can therefore be shared between all PolicyEnforcer
+ * instances (and threads) for the operation.
+ *
+ * The plan also keeps the AssertableIndex of the initiator and of the recipient side, so that a
+ * PolicyEnforcer only has to create the assertables of a message and not to index them again.
+ */
+public final class PolicyEnforcementPlan {
+
+    private final OperationPolicy operationPolicy;
+    private final List<List<AbstractSecurityAssertion>> alternatives;
+    private volatile AssertableIndex initiatorIndex;
+    private volatile AssertableIndex recipientIndex;
+
+    private PolicyEnforcementPlan(OperationPolicy operationPolicy,
+                                  List<List<AbstractSecurityAssertion>> alternatives) {
+        this.operationPolicy = operationPolicy;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Compiles the given OperationPolicy.
+     * Precondition: Policy _must_ be normalized!
+     */
+    static PolicyEnforcementPlan compile(OperationPolicy operationPolicy) throws WSSPolicyException {
+        List<List<AbstractSecurityAssertion>> alternatives = new ArrayList<>();
+        compile(operationPolicy.getPolicy(), alternatives);
+        for (int i = 0; i < alternatives.size(); i++) {
+            alternatives.set(i, Collections.unmodifiableList(alternatives.get(i)));
+        }
+        return new PolicyEnforcementPlan(operationPolicy, Collections.unmodifiableList(alternatives));
+    }
+
+    private static void compile(
+            PolicyComponent policyComponent,
+            List<List<AbstractSecurityAssertion>> alternatives
+    ) throws WSSPolicyException {
+        if (policyComponent instanceof PolicyOperator) {
+            PolicyOperator policyOperator = (PolicyOperator) policyComponent;
+            List<PolicyComponent> policyComponents = policyOperator.getPolicyComponents();
+            for (int i = 0; i < policyComponents.size(); i++) {
+                PolicyComponent curPolicyComponent = policyComponents.get(i);
+                if (policyOperator instanceof ExactlyOne) {
+                    List<AbstractSecurityAssertion> alternative = new ArrayList<>();
+                    alternatives.add(alternative);
+                    compileAlternative(curPolicyComponent, alternative);
+                } else {
+                    compile(curPolicyComponent, alternatives);
+                }
+            }
+        } else {
+            throw new WSSPolicyException("Invalid PolicyComponent: " + policyComponent
+                                         + " " + policyComponent.getType());
+        }
+    }
+
+    private static void compileAlternative(
+            PolicyComponent policyComponent,
+            List<AbstractSecurityAssertion> alternative
+    ) throws WSSPolicyException {
+        if (policyComponent instanceof PolicyOperator) {
+            PolicyOperator policyOperator = (PolicyOperator) policyComponent;
+            List<PolicyComponent> policyComponents = policyOperator.getPolicyComponents();
+            for (int i = 0; i < policyComponents.size(); i++) {
+                compileAlternative(policyComponents.get(i), alternative);
+            }
+        } else if (policyComponent instanceof AbstractSecurityAssertion) {
+            AbstractSecurityAssertion abstractSecurityAssertion = (AbstractSecurityAssertion) policyComponent;
+            alternative.add(abstractSecurityAssertion);
+            if (abstractSecurityAssertion instanceof PolicyContainingAssertion) {
+                compileAlternative(((PolicyContainingAssertion) abstractSecurityAssertion).getPolicy(), alternative);
+            }
+        } else if (!(policyComponent instanceof PrimitiveAssertion)) {
+            throw new WSSPolicyException("Unsupported PolicyComponent: " + policyComponent
+                                         + " type: " + policyComponent.getType());
+        }
+    }
+
+    public OperationPolicy getOperationPolicy() {
+        return operationPolicy;
+    }
+
+    /**
+     * @return an unmodifiable list of policy alternatives. Each alternative is the ordered,
+     * unmodifiable list of the security assertions it contains (including nested ones).
+     */
+    public List<List<AbstractSecurityAssertion>> getAlternatives() {
+        return alternatives;
+    }
+
+    /**
+     * @return the index of the assertables of the initiator or the recipient side, or null if it
+     * is not known yet
+     */
+    public AssertableIndex getAssertableIndex(boolean initiator) {
+        return initiator ? initiatorIndex : recipientIndex;
+    }
+
+    public void setAssertableIndex(boolean initiator, AssertableIndex assertableIndex) {
+        if (initiator) {
+            initiatorIndex = assertableIndex;
+        } else {
+            recipientIndex = assertableIndex;
+        }
+    }
+
+    /**
+     * The layout of the assertables which a PolicyEnforcer creates for the alternatives of a plan,
+     * in the order of the alternatives and their assertions. Each assertable is addressed by its slot,
+     * so the per-message state is just an array of assertables, while the slots per alternative and
+     * per security event type are computed once. An assertable which isn't interested in any security
+     * event has a slot but can't take part in the decision, so it is not listed for its alternative.
+     */
+    public static final class AssertableIndex {
+
+        private static final int[] NO_SLOTS = new int[0];
+
+        private final Class<?>[] types;
+        private final int[] slotAlternatives;
+        private final AbstractSecurityAssertion[] assertions;
+        private final int[][] alternativeSlots;
+        private final Map<SecurityEventConstants.Event, int[][]> eventSlots;
+
+        /**
+         * @param assertables the assertables of all the alternatives
+         * @param assertions the assertion each assertable belongs to
+         * @param alternativeOffsets the slot of the first assertable of each alternative, followed
+         *                           by the number of assertables
+         */
+        public AssertableIndex(List<Assertable> assertables, List<AbstractSecurityAssertion> assertions,
+                               int[] alternativeOffsets) {
+            final int alternativeCount = alternativeOffsets.length - 1;
+            types = new Class<?>[assertables.size()];
+            slotAlternatives = new int[assertables.size()];
+            this.assertions = assertions.toArray(new AbstractSecurityAssertion[assertions.size()]);
+            alternativeSlots = new int[alternativeCount][];
+            eventSlots = new HashMap<>();
+
+            List<Integer> slots = new ArrayList<>();
+            Map<SecurityEventConstants.Event, List<Integer>> slotsByEvent = new HashMap<>();
+            for (int i = 0; i < alternativeCount; i++) {
+                for (int slot = alternativeOffsets[i]; slot < alternativeOffsets[i + 1]; slot++) {
+                    Assertable assertable = assertables.get(slot);
+                    types[slot] = assertable.getClass();
+                    slotAlternatives[slot] = i;
+                    SecurityEventConstants.Event[] securityEventTypes = assertable.getSecurityEventType();
+                    if (securityEventTypes.length == 0) {
+                        continue;
+                    }
+                    slots.add(slot);
+                    for (int j = 0; j < securityEventTypes.length; j++) {
+                        List<Integer> eventList = slotsByEvent.get(securityEventTypes[j]);
+                        if (eventList == null) {
+                            eventList = new ArrayList<>();
+                            slotsByEvent.put(securityEventTypes[j], eventList);
+                        }
+                        eventList.add(slot);
+                    }
+                }
+
+                alternativeSlots[i] = toArray(slots);
+                for (Map.Entry<SecurityEventConstants.Event, List<Integer>> entry : slotsByEvent.entrySet()) {
+                    int[][] eventAlternatives = eventSlots.get(entry.getKey());
+                    if (eventAlternatives == null) {
+                        eventAlternatives = new int[alternativeCount][];
+                        Arrays.fill(eventAlternatives, NO_SLOTS);
+                        eventSlots.put(entry.getKey(), eventAlternatives);
+                    }
+                    eventAlternatives[i] = toArray(entry.getValue());
+                }
+                slots.clear();
+                slotsByEvent.clear();
+            }
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        /**
+         * @return the number of slots
+         */
+        public int size() {
+            return types.length;
+        }
+
+        /**
+         * @return whether the given assertable of the given alternative fits into the slot
+         */
+        public boolean fits(int slot, int alternative, Assertable assertable) {
+            return slot < types.length && slotAlternatives[slot] == alternative
+                && types[slot] == assertable.getClass();
+        }
+
+        /**
+         * @return the slots of the assertables of the alternative which take part in the decision
+         */
+        public int[] getAlternativeSlots(int alternative) {
+            return alternativeSlots[alternative];
+        }
+
+        /**
+         * @return the slots of the assertables per alternative which are interested in the security
+         * event type, or null if no assertable is interested in it
+         */
+        public int[][] getEventSlots(SecurityEventConstants.Event securityEventType) {
+            return eventSlots.get(securityEventType);
+        }
+
+        /**
+         * @return the assertion the assertable in the slot belongs to
+         */
+        public AbstractSecurityAssertion getAssertion(int slot) {
+            return assertions[slot];
+        }
+    }
+}
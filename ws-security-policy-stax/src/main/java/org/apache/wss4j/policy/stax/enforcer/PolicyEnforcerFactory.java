@@ -94,7 +94,7 @@ import org.w3c.dom.NodeList;
 
 /**
  * PolicyEnforcerFactory builds a map of all the possible effective Policies
- * and caches them for reuse
+ * and caches them, together with their compiled enforcement plans, for reuse
  */
 public class PolicyEnforcerFactory {
 
@@ -106,6 +106,7 @@ public class PolicyEnforcerFactory {
     private Definition wsdlDefinition;
     private List<OperationPolicy> operationPolicies;
     private final Map<Element, Policy> elementPolicyCache;
+    private PolicyBuilder policyBuilder;
 
     protected PolicyEnforcerFactory(List<AssertionBuilder<Element>> customAssertionBuilders) {
         elementPolicyCache = new HashMap<>();
@@ -258,6 +259,8 @@ public class PolicyEnforcerFactory {
 
                     Policy policy = getPolicy(service, port, binding, bindingOperation, operation);
                     operationPolicy.setPolicy(policy.normalize(true));
+                    // compile the enforcement plan once so that it can be shared by all PolicyEnforcer's
+                    operationPolicy.getEnforcementPlan();
                 }
             }
         }
@@ -410,8 +413,10 @@ public class PolicyEnforcerFactory {
         if (elementPolicyCache.containsKey(element)) {
             return elementPolicyCache.get(element);
         }
-        PolicyBuilder policyBuilder = new PolicyBuilder();
-        registerDefaultBuilders(policyBuilder.getAssertionBuilderFactory());
+        if (policyBuilder == null) {
+            policyBuilder = new PolicyBuilder();
+            registerDefaultBuilders(policyBuilder.getAssertionBuilderFactory());
+        }
         Policy policy = policyBuilder.getPolicy(element);
         elementPolicyCache.put(element, policy);
         return policy;
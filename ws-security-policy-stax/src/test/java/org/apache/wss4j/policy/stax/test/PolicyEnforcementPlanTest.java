@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.policy.stax.test;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.neethi.All;
+import org.apache.neethi.ExactlyOne;
+import org.apache.neethi.Policy;
+import org.apache.wss4j.policy.SPConstants;
+import org.apache.wss4j.policy.model.AbstractSecurityAssertion;
+import org.apache.wss4j.policy.model.Header;
+import org.apache.wss4j.policy.model.RequiredParts;
+import org.apache.wss4j.policy.model.SignedParts;
+import org.apache.wss4j.policy.stax.Assertable;
+import org.apache.wss4j.policy.stax.OperationPolicy;
+import org.apache.wss4j.policy.stax.PolicyEnforcementPlan;
+import org.apache.wss4j.policy.stax.enforcer.PolicyEnforcer;
+import org.apache.wss4j.stax.securityEvent.WSSecurityEventConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PolicyEnforcementPlanTest {
+
+    private static final String ACTION = "urn:test:action";
+
+    /**
+     * The index of the assertables is built by the first PolicyEnforcer of each side and then
+     * shared by all PolicyEnforcers of the same side.
+     */
+    @Test
+    public void testAssertableIndexShared() throws Exception {
+        OperationPolicy operationPolicy = createOperationPolicy();
+        List<OperationPolicy> operationPolicies = Collections.singletonList(operationPolicy);
+        PolicyEnforcementPlan plan = operationPolicy.getEnforcementPlan();
+        Assert.assertNull(plan.getAssertableIndex(false));
+
+        new PolicyEnforcer(operationPolicies, ACTION, false, null, 0);
+        PolicyEnforcementPlan.AssertableIndex index = plan.getAssertableIndex(false);
+        Assert.assertNotNull(index);
+        Assert.assertNull(plan.getAssertableIndex(true));
+        Assert.assertEquals(2, index.size());
+        Assert.assertArrayEquals(new int[]{0, 1}, index.getAlternativeSlots(0));
+        Assert.assertArrayEquals(new int[]{0}, index.getEventSlots(WSSecurityEventConstants.SIGNED_PART)[0]);
+        Assert.assertArrayEquals(new int[]{1}, index.getEventSlots(WSSecurityEventConstants.REQUIRED_PART)[0]);
+        Assert.assertNull(index.getEventSlots(WSSecurityEventConstants.TIMESTAMP));
+
+        new PolicyEnforcer(operationPolicies, ACTION, false, null, 0);
+        Assert.assertSame(index, plan.getAssertableIndex(false));
+
+        new PolicyEnforcer(operationPolicies, ACTION, true, null, 0);
+        Assert.assertNotNull(plan.getAssertableIndex(true));
+        Assert.assertNotSame(index, plan.getAssertableIndex(true));
+    }
+
+    /**
+     * Assertables which don't fit into the shared index get their own index, which isn't shared.
+     */
+    @Test
+    public void testAssertableIndexNotReplaced() throws Exception {
+        OperationPolicy operationPolicy = createOperationPolicy();
+        List<OperationPolicy> operationPolicies = Collections.singletonList(operationPolicy);
+
+        new PolicyEnforcer(operationPolicies, ACTION, false, null, 0);
+        PolicyEnforcementPlan.AssertableIndex index =
+            operationPolicy.getEnforcementPlan().getAssertableIndex(false);
+
+        new PolicyEnforcer(operationPolicies, ACTION, false, null, 0) {
+            @Override
+            protected List<Assertable> getAssertableForAssertion(AbstractSecurityAssertion abstractSecurityAssertion) {
+                return Collections.emptyList();
+            }
+        };
+        Assert.assertSame(index, operationPolicy.getEnforcementPlan().getAssertableIndex(false));
+    }
+
+    private OperationPolicy createOperationPolicy() {
+        All all = new All();
+        all.addPolicyComponent(
+            new SignedParts(SPConstants.SPVersion.SP12, true, null, Collections.<Header>emptyList(), false));
+        all.addPolicyComponent(new RequiredParts(SPConstants.SPVersion.SP12, Collections.<Header>emptyList()));
+        ExactlyOne exactlyOne = new ExactlyOne();
+        exactlyOne.addPolicyComponent(all);
+        Policy policy = new Policy();
+        policy.addPolicyComponent(exactlyOne);
+
+        OperationPolicy operationPolicy = new OperationPolicy(new QName("urn:test", "operation"));
+        operationPolicy.setOperationAction(ACTION);
+        operationPolicy.setPolicy(policy);
+        return operationPolicy;
+    }
+}
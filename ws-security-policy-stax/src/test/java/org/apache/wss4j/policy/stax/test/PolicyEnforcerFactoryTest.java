@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.policy.stax.test;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.neethi.Assertion;
+import org.apache.neethi.AssertionBuilderFactory;
+import org.apache.neethi.builders.AssertionBuilder;
+import org.apache.wss4j.policy.builders.AlgorithmSuiteBuilder;
+import org.apache.wss4j.policy.model.AlgorithmSuite;
+import org.apache.wss4j.policy.stax.enforcer.PolicyEnforcerFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class PolicyEnforcerFactoryTest extends AbstractPolicyTestBase {
+
+    private Path wsdlDirectory;
+
+    @Before
+    public void createWsdlDirectory() throws Exception {
+        wsdlDirectory = Files.createTempDirectory("wsdl");
+        try (InputStream inputStream =
+                 this.getClass().getClassLoader().getResourceAsStream("testdata/wsdl/wsdl.xsd")) {
+            Files.copy(inputStream, wsdlDirectory.resolve("wsdl.xsd"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @After
+    public void deleteWsdlDirectory() throws Exception {
+        Files.deleteIfExists(wsdlDirectory.resolve("service.wsdl"));
+        Files.deleteIfExists(wsdlDirectory.resolve("wsdl.xsd"));
+        Files.deleteIfExists(wsdlDirectory);
+    }
+
+    /**
+     * Each factory parses the WSDL with its own assertion builders, also when the WSDL location and
+     * the class of the builders are the same, and a changed WSDL is picked up by the next factory.
+     */
+    @Test
+    public void testPoliciesNotSharedBetweenFactories() throws Exception {
+        String wsdl = loadResourceAsString("testdata/wsdl/actionSpoofing.wsdl", StandardCharsets.UTF_8);
+        Path wsdlFile = wsdlDirectory.resolve("service.wsdl");
+        URL wsdlUrl = wsdlFile.toUri().toURL();
+
+        Files.write(wsdlFile, wsdl.getBytes(StandardCharsets.UTF_8));
+        RecordingAlgorithmSuiteBuilder firstBuilder = new RecordingAlgorithmSuiteBuilder();
+        PolicyEnforcerFactory.newInstance(wsdlUrl, Collections.<AssertionBuilder<Element>>singletonList(firstBuilder));
+        Assert.assertEquals(Collections.singleton("Basic256"), firstBuilder.algorithmSuites);
+
+        Files.write(wsdlFile, wsdl.replace("<sp:Basic256/>", "<sp:Basic128/>").getBytes(StandardCharsets.UTF_8));
+        RecordingAlgorithmSuiteBuilder secondBuilder = new RecordingAlgorithmSuiteBuilder();
+        PolicyEnforcerFactory.newInstance(wsdlUrl, Collections.<AssertionBuilder<Element>>singletonList(secondBuilder));
+        Assert.assertEquals(Collections.singleton("Basic128"), secondBuilder.algorithmSuites);
+        Assert.assertEquals(Collections.singleton("Basic256"), firstBuilder.algorithmSuites);
+    }
+
+    private static class RecordingAlgorithmSuiteBuilder extends AlgorithmSuiteBuilder {
+
+        private final Set<String> algorithmSuites = new HashSet<>();
+
+        @Override
+        public Assertion build(Element element, AssertionBuilderFactory factory) throws IllegalArgumentException {
+            AlgorithmSuite algorithmSuite = (AlgorithmSuite) super.build(element, factory);
+            algorithmSuites.add(algorithmSuite.getAlgorithmSuiteType().getName());
+            return algorithmSuite;
+        }
+    }
+}
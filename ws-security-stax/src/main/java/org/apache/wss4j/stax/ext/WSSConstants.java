@@ -209,6 +209,8 @@ public class WSSConstants extends XMLSecurityConstants {
     public static final String PROP_USE_THIS_TOKEN_ID_FOR_DERIVED_KEY = "PROP_USE_THIS_TOKEN_ID_FOR_DERIVED_KEY";
     public static final String PROP_USE_THIS_TOKEN_ID_FOR_SECURITYCONTEXTTOKEN = "PROP_USE_THIS_TOKEN_ID_FOR_SECURITYCONTEXTTOKEN";
     public static final String PROP_USE_THIS_TOKEN_ID_FOR_CUSTOM_TOKEN = "PROP_USE_THIS_TOKEN_ID_FOR_CUSTOM_TOKEN";
+    public static final String PROP_ENCRYPTED_KEY_SESSION_TOKEN_ID = "PROP_ENCRYPTED_KEY_SESSION_TOKEN_ID";
+    public static final String PROP_ENCRYPTED_KEY_SESSION_KEY = "PROP_ENCRYPTED_KEY_SESSION_KEY";
 
     public static final String PROP_TIMESTAMP_SECURITYEVENT = "PROP_TIMESTAMP";
 
@@ -38,11 +38,17 @@ import javax.security.auth.callback.CallbackHandler;
 import javax.xml.namespace.QName;
 
 import org.apache.wss4j.common.bsp.BSPRule;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
 import org.apache.wss4j.common.cache.ReplayCache;
 import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.crypto.Merlin;
 import org.apache.wss4j.common.crypto.PasswordEncryptor;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.NoOpSecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.kerberos.KerberosClientCredentialCache;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
 import org.apache.wss4j.stax.validate.Validator;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
@@ -108,11 +114,18 @@ public class WSSSecurityProperties extends XMLSecurityProperties {
     private ReplayCache timestampReplayCache;
     private ReplayCache nonceReplayCache;
     private ReplayCache samlOneTimeUseReplayCache;
+    private SamlAssertionCache samlAssertionCache;
+    private SecurityInstrumentation instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+    private KerberosClientCredentialCache kerberosClientCredentialCache;
+    private EncryptedKeySession encryptedKeySession;
+    private DerivedKeyCache derivedKeyCache;
     private boolean validateSamlSubjectConfirmation = true;
     private Collection<Pattern> subjectDNPatterns = new ArrayList<>();
     private Collection<Pattern> issuerDNPatterns = new ArrayList<>();
     private List<String> audienceRestrictions = new ArrayList<>();
     private boolean requireTimestampExpires;
+    private int maximumSecurityHeaderEvents;
+    private long maximumSecurityHeaderSize;
 
     private CallbackHandler attachmentCallbackHandler;
     private Object msgContext;
@@ -162,6 +175,11 @@ public class WSSSecurityProperties extends XMLSecurityProperties {
         this.timestampReplayCache = wssSecurityProperties.timestampReplayCache;
         this.nonceReplayCache = wssSecurityProperties.nonceReplayCache;
         this.samlOneTimeUseReplayCache = wssSecurityProperties.samlOneTimeUseReplayCache;
+        this.samlAssertionCache = wssSecurityProperties.samlAssertionCache;
+        this.instrumentation = wssSecurityProperties.instrumentation;
+        this.kerberosClientCredentialCache = wssSecurityProperties.kerberosClientCredentialCache;
+        this.encryptedKeySession = wssSecurityProperties.encryptedKeySession;
+        this.derivedKeyCache = wssSecurityProperties.derivedKeyCache;
         this.allowRSA15KeyTransportAlgorithm = wssSecurityProperties.allowRSA15KeyTransportAlgorithm;
         this.derivedKeyIterations = wssSecurityProperties.derivedKeyIterations;
         this.useDerivedKeyForMAC = wssSecurityProperties.useDerivedKeyForMAC;
@@ -175,6 +193,8 @@ public class WSSSecurityProperties extends XMLSecurityProperties {
         this.msgContext = wssSecurityProperties.msgContext;
         this.audienceRestrictions = wssSecurityProperties.audienceRestrictions;
         this.requireTimestampExpires = wssSecurityProperties.requireTimestampExpires;
+        this.maximumSecurityHeaderEvents = wssSecurityProperties.maximumSecurityHeaderEvents;
+        this.maximumSecurityHeaderSize = wssSecurityProperties.maximumSecurityHeaderSize;
     }
 
     /**
@@ -760,6 +780,79 @@ public class WSSSecurityProperties extends XMLSecurityProperties {
         return samlOneTimeUseReplayCache;
     }
 
+    /**
+     * Set the cache used to reuse outbound SAML Assertions
+     */
+    public void setSamlAssertionCache(SamlAssertionCache samlAssertionCache) {
+        this.samlAssertionCache = samlAssertionCache;
+    }
+
+    /**
+     * Get the cache used to reuse outbound SAML Assertions
+     */
+    public SamlAssertionCache getSamlAssertionCache() {
+        return samlAssertionCache;
+    }
+
+    /**
+     * Set the session used to reuse outbound EncryptedKeys
+     */
+    public void setEncryptedKeySession(EncryptedKeySession encryptedKeySession) {
+        this.encryptedKeySession = encryptedKeySession;
+    }
+
+    /**
+     * Get the session used to reuse outbound EncryptedKeys
+     */
+    public EncryptedKeySession getEncryptedKeySession() {
+        return encryptedKeySession;
+    }
+
+    /**
+     * Set the cache used to reuse the keys derived from inbound UsernameTokens
+     */
+    public void setDerivedKeyCache(DerivedKeyCache derivedKeyCache) {
+        this.derivedKeyCache = derivedKeyCache;
+    }
+
+    /**
+     * Get the cache used to reuse the keys derived from inbound UsernameTokens
+     */
+    public DerivedKeyCache getDerivedKeyCache() {
+        return derivedKeyCache;
+    }
+
+    /**
+     * Get the SecurityInstrumentation to report the security processing to
+     */
+    public SecurityInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Set the SecurityInstrumentation to report the security processing to
+     * @param instrumentation the SecurityInstrumentation, or null to not report anything
+     */
+    public void setInstrumentation(SecurityInstrumentation instrumentation) {
+        if (instrumentation == null) {
+            this.instrumentation = NoOpSecurityInstrumentation.INSTANCE;
+        } else {
+            this.instrumentation = instrumentation;
+        }
+    }
+
+    public KerberosClientCredentialCache getKerberosClientCredentialCache() {
+        return kerberosClientCredentialCache;
+    }
+
+    /**
+     * Set a KerberosClientCredentialCache to reuse the TGT (and the service tickets) of a previous
+     * JAAS login for outbound Kerberos tokens. The default is null, meaning a JAAS login per message.
+     */
+    public void setKerberosClientCredentialCache(KerberosClientCredentialCache kerberosClientCredentialCache) {
+        this.kerberosClientCredentialCache = kerberosClientCredentialCache;
+    }
+
     public boolean isDisableBSPEnforcement() {
         return disableBSPEnforcement;
     }
@@ -784,6 +877,38 @@ public class WSSSecurityProperties extends XMLSecurityProperties {
         this.derivedKeyIterations = derivedKeyIterations;
     }
 
+    /**
+     * Get the maximum number of XML events buffered until the end of an inbound security header.
+     * A value less or equal zero means no limit.
+     */
+    public int getMaximumSecurityHeaderEvents() {
+        return maximumSecurityHeaderEvents;
+    }
+
+    /**
+     * Set the maximum number of XML events buffered until the end of an inbound security header.
+     * A value less or equal zero (the default) means no limit.
+     */
+    public void setMaximumSecurityHeaderEvents(int maximumSecurityHeaderEvents) {
+        this.maximumSecurityHeaderEvents = maximumSecurityHeaderEvents;
+    }
+
+    /**
+     * Get the maximum number of characters (names, namespaces, attribute values and text) buffered
+     * until the end of an inbound security header. A value less or equal zero means no limit.
+     */
+    public long getMaximumSecurityHeaderSize() {
+        return maximumSecurityHeaderSize;
+    }
+
+    /**
+     * Set the maximum number of characters (names, namespaces, attribute values and text) buffered
+     * until the end of an inbound security header. A value less or equal zero (the default) means no limit.
+     */
+    public void setMaximumSecurityHeaderSize(long maximumSecurityHeaderSize) {
+        this.maximumSecurityHeaderSize = maximumSecurityHeaderSize;
+    }
+
     public boolean isUseDerivedKeyForMAC() {
         return useDerivedKeyForMAC;
     }
@@ -22,8 +22,13 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -36,6 +41,7 @@ import org.apache.wss4j.stax.securityEvent.WSSecurityEventConstants;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
 import org.apache.wss4j.stax.utils.WSSUtils;
 import org.apache.xml.security.exceptions.XMLSecurityException;
+import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.impl.InboundSecurityContextImpl;
 import org.apache.xml.security.stax.securityEvent.AlgorithmSuiteSecurityEvent;
 import org.apache.xml.security.stax.securityEvent.ContentEncryptedElementSecurityEvent;
@@ -144,10 +150,13 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
         MessageTokens messageTokens = new MessageTokens();
         HttpsTokenSecurityEvent httpsTokenSecurityEvent = null;
 
+        TokenGraph tokenGraph = new TokenGraph();
+        List<SecurityEvent> remainingSecurityEvents = new ArrayList<>(securityEventDeque.size());
         List<TokenSecurityEvent<? extends InboundSecurityToken>> tokenSecurityEvents = new ArrayList<>();
         Iterator<SecurityEvent> securityEventIterator = securityEventDeque.iterator();
         while (securityEventIterator.hasNext()) {
             SecurityEvent securityEvent = securityEventIterator.next();
+            tokenGraph.add(securityEvent);
             if (securityEvent instanceof TokenSecurityEvent) {
                 @SuppressWarnings("unchecked")
                 TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent =
@@ -167,31 +176,36 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
                     messageTokens.messageEncryptionTokens =
                         addTokenSecurityEvent(actHttpsTokenSecurityEvent, messageTokens.messageEncryptionTokens);
                     httpsTokenSecurityEvent = clonedHttpsTokenSecurityEvent;
+                    remainingSecurityEvents.add(securityEvent);
                     continue;
                 }
+                //the old TokenSecurityEvents are not kept, so that only root tokens are in the queue
                 tokenSecurityEvents.add(tokenSecurityEvent);
+                continue;
             }
+            remainingSecurityEvents.add(securityEvent);
         }
 
         //search the root tokens and create new TokenSecurityEvents if not already there...
+        Set<String> rootTokenIds = new HashSet<>();
         for (int i = 0; i < tokenSecurityEvents.size(); i++) {
             TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent = tokenSecurityEvents.get(i);
             InboundSecurityToken securityToken = WSSUtils.getRootToken(tokenSecurityEvent.getSecurityToken());
 
-            if (!containsSecurityToken(messageTokens.supportingTokens, securityToken)) {
+            if (securityToken == null || rootTokenIds.add(securityToken.getId())) {
                 TokenSecurityEvent<? extends InboundSecurityToken> newTokenSecurityEvent =
                         WSSUtils.createTokenSecurityEvent(securityToken, tokenSecurityEvent.getCorrelationID());
                 messageTokens.supportingTokens = addTokenSecurityEvent(newTokenSecurityEvent, messageTokens.supportingTokens);
-                securityEventDeque.offer(newTokenSecurityEvent);
+                remainingSecurityEvents.add(newTokenSecurityEvent);
             }
-            //remove old TokenSecurityEvent so that only root tokens are in the queue
-            securityEventDeque.remove(tokenSecurityEvent);
         }
+        securityEventDeque.clear();
+        securityEventDeque.addAll(remainingSecurityEvents);
 
-        parseSupportingTokens(messageTokens, httpsTokenSecurityEvent, securityEventDeque);
+        parseSupportingTokens(messageTokens, httpsTokenSecurityEvent, tokenGraph);
 
         if (messageTokens.messageSignatureTokens.isEmpty()) {
-            InboundSecurityToken messageSignatureToken = getSupportingTokenSigningToken(messageTokens, securityEventDeque);
+            InboundSecurityToken messageSignatureToken = getSupportingTokenSigningToken(messageTokens, tokenGraph);
 
             TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent =
                     getTokenSecurityEvent(messageSignatureToken, tokenSecurityEvents);
@@ -255,41 +269,28 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
     }
 
     private void parseSupportingTokens(MessageTokens messageTokens, HttpsTokenSecurityEvent httpsTokenSecurityEvent,
-                                       Deque<SecurityEvent> securityEventDeque) throws XMLSecurityException {
+                                       TokenGraph tokenGraph) throws XMLSecurityException {
         Iterator<TokenSecurityEvent<? extends InboundSecurityToken>> supportingTokensIterator = messageTokens.supportingTokens.iterator();
         while (supportingTokensIterator.hasNext()) {
             TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent = supportingTokensIterator.next();
+            InboundSecurityToken securityToken = tokenSecurityEvent.getSecurityToken();
             List<InboundSecurityToken> signingSecurityTokens =
-                isSignedToken(tokenSecurityEvent, securityEventDeque, httpsTokenSecurityEvent);
-
-            List<QName> signatureElementPath = new ArrayList<>(4);
-            signatureElementPath.addAll(WSSConstants.WSSE_SECURITY_HEADER_PATH);
-            signatureElementPath.add(WSSConstants.TAG_dsig_Signature);
-            boolean signsSignature = signsElement(tokenSecurityEvent, signatureElementPath, securityEventDeque);
-            boolean encryptsSignature = encryptsElement(tokenSecurityEvent, signatureElementPath, securityEventDeque);
-
-            List<QName> signatureConfirmationElementPath = new ArrayList<>(4);
-            signatureConfirmationElementPath.addAll(WSSConstants.WSSE_SECURITY_HEADER_PATH);
-            signatureConfirmationElementPath.add(WSSConstants.TAG_WSSE11_SIG_CONF);
-            boolean signsSignatureConfirmation =
-                signsElement(tokenSecurityEvent, signatureConfirmationElementPath, securityEventDeque);
-            boolean encryptsSignatureConfirmation =
-                encryptsElement(tokenSecurityEvent, signatureConfirmationElementPath, securityEventDeque);
-
-            List<QName> timestampElementPath = new ArrayList<>(4);
-            timestampElementPath.addAll(WSSConstants.WSSE_SECURITY_HEADER_PATH);
-            timestampElementPath.add(WSSConstants.TAG_WSU_TIMESTAMP);
-            boolean signsTimestamp = signsElement(tokenSecurityEvent, timestampElementPath, securityEventDeque);
-
-            List<QName> usernameTokenElementPath = new ArrayList<>(4);
-            usernameTokenElementPath.addAll(WSSConstants.WSSE_SECURITY_HEADER_PATH);
-            usernameTokenElementPath.add(WSSConstants.TAG_WSSE_USERNAME_TOKEN);
-            boolean encryptsUsernameToken = encryptsElement(tokenSecurityEvent, usernameTokenElementPath, securityEventDeque);
+                isSignedToken(securityToken, tokenGraph, httpsTokenSecurityEvent);
+
+            boolean signsSignature = tokenGraph.signature.isSignedBy(securityToken);
+            boolean encryptsSignature = tokenGraph.signature.isEncryptedBy(securityToken);
+
+            boolean signsSignatureConfirmation = tokenGraph.signatureConfirmation.isSignedBy(securityToken);
+            boolean encryptsSignatureConfirmation = tokenGraph.signatureConfirmation.isEncryptedBy(securityToken);
+
+            boolean signsTimestamp = tokenGraph.timestamp.isSignedBy(securityToken);
+
+            boolean encryptsUsernameToken = tokenGraph.usernameToken.isEncryptedBy(securityToken);
 
             boolean transportSecurityActive = Boolean.TRUE.equals(get(WSSConstants.TRANSPORT_SECURITY_ACTIVE));
 
             List<InboundSecurityToken> encryptingSecurityTokens =
-                isEncryptedToken(tokenSecurityEvent, securityEventDeque, httpsTokenSecurityEvent);
+                isEncryptedToken(securityToken, tokenGraph, httpsTokenSecurityEvent);
 
             boolean signatureUsage =
                 tokenSecurityEvent.getSecurityToken().getTokenUsages().contains(WSSecurityTokenConstants.TokenUsage_Signature);
@@ -387,19 +388,6 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
         return tokenSecurityEventList;
     }
 
-    private boolean containsSecurityToken(List<TokenSecurityEvent<? extends InboundSecurityToken>> supportingTokens,
-                                          SecurityToken securityToken) {
-        if (securityToken != null) {
-            for (int i = 0; i < supportingTokens.size(); i++) {
-                TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent = supportingTokens.get(i);
-                if (tokenSecurityEvent.getSecurityToken().getId().equals(securityToken.getId())) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     private TokenSecurityEvent<? extends InboundSecurityToken> getTokenSecurityEvent(
             InboundSecurityToken securityToken,
             List<TokenSecurityEvent<? extends InboundSecurityToken>> tokenSecurityEvents) throws XMLSecurityException {
@@ -416,34 +404,34 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
 
     private InboundSecurityToken getSupportingTokenSigningToken(
             MessageTokens messageTokens,
-            Deque<SecurityEvent> securityEventDeque
+            TokenGraph tokenGraph
     ) throws XMLSecurityException {
 
         //todo we have to check if the signingTokens also cover the other supporting tokens!
         for (int i = 0; i < messageTokens.signedSupportingTokens.size(); i++) {
             TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent = messageTokens.signedSupportingTokens.get(i);
-            List<? extends InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, securityEventDeque);
+            List<? extends InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, tokenGraph);
             if (signingSecurityTokens.size() == 1) {
                 return signingSecurityTokens.get(0);
             }
         }
         for (int i = 0; i < messageTokens.signedEndorsingSupportingTokens.size(); i++) {
             TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent = messageTokens.signedEndorsingSupportingTokens.get(i);
-            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, securityEventDeque);
+            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, tokenGraph);
             if (signingSecurityTokens.size() == 1) {
                 return signingSecurityTokens.get(0);
             }
         }
         for (int i = 0; i < messageTokens.signedEncryptedSupportingTokens.size(); i++) {
             TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent = messageTokens.signedEncryptedSupportingTokens.get(i);
-            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, securityEventDeque);
+            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, tokenGraph);
             if (signingSecurityTokens.size() == 1) {
                 return signingSecurityTokens.get(0);
             }
         }
         for (int i = 0; i < messageTokens.signedEndorsingEncryptedSupportingTokens.size(); i++) {
             TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent = messageTokens.signedEndorsingEncryptedSupportingTokens.get(i);
-            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, securityEventDeque);
+            List<InboundSecurityToken> signingSecurityTokens = getSigningToken(tokenSecurityEvent, tokenGraph);
             if (signingSecurityTokens.size() == 1) {
                 return signingSecurityTokens.get(0);
             }
@@ -452,20 +440,15 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
     }
 
     private List<InboundSecurityToken> getSigningToken(TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent,
-                                                       Deque<SecurityEvent> securityEventDeque) throws XMLSecurityException {
+                                                       TokenGraph tokenGraph) throws XMLSecurityException {
         List<InboundSecurityToken> signingSecurityTokens = new ArrayList<>();
 
-        for (Iterator<SecurityEvent> iterator = securityEventDeque.iterator(); iterator.hasNext();) {
-            SecurityEvent securityEvent = iterator.next();
-            if (WSSecurityEventConstants.SignedElement.equals(securityEvent.getSecurityEventType())) {
-                SignedElementSecurityEvent signedElementSecurityEvent = (SignedElementSecurityEvent) securityEvent;
-                if (signedElementSecurityEvent.isSigned()
-                        && WSSUtils.pathMatches(
-                        signedElementSecurityEvent.getElementPath(),
-                        ((InboundSecurityToken)tokenSecurityEvent.getSecurityToken()).getElementPath(), true, false)
-                        ) {
-                    signingSecurityTokens.add((InboundSecurityToken)signedElementSecurityEvent.getSecurityToken());
-                }
+        List<QName> elementPath = ((InboundSecurityToken)tokenSecurityEvent.getSecurityToken()).getElementPath();
+        List<SignedElementSecurityEvent> signedElementSecurityEvents = tokenGraph.getSignedElementSecurityEvents(elementPath);
+        for (int i = 0; i < signedElementSecurityEvents.size(); i++) {
+            SignedElementSecurityEvent signedElementSecurityEvent = signedElementSecurityEvents.get(i);
+            if (WSSUtils.pathMatches(signedElementSecurityEvent.getElementPath(), elementPath, true, false)) {
+                signingSecurityTokens.add((InboundSecurityToken)signedElementSecurityEvent.getSecurityToken());
             }
         }
         return signingSecurityTokens;
@@ -487,84 +470,35 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
         tokenSecurityEvent.getSecurityToken().addTokenUsage(tokenUsage);
     }
 
-    private List<InboundSecurityToken> isSignedToken(TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent,
-                                              Deque<SecurityEvent> securityEventDeque,
-                                              HttpsTokenSecurityEvent httpsTokenSecurityEvent) throws XMLSecurityException {
-        List<InboundSecurityToken> securityTokenList = new ArrayList<>();
+    private List<InboundSecurityToken> isSignedToken(InboundSecurityToken securityToken, TokenGraph tokenGraph,
+                                                     HttpsTokenSecurityEvent httpsTokenSecurityEvent) {
         if (httpsTokenSecurityEvent != null) {
+            List<InboundSecurityToken> securityTokenList = new ArrayList<>(1);
             securityTokenList.add(httpsTokenSecurityEvent.getSecurityToken());
             return securityTokenList;
         }
-        for (Iterator<SecurityEvent> iterator = securityEventDeque.iterator(); iterator.hasNext();) {
-            SecurityEvent securityEvent = iterator.next();
-            if (WSSecurityEventConstants.SignedElement.equals(securityEvent.getSecurityEventType())) {
-                SignedElementSecurityEvent signedElementSecurityEvent = (SignedElementSecurityEvent) securityEvent;
-                if (signedElementSecurityEvent.isSigned()
-                        && tokenSecurityEvent.getSecurityToken() != null
-                        && signedElementSecurityEvent.getXmlSecEvent() != null
-                        && signedElementSecurityEvent.getXmlSecEvent()
-                            == ((InboundSecurityToken)tokenSecurityEvent.getSecurityToken()).getXMLSecEvent()
-                        && !securityTokenList.contains((InboundSecurityToken)signedElementSecurityEvent.getSecurityToken())) {
-                    securityTokenList.add((InboundSecurityToken)signedElementSecurityEvent.getSecurityToken());
-                }
-            }
-        }
-        return securityTokenList;
+        return tokenGraph.getProtectingTokens(tokenGraph.signingTokens, securityToken);
     }
 
-    private List<InboundSecurityToken> isEncryptedToken(TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent,
-                                                 Deque<SecurityEvent> securityEventDeque,
-                                                 HttpsTokenSecurityEvent httpsTokenSecurityEvent) throws XMLSecurityException {
-
-        List<InboundSecurityToken> securityTokenList = new ArrayList<>();
+    private List<InboundSecurityToken> isEncryptedToken(InboundSecurityToken securityToken, TokenGraph tokenGraph,
+                                                        HttpsTokenSecurityEvent httpsTokenSecurityEvent) {
         if (httpsTokenSecurityEvent != null) {
+            List<InboundSecurityToken> securityTokenList = new ArrayList<>(1);
             securityTokenList.add(httpsTokenSecurityEvent.getSecurityToken());
             return securityTokenList;
         }
-        for (Iterator<SecurityEvent> iterator = securityEventDeque.iterator(); iterator.hasNext();) {
-            SecurityEvent securityEvent = iterator.next();
-            if (WSSecurityEventConstants.EncryptedElement.equals(securityEvent.getSecurityEventType())) {
-                EncryptedElementSecurityEvent encryptedElementSecurityEvent = (EncryptedElementSecurityEvent) securityEvent;
-                if (encryptedElementSecurityEvent.isEncrypted()
-                        && tokenSecurityEvent.getSecurityToken() != null
-                        && encryptedElementSecurityEvent.getXmlSecEvent() != null
-                        && encryptedElementSecurityEvent.getXmlSecEvent()
-                            == ((InboundSecurityToken)tokenSecurityEvent.getSecurityToken()).getXMLSecEvent()
-                        && !securityTokenList.contains((InboundSecurityToken)encryptedElementSecurityEvent.getSecurityToken())) {
-                    securityTokenList.add((InboundSecurityToken)encryptedElementSecurityEvent.getSecurityToken());
-                }
-            }
-        }
-        return securityTokenList;
+        return tokenGraph.getProtectingTokens(tokenGraph.encryptingTokens, securityToken);
     }
 
-    private boolean signsElement(TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent, List<QName> elementPath,
-                                 Deque<SecurityEvent> securityEventDeque) throws XMLSecurityException {
-        for (Iterator<SecurityEvent> iterator = securityEventDeque.iterator(); iterator.hasNext();) {
-            SecurityEvent securityEvent = iterator.next();
-            if (WSSecurityEventConstants.SignedElement.equals(securityEvent.getSecurityEventType())) {
-                SignedElementSecurityEvent signedElementSecurityEvent = (SignedElementSecurityEvent) securityEvent;
-                if (signedElementSecurityEvent.isSigned()
-                        && matchesTokenOrWrappedTokenId(tokenSecurityEvent.getSecurityToken(),
-                        signedElementSecurityEvent.getSecurityToken().getId(),
-                        SecurityTokenConstants.TokenUsage_Signature)
-                        && WSSUtils.pathMatches(elementPath, signedElementSecurityEvent.getElementPath(), true, false)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean matchesTokenOrWrappedTokenId(
-            SecurityToken securityToken, String id,
+    private static boolean matchesTokenOrWrappedTokenId(
+            SecurityToken securityToken, Set<String> ids,
             SecurityTokenConstants.TokenUsage tokenUsage) throws XMLSecurityException {
-        if (securityToken.getId().equals(id) && securityToken.getTokenUsages().contains(tokenUsage)) {
+        if (ids.contains(securityToken.getId()) && securityToken.getTokenUsages().contains(tokenUsage)) {
             return true;
         }
         List<? extends SecurityToken> wrappedTokens = securityToken.getWrappedTokens();
         for (int i = 0; i < wrappedTokens.size(); i++) {
-            boolean match = matchesTokenOrWrappedTokenId(wrappedTokens.get(i), id, tokenUsage);
+            boolean match = matchesTokenOrWrappedTokenId(wrappedTokens.get(i), ids, tokenUsage);
             if (match) {
                 return match;
             }
@@ -572,33 +506,6 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
         return false;
     }
 
-    private boolean encryptsElement(TokenSecurityEvent<? extends SecurityToken> tokenSecurityEvent, List<QName> elementPath,
-                                    Deque<SecurityEvent> securityEventDeque) throws XMLSecurityException {
-        for (Iterator<SecurityEvent> iterator = securityEventDeque.iterator(); iterator.hasNext();) {
-            SecurityEvent securityEvent = iterator.next();
-            if (WSSecurityEventConstants.EncryptedElement.equals(securityEvent.getSecurityEventType())) {
-                EncryptedElementSecurityEvent encryptedElementSecurityEvent = (EncryptedElementSecurityEvent) securityEvent;
-                if (encryptedElementSecurityEvent.isEncrypted()
-                        && encryptedElementSecurityEvent.getSecurityToken().getId().equals(tokenSecurityEvent.getSecurityToken().getId())
-                        && WSSUtils.pathMatches(elementPath, encryptedElementSecurityEvent.getElementPath(), true, false)) {
-                    return true;
-                }
-            } else if (WSSecurityEventConstants.ContentEncrypted.equals(securityEvent.getSecurityEventType())) {
-                ContentEncryptedElementSecurityEvent contentEncryptedElementSecurityEvent =
-                    (ContentEncryptedElementSecurityEvent) securityEvent;
-                String tokenId = tokenSecurityEvent.getSecurityToken().getId();
-                if (contentEncryptedElementSecurityEvent.isEncrypted()
-                        && contentEncryptedElementSecurityEvent.getSecurityToken().getId().equals(tokenId)
-                        && contentEncryptedElementSecurityEvent.getXmlSecEvent()
-                            == ((InboundSecurityToken)tokenSecurityEvent.getSecurityToken()).getXMLSecEvent()
-                        && WSSUtils.pathMatches(elementPath, contentEncryptedElementSecurityEvent.getElementPath(), true, false)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     @Override
     public void handleBSPRule(BSPRule bspRule) throws WSSecurityException {
         if (disableBSPEnforcement) {
@@ -647,4 +554,181 @@ public class InboundWSSecurityContextImpl extends InboundSecurityContextImpl imp
         List<TokenSecurityEvent<? extends InboundSecurityToken>> endorsingEncryptedSupportingTokens = Collections.emptyList();
         List<TokenSecurityEvent<? extends InboundSecurityToken>> signedEndorsingEncryptedSupportingTokens = Collections.emptyList();
     }
+
+    private static List<QName> getSecurityHeaderChildPath(QName elementName) {
+        List<QName> elementPath = new ArrayList<>(WSSConstants.WSSE_SECURITY_HEADER_PATH.size() + 1);
+        elementPath.addAll(WSSConstants.WSSE_SECURITY_HEADER_PATH);
+        elementPath.add(elementName);
+        return Collections.unmodifiableList(elementPath);
+    }
+
+    /**
+     * The dependencies between the tokens and the protected parts of a message. It is built in a single pass
+     * over the queued SecurityEvents, so that every token can be classified by lookups instead of by searching
+     * the queue again. Tokens are matched to the elements they were parsed from by the identity of the XMLSecEvent
+     * of the token, and to the security header elements they sign or encrypt by their id.
+     */
+    private static class TokenGraph {
+        private static final List<QName> SIGNATURE_PATH = getSecurityHeaderChildPath(WSSConstants.TAG_dsig_Signature);
+        private static final List<QName> SIGNATURE_CONFIRMATION_PATH = getSecurityHeaderChildPath(WSSConstants.TAG_WSSE11_SIG_CONF);
+        private static final List<QName> TIMESTAMP_PATH = getSecurityHeaderChildPath(WSSConstants.TAG_WSU_TIMESTAMP);
+        private static final List<QName> USERNAME_TOKEN_PATH = getSecurityHeaderChildPath(WSSConstants.TAG_WSSE_USERNAME_TOKEN);
+
+        final Map<XMLSecEvent, List<InboundSecurityToken>> signingTokens = new IdentityHashMap<>();
+        final Map<XMLSecEvent, List<InboundSecurityToken>> encryptingTokens = new IdentityHashMap<>();
+        //the signed elements by the local name of the element, see getSignedElementSecurityEvents
+        final Map<String, List<SignedElementSecurityEvent>> signedElementSecurityEvents = new HashMap<>();
+
+        final ProtectedElement signature = new ProtectedElement(SIGNATURE_PATH);
+        final ProtectedElement signatureConfirmation = new ProtectedElement(SIGNATURE_CONFIRMATION_PATH);
+        final ProtectedElement timestamp = new ProtectedElement(TIMESTAMP_PATH);
+        final ProtectedElement usernameToken = new ProtectedElement(USERNAME_TOKEN_PATH);
+
+        void add(SecurityEvent securityEvent) {
+            SecurityEventConstants.Event securityEventType = securityEvent.getSecurityEventType();
+            if (WSSecurityEventConstants.SignedElement.equals(securityEventType)) {
+                SignedElementSecurityEvent signedElementSecurityEvent = (SignedElementSecurityEvent) securityEvent;
+                if (!signedElementSecurityEvent.isSigned()) {
+                    return;
+                }
+                InboundSecurityToken securityToken = (InboundSecurityToken)signedElementSecurityEvent.getSecurityToken();
+                addProtectingToken(signingTokens, signedElementSecurityEvent.getXmlSecEvent(), securityToken);
+
+                List<QName> elementPath = signedElementSecurityEvent.getElementPath();
+                String localName = getLocalName(elementPath);
+                List<SignedElementSecurityEvent> signedElements = signedElementSecurityEvents.get(localName);
+                if (signedElements == null) {
+                    signedElements = new ArrayList<>(1);
+                    signedElementSecurityEvents.put(localName, signedElements);
+                }
+                signedElements.add(signedElementSecurityEvent);
+                signature.addSigningToken(elementPath, securityToken);
+                signatureConfirmation.addSigningToken(elementPath, securityToken);
+                timestamp.addSigningToken(elementPath, securityToken);
+            } else if (WSSecurityEventConstants.EncryptedElement.equals(securityEventType)) {
+                EncryptedElementSecurityEvent encryptedElementSecurityEvent = (EncryptedElementSecurityEvent) securityEvent;
+                if (!encryptedElementSecurityEvent.isEncrypted()) {
+                    return;
+                }
+                InboundSecurityToken securityToken = (InboundSecurityToken)encryptedElementSecurityEvent.getSecurityToken();
+                addProtectingToken(encryptingTokens, encryptedElementSecurityEvent.getXmlSecEvent(), securityToken);
+
+                List<QName> elementPath = encryptedElementSecurityEvent.getElementPath();
+                signature.addEncryptingToken(elementPath, null, securityToken, false);
+                signatureConfirmation.addEncryptingToken(elementPath, null, securityToken, false);
+                usernameToken.addEncryptingToken(elementPath, null, securityToken, false);
+            } else if (WSSecurityEventConstants.ContentEncrypted.equals(securityEventType)) {
+                ContentEncryptedElementSecurityEvent contentEncryptedElementSecurityEvent =
+                    (ContentEncryptedElementSecurityEvent) securityEvent;
+                if (!contentEncryptedElementSecurityEvent.isEncrypted()) {
+                    return;
+                }
+                SecurityToken securityToken = contentEncryptedElementSecurityEvent.getSecurityToken();
+                XMLSecEvent xmlSecEvent = contentEncryptedElementSecurityEvent.getXmlSecEvent();
+
+                List<QName> elementPath = contentEncryptedElementSecurityEvent.getElementPath();
+                signature.addEncryptingToken(elementPath, xmlSecEvent, securityToken, true);
+                signatureConfirmation.addEncryptingToken(elementPath, xmlSecEvent, securityToken, true);
+                usernameToken.addEncryptingToken(elementPath, xmlSecEvent, securityToken, true);
+            }
+        }
+
+        /**
+         * @return the signed elements which may match the given element path. Only the ones with the same
+         * local name are returned, they still have to be matched against the path with WSSUtils.pathMatches.
+         */
+        List<SignedElementSecurityEvent> getSignedElementSecurityEvents(List<QName> elementPath) {
+            List<SignedElementSecurityEvent> signedElements = signedElementSecurityEvents.get(getLocalName(elementPath));
+            if (signedElements == null) {
+                return Collections.emptyList();
+            }
+            return signedElements;
+        }
+
+        private static String getLocalName(List<QName> elementPath) {
+            if (elementPath == null || elementPath.isEmpty()) {
+                return null;
+            }
+            return elementPath.get(elementPath.size() - 1).getLocalPart();
+        }
+
+        List<InboundSecurityToken> getProtectingTokens(Map<XMLSecEvent, List<InboundSecurityToken>> protectingTokens,
+                                                       InboundSecurityToken securityToken) {
+            if (securityToken == null || securityToken.getXMLSecEvent() == null) {
+                return Collections.emptyList();
+            }
+            List<InboundSecurityToken> securityTokenList = protectingTokens.get(securityToken.getXMLSecEvent());
+            if (securityTokenList == null) {
+                return Collections.emptyList();
+            }
+            return securityTokenList;
+        }
+
+        private static void addProtectingToken(Map<XMLSecEvent, List<InboundSecurityToken>> protectingTokens,
+                                               XMLSecEvent xmlSecEvent, InboundSecurityToken securityToken) {
+            if (xmlSecEvent == null) {
+                return;
+            }
+            List<InboundSecurityToken> securityTokenList = protectingTokens.get(xmlSecEvent);
+            if (securityTokenList == null) {
+                securityTokenList = new ArrayList<>(1);
+                protectingTokens.put(xmlSecEvent, securityTokenList);
+            }
+            if (!securityTokenList.contains(securityToken)) {
+                securityTokenList.add(securityToken);
+            }
+        }
+    }
+
+    /**
+     * The ids of the tokens that sign or encrypt a security header element.
+     */
+    private static class ProtectedElement {
+        private final List<QName> elementPath;
+        private final Set<String> signingTokenIds = new HashSet<>();
+        private final Set<String> encryptingTokenIds = new HashSet<>();
+        //the tokens that encrypt the content of the element, by the XMLSecEvent they must have been parsed from
+        private final Map<XMLSecEvent, Set<String>> contentEncryptingTokenIds = new IdentityHashMap<>();
+
+        ProtectedElement(List<QName> elementPath) {
+            this.elementPath = elementPath;
+        }
+
+        void addSigningToken(List<QName> signedElementPath, SecurityToken securityToken) {
+            if (securityToken != null && WSSUtils.pathMatches(elementPath, signedElementPath, true, false)) {
+                signingTokenIds.add(securityToken.getId());
+            }
+        }
+
+        void addEncryptingToken(List<QName> encryptedElementPath, XMLSecEvent xmlSecEvent,
+                                SecurityToken securityToken, boolean content) {
+            if (securityToken == null || !WSSUtils.pathMatches(elementPath, encryptedElementPath, true, false)) {
+                return;
+            }
+            if (!content) {
+                encryptingTokenIds.add(securityToken.getId());
+                return;
+            }
+            Set<String> tokenIds = contentEncryptingTokenIds.get(xmlSecEvent);
+            if (tokenIds == null) {
+                tokenIds = new HashSet<>();
+                contentEncryptingTokenIds.put(xmlSecEvent, tokenIds);
+            }
+            tokenIds.add(securityToken.getId());
+        }
+
+        boolean isSignedBy(SecurityToken securityToken) throws XMLSecurityException {
+            return !signingTokenIds.isEmpty()
+                && matchesTokenOrWrappedTokenId(securityToken, signingTokenIds, SecurityTokenConstants.TokenUsage_Signature);
+        }
+
+        boolean isEncryptedBy(InboundSecurityToken securityToken) {
+            String tokenId = securityToken.getId();
+            if (encryptingTokenIds.contains(tokenId)) {
+                return true;
+            }
+            Set<String> tokenIds = contentEncryptingTokenIds.get(securityToken.getXMLSecEvent());
+            return tokenIds != null && tokenIds.contains(tokenId);
+        }
+    }
 }
@@ -27,6 +27,9 @@ import javax.xml.namespace.QName;
 import org.apache.wss4j.binding.wss10.BinarySecurityTokenType;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -42,7 +45,6 @@ import org.apache.xml.security.stax.ext.AbstractInputSecurityHeaderHandler;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityToken;
@@ -63,7 +65,7 @@ public class BinarySecurityTokenInputHandler extends AbstractInputSecurityHeader
         checkBSPCompliance(inputProcessorChain, binarySecurityTokenType);
 
         if (binarySecurityTokenType.getId() == null) {
-            binarySecurityTokenType.setId(IDGenerator.generateID(null));
+            binarySecurityTokenType.setId(WSRandom.generateId(null));
         }
 
         final WSInboundSecurityContext wsInboundSecurityContext =
@@ -80,8 +82,16 @@ public class BinarySecurityTokenInputHandler extends AbstractInputSecurityHeader
         if (binarySecurityTokenValidator == null) {
             binarySecurityTokenValidator = new BinarySecurityTokenValidatorImpl();
         }
-        final InboundSecurityToken binarySecurityToken =
-                binarySecurityTokenValidator.validate(binarySecurityTokenType, tokenContext);
+        SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                SecurityStage.VALIDATOR, WSSConstants.TAG_WSSE_BINARY_SECURITY_TOKEN.getLocalPart());
+        boolean success = false;
+        final InboundSecurityToken binarySecurityToken;
+        try {
+            binarySecurityToken = binarySecurityTokenValidator.validate(binarySecurityTokenType, tokenContext);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
 
         SecurityTokenProvider<InboundSecurityToken> securityTokenProvider = new SecurityTokenProvider<InboundSecurityToken>() {
             @Override
@@ -45,8 +45,11 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.wss4j.binding.wss10.ObjectFactory;
 import org.apache.wss4j.binding.wss10.SecurityTokenReferenceType;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.common.saml.OpenSAMLUtil;
 import org.apache.wss4j.common.saml.SamlAssertionWrapper;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -76,7 +79,6 @@ import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.XMLSecurityEventReader;
 import org.apache.xml.security.stax.impl.securityToken.AbstractInboundSecurityToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
 import org.apache.xml.security.stax.securityEvent.SignedElementSecurityEvent;
@@ -146,7 +148,15 @@ public class SAMLTokenInputHandler extends AbstractInputSecurityHeaderHandler {
                 throw new WSSecurityException(WSSecurityException.ErrorCode.INVALID_SECURITY_TOKEN, "noKeyInSAMLToken");
             }
 
-            samlTokenValidator.validate(sigSecurityToken, wssSecurityProperties);
+            SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                    SecurityStage.VALIDATOR, samlElement.getLocalName());
+            boolean success = false;
+            try {
+                samlTokenValidator.validate(sigSecurityToken, wssSecurityProperties);
+                success = true;
+            } finally {
+                SecurityTimer.stop(timer, success);
+            }
 
             BasicCredential credential = null;
             if (sigSecurityToken.getX509Certificates() != null) {
@@ -199,8 +209,16 @@ public class SAMLTokenInputHandler extends AbstractInputSecurityHeaderHandler {
         final TokenContext tokenContext =
             new TokenContext(wssSecurityProperties, wsInboundSecurityContext, xmlSecEvents, elementPath);
 
-        final SamlSecurityToken samlSecurityToken =
-                samlTokenValidator.validate(samlAssertionWrapper, subjectSecurityToken, tokenContext);
+        SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                SecurityStage.VALIDATOR, samlElement.getLocalName());
+        boolean success = false;
+        final SamlSecurityToken samlSecurityToken;
+        try {
+            samlSecurityToken = samlTokenValidator.validate(samlAssertionWrapper, subjectSecurityToken, tokenContext);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
 
         SecurityTokenProvider<InboundSecurityToken> subjectSecurityTokenProvider =
                 new SecurityTokenProvider<InboundSecurityToken>() {
@@ -328,7 +346,7 @@ public class SAMLTokenInputHandler extends AbstractInputSecurityHeaderHandler {
             }
 
             return new AbstractInboundSecurityToken(
-                    inputProcessorChain.getSecurityContext(), IDGenerator.generateID(null),
+                    inputProcessorChain.getSecurityContext(), WSRandom.generateId(null),
                     WSSecurityTokenConstants.KeyIdentifier_NoKeyInfo, true) {
                 @Override
                 public WSSecurityTokenConstants.TokenType getTokenType() {
@@ -19,6 +19,9 @@
 package org.apache.wss4j.stax.impl.processor.input;
 
 import org.apache.wss4j.binding.wssc.AbstractSecurityContextTokenType;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -29,7 +32,6 @@ import org.apache.wss4j.stax.validate.TokenContext;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.*;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 
@@ -52,7 +54,7 @@ public class SecurityContextTokenInputHandler extends AbstractInputSecurityHeade
                 ((JAXBElement<AbstractSecurityContextTokenType>) parseStructure(eventQueue, index, securityProperties));
         final AbstractSecurityContextTokenType securityContextTokenType = securityContextTokenTypeJAXBElement.getValue();
         if (securityContextTokenType.getId() == null) {
-            securityContextTokenType.setId(IDGenerator.generateID(null));
+            securityContextTokenType.setId(WSRandom.generateId(null));
         }
 
         final QName elementName = new QName(securityContextTokenTypeJAXBElement.getName().getNamespaceURI(),
@@ -73,8 +75,16 @@ public class SecurityContextTokenInputHandler extends AbstractInputSecurityHeade
         if (securityContextTokenValidator == null) {
             securityContextTokenValidator = new SecurityContextTokenValidatorImpl();
         }
-        final InboundSecurityToken securityContextToken =
-                securityContextTokenValidator.validate(securityContextTokenType, identifier, tokenContext);
+        SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                SecurityStage.VALIDATOR, elementName.getLocalPart());
+        boolean success = false;
+        final InboundSecurityToken securityContextToken;
+        try {
+            securityContextToken = securityContextTokenValidator.validate(securityContextTokenType, identifier, tokenContext);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
 
         SecurityTokenProvider<InboundSecurityToken> securityTokenProvider =
                 new SecurityTokenProvider<InboundSecurityToken>() {
@@ -20,6 +20,7 @@ package org.apache.wss4j.stax.impl.processor.input;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.List;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
@@ -27,6 +28,9 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -38,11 +42,12 @@ import org.apache.xml.security.stax.ext.AbstractInputProcessor;
 import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityHeaderHandler;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
+import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
 import org.apache.xml.security.stax.ext.stax.XMLSecEndElement;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
+import org.apache.xml.security.stax.ext.stax.XMLSecNamespace;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.processor.input.XMLEventReaderInputProcessor;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 
 /**
  * Processor for the Security-Header XML Structure.
@@ -71,6 +76,23 @@ public class SecurityHeaderInputProcessor extends AbstractInputProcessor {
     public XMLSecEvent processNextEvent(InputProcessorChain inputProcessorChain)
             throws XMLStreamException, XMLSecurityException {
 
+        WSSSecurityProperties securityProperties = (WSSSecurityProperties) getSecurityProperties();
+        String actor = securityProperties.getActor();
+        SecurityTimer timer = SecurityTimer.start(securityProperties.getInstrumentation(),
+                SecurityStage.SECURITY_HEADER, actor == null ? "" : actor);
+        boolean success = false;
+        try {
+            XMLSecEvent xmlSecEvent = processSecurityHeader(inputProcessorChain);
+            success = true;
+            return xmlSecEvent;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
+    }
+
+    private XMLSecEvent processSecurityHeader(InputProcessorChain inputProcessorChain)
+            throws XMLStreamException, XMLSecurityException {
+
         //buffer all events until the end of the security header
         final InputProcessorChain subInputProcessorChain = inputProcessorChain.createSubChain(this);
         final InternalSecurityHeaderBufferProcessor internalSecurityHeaderBufferProcessor
@@ -170,7 +192,7 @@ public class SecurityHeaderInputProcessor extends AbstractInputProcessor {
         //if we reach this state we didn't find a security header
         //issue a security event to notify about this fact:
         NoSecuritySecurityEvent noSecuritySecurityEvent = new NoSecuritySecurityEvent();
-        noSecuritySecurityEvent.setCorrelationID(IDGenerator.generateID(null));
+        noSecuritySecurityEvent.setCorrelationID(WSRandom.generateId(null));
         inputProcessorChain.getSecurityContext().registerSecurityEvent(noSecuritySecurityEvent);
 
         return finalizeHeaderProcessing(
@@ -213,37 +235,95 @@ public class SecurityHeaderInputProcessor extends AbstractInputProcessor {
             LOG.warn("No matching handler found for " + elementName);
             return;
         }
+        SecurityTimer timer = SecurityTimer.start(((WSSSecurityProperties) securityProperties).getInstrumentation(),
+                SecurityStage.PROCESSOR, elementName.getLocalPart());
+        boolean success = false;
         try {
             XMLSecurityHeaderHandler xmlSecurityHeaderHandler = clazz.newInstance();
             xmlSecurityHeaderHandler.handle(inputProcessorChain, securityProperties, eventQueue, index);
+            success = true;
         } catch (InstantiationException | IllegalAccessException e) {
             throw new WSSecurityException(WSSecurityException.ErrorCode.INVALID_SECURITY, e);
         } catch (WSSecurityException e) {
             throw e;
         } catch (XMLSecurityException e) {
             throw new WSSecurityException(WSSecurityException.ErrorCode.INVALID_SECURITY, e);
+        } finally {
+            SecurityTimer.stop(timer, success);
         }
     }
 
     /**
-     * Temporary Processor to buffer all events until the end of the security header
+     * Temporary Processor to buffer all events until the end of the security header.
+     * The count and the size of the buffered events are checked against the configured limits.
      */
     public class InternalSecurityHeaderBufferProcessor extends AbstractInputProcessor {
 
+        private final int maximumEvents;
+        private final long maximumSize;
+        private long bufferedSize;
+
         InternalSecurityHeaderBufferProcessor(XMLSecurityProperties securityProperties) {
             super(securityProperties);
             setPhase(WSSConstants.Phase.POSTPROCESSING);
             addBeforeProcessor(SecurityHeaderInputProcessor.class.getName());
+            maximumEvents = ((WSSSecurityProperties) securityProperties).getMaximumSecurityHeaderEvents();
+            maximumSize = ((WSSSecurityProperties) securityProperties).getMaximumSecurityHeaderSize();
         }
 
         @Override
         public XMLSecEvent processNextHeaderEvent(InputProcessorChain inputProcessorChain)
                 throws XMLStreamException, XMLSecurityException {
             XMLSecEvent xmlSecEvent = inputProcessorChain.processHeaderEvent();
+            if (maximumEvents > 0 && xmlSecEventList.size() >= maximumEvents) {
+                throw new WSSecurityException(WSSecurityException.ErrorCode.INVALID_SECURITY,
+                        "securityHeaderTooManyEvents", new Object[] {maximumEvents});
+            }
+            if (maximumSize > 0) {
+                bufferedSize += getSize(xmlSecEvent);
+                if (bufferedSize > maximumSize) {
+                    throw new WSSecurityException(WSSecurityException.ErrorCode.INVALID_SECURITY,
+                            "securityHeaderTooLarge", new Object[] {maximumSize});
+                }
+            }
             xmlSecEventList.push(xmlSecEvent);
             return xmlSecEvent;
         }
 
+        /**
+         * Returns the number of characters of the names, namespaces, attribute values and text of an event
+         */
+        private long getSize(XMLSecEvent xmlSecEvent) {
+            switch (xmlSecEvent.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    XMLSecStartElement xmlSecStartElement = xmlSecEvent.asStartElement();
+                    long size = getSize(xmlSecStartElement.getName());
+                    List<XMLSecNamespace> namespaces = xmlSecStartElement.getOnElementDeclaredNamespaces();
+                    for (int i = 0; i < namespaces.size(); i++) {
+                        XMLSecNamespace namespace = namespaces.get(i);
+                        size += namespace.getPrefix().length() + namespace.getNamespaceURI().length();
+                    }
+                    List<XMLSecAttribute> attributes = xmlSecStartElement.getOnElementDeclaredAttributes();
+                    for (int i = 0; i < attributes.size(); i++) {
+                        XMLSecAttribute attribute = attributes.get(i);
+                        size += getSize(attribute.getName()) + attribute.getValue().length();
+                    }
+                    return size;
+                case XMLStreamConstants.END_ELEMENT:
+                    return getSize(xmlSecEvent.asEndElement().getName());
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    return xmlSecEvent.asCharacters().getText().length;
+                default:
+                    return 0;
+            }
+        }
+
+        private long getSize(QName name) {
+            return name.getPrefix().length() + name.getLocalPart().length() + name.getNamespaceURI().length();
+        }
+
         @Override
         public XMLSecEvent processNextEvent(InputProcessorChain inputProcessorChain)
                 throws XMLStreamException, XMLSecurityException {
@@ -21,6 +21,9 @@ package org.apache.wss4j.stax.impl.processor.input;
 import org.apache.wss4j.binding.wsu10.TimestampType;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -34,7 +37,6 @@ import org.apache.xml.security.stax.ext.InputProcessorChain;
 import org.apache.xml.security.stax.ext.XMLSecurityProperties;
 import org.apache.xml.security.stax.ext.XMLSecurityUtils;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
@@ -75,7 +77,7 @@ public class TimestampInputHandler extends AbstractInputSecurityHeaderHandler {
         checkBSPCompliance(inputProcessorChain, timestampType, xmlSecEvents);
 
         if (timestampType.getId() == null) {
-            timestampType.setId(IDGenerator.generateID(null));
+            timestampType.setId(WSRandom.generateId(null));
         }
 
         TimestampValidator timestampValidator = wssSecurityProperties.getValidator(WSSConstants.TAG_WSU_TIMESTAMP);
@@ -83,7 +85,15 @@ public class TimestampInputHandler extends AbstractInputSecurityHeaderHandler {
             timestampValidator = new TimestampValidatorImpl();
         }
         TokenContext tokenContext = new TokenContext(wssSecurityProperties, wssecurityContextInbound, xmlSecEvents, elementPath);
-        timestampValidator.validate(timestampType, tokenContext);
+        SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                SecurityStage.VALIDATOR, WSSConstants.TAG_WSU_TIMESTAMP.getLocalPart());
+        boolean success = false;
+        try {
+            timestampValidator.validate(timestampType, tokenContext);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
 
         TimestampSecurityEvent timestampSecurityEvent = new TimestampSecurityEvent();
         if (timestampType.getCreated() != null) {
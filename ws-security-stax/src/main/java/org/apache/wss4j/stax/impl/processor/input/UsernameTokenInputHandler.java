@@ -25,7 +25,10 @@ import org.apache.wss4j.binding.wsu10.AttributedDateTime;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.cache.ReplayCache;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.common.util.DateUtil;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -37,7 +40,6 @@ import org.apache.wss4j.stax.validate.UsernameTokenValidatorImpl;
 import org.apache.xml.security.exceptions.XMLSecurityException;
 import org.apache.xml.security.stax.ext.*;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 
@@ -69,7 +71,7 @@ public class UsernameTokenInputHandler extends AbstractInputSecurityHeaderHandle
         checkBSPCompliance(inputProcessorChain, usernameTokenType, xmlSecEvents);
 
         if (usernameTokenType.getId() == null) {
-            usernameTokenType.setId(IDGenerator.generateID(null));
+            usernameTokenType.setId(WSRandom.generateId(null));
         }
 
         // Verify Created
@@ -109,8 +111,16 @@ public class UsernameTokenInputHandler extends AbstractInputSecurityHeaderHandle
         if (usernameTokenValidator == null) {
             usernameTokenValidator = new UsernameTokenValidatorImpl();
         }
-        final UsernameSecurityToken usernameSecurityToken =
-                usernameTokenValidator.validate(usernameTokenType, tokenContext);
+        SecurityTimer timer = SecurityTimer.start(wssSecurityProperties.getInstrumentation(),
+                SecurityStage.VALIDATOR, WSSConstants.TAG_WSSE_USERNAME_TOKEN.getLocalPart());
+        boolean success = false;
+        final UsernameSecurityToken usernameSecurityToken;
+        try {
+            usernameSecurityToken = usernameTokenValidator.validate(usernameTokenType, tokenContext);
+            success = true;
+        } finally {
+            SecurityTimer.stop(timer, success);
+        }
 
         SecurityTokenProvider<InboundSecurityToken> securityTokenProvider =
                 new SecurityTokenProvider<InboundSecurityToken>() {
@@ -25,6 +25,8 @@ import java.util.List;
 import org.apache.wss4j.binding.wss10.SecurityTokenReferenceType;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -176,7 +178,15 @@ public class WSSSignatureInputHandler extends AbstractSignatureInputHandler {
             if (signatureTokenValidator == null) {
                 signatureTokenValidator = new SignatureTokenValidatorImpl();
             }
-            signatureTokenValidator.validate(inboundSecurityToken, (WSSSecurityProperties) securityProperties);
+            SecurityTimer timer = SecurityTimer.start(((WSSSecurityProperties) securityProperties).getInstrumentation(),
+                    SecurityStage.VALIDATOR, WSSConstants.TAG_dsig_Signature.getLocalPart());
+            boolean success = false;
+            try {
+                signatureTokenValidator.validate(inboundSecurityToken, (WSSSecurityProperties) securityProperties);
+                success = true;
+            } finally {
+                SecurityTimer.stop(timer, success);
+            }
 
             //we have to emit a TokenSecurityEvent here too since it could be an embedded token
             inboundSecurityToken.addTokenUsage(WSSecurityTokenConstants.TokenUsage_Signature);
@@ -41,6 +41,7 @@ import org.apache.wss4j.common.ext.AttachmentRequestCallback;
 import org.apache.wss4j.common.ext.AttachmentResultCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.util.AttachmentUtils;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
@@ -59,7 +60,6 @@ import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.EncryptionPartDef;
 import org.apache.xml.security.stax.impl.processor.output.AbstractEncryptOutputProcessor;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenConstants.KeyIdentifier;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
@@ -104,7 +104,7 @@ public class EncryptOutputProcessor extends AbstractEncryptOutputProcessor {
                     EncryptionPartDef encryptionPartDef = new EncryptionPartDef();
                     encryptionPartDef.setSecurePart(securePart);
                     encryptionPartDef.setModifier(securePart.getModifier());
-                    encryptionPartDef.setEncRefId(IDGenerator.generateID(null));
+                    encryptionPartDef.setEncRefId(WSRandom.generateId(null));
 
                     Map<Object, SecurePart> dynamicSecureParts =
                         outputProcessorChain.getSecurityContext().getAsMap(WSSConstants.SIGNATURE_PARTS);
@@ -247,7 +247,7 @@ public class EncryptOutputProcessor extends AbstractEncryptOutputProcessor {
                 encryptionPartDef.setModifier(attachmentSecurePart.getModifier());
                 encryptionPartDef.setCipherReferenceId(attachment.getId());
                 encryptionPartDef.setMimeType(attachment.getMimeType());
-                encryptionPartDef.setEncRefId(IDGenerator.generateID(null));
+                encryptionPartDef.setEncRefId(WSRandom.generateId(null));
                 encryptionPartDef.setKeyId(securityTokenProvider.getId());
                 encryptionPartDef.setSymmetricKey(securityToken.getSecretKey(getSecurityProperties().getEncryptionSymAlgorithm()));
                 outputProcessorChain.getSecurityContext().putAsList(EncryptionPartDef.class, encryptionPartDef);
@@ -414,28 +414,28 @@ public class EncryptOutputProcessor extends AbstractEncryptOutputProcessor {
                 boolean isSAMLToken = false;
                 if (WSSecurityTokenConstants.KERBEROS_TOKEN.equals(securityToken.getTokenType())) {
                     List<XMLSecAttribute> attributes = new ArrayList<>(2);
-                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, IDGenerator.generateID(null)));
+                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, WSRandom.generateId(null)));
                     attributes.add(createAttribute(WSSConstants.ATT_WSSE11_TOKEN_TYPE, WSSConstants.NS_GSS_KERBEROS5_AP_REQ));
                     createStartElementAndOutputAsEvent(outputProcessorChain, WSSConstants.TAG_WSSE_SECURITY_TOKEN_REFERENCE,
                                                        false, attributes);
                 } else if (WSSecurityTokenConstants.SAML_10_TOKEN.equals(securityToken.getTokenType())
                     || WSSecurityTokenConstants.SAML_11_TOKEN.equals(securityToken.getTokenType())) {
                     List<XMLSecAttribute> attributes = new ArrayList<>(2);
-                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, IDGenerator.generateID(null)));
+                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, WSRandom.generateId(null)));
                     attributes.add(createAttribute(WSSConstants.ATT_WSSE11_TOKEN_TYPE, WSSConstants.NS_SAML11_TOKEN_PROFILE_TYPE));
                     createStartElementAndOutputAsEvent(outputProcessorChain, WSSConstants.TAG_WSSE_SECURITY_TOKEN_REFERENCE,
                                                        false, attributes);
                     isSAMLToken = true;
                 } else if (WSSecurityTokenConstants.SAML_20_TOKEN.equals(securityToken.getTokenType())) {
                     List<XMLSecAttribute> attributes = new ArrayList<>(2);
-                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, IDGenerator.generateID(null)));
+                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, WSRandom.generateId(null)));
                     attributes.add(createAttribute(WSSConstants.ATT_WSSE11_TOKEN_TYPE, WSSConstants.NS_SAML20_TOKEN_PROFILE_TYPE));
                     createStartElementAndOutputAsEvent(outputProcessorChain, WSSConstants.TAG_WSSE_SECURITY_TOKEN_REFERENCE,
                                                        false, attributes);
                     isSAMLToken = true;
                 } else if (WSSecurityTokenConstants.EncryptedKeyToken.equals(securityToken.getTokenType())) {
                     List<XMLSecAttribute> attributes = new ArrayList<>(2);
-                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, IDGenerator.generateID(null)));
+                    attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, WSRandom.generateId(null)));
                     attributes.add(createAttribute(WSSConstants.ATT_WSSE11_TOKEN_TYPE, WSSConstants.NS_WSS_ENC_KEY_VALUE_TYPE));
                     createStartElementAndOutputAsEvent(outputProcessorChain, WSSConstants.TAG_WSSE_SECURITY_TOKEN_REFERENCE,
                                                        false, attributes);
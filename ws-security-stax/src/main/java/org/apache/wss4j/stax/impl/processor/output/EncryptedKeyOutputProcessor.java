@@ -41,8 +41,10 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
@@ -55,7 +57,6 @@ import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 
@@ -274,71 +275,44 @@ public class EncryptedKeyOutputProcessor extends AbstractOutputProcessor {
                 createStartElementAndOutputAsEvent(subOutputProcessorChain, WSSConstants.TAG_xenc_CipherData, false, null);
                 createStartElementAndOutputAsEvent(subOutputProcessorChain, WSSConstants.TAG_xenc_CipherValue, false, null);
 
-                try {
-                    //encrypt the symmetric session key with the public key from the receiver:
-                    String jceid = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportAlgorithm);
-                    Cipher cipher = Cipher.getInstance(jceid);
-
-                    AlgorithmParameterSpec algorithmParameterSpec = null;
-                    if (XMLSecurityConstants.NS_XENC11_RSAOAEP.equals(encryptionKeyTransportAlgorithm)
-                        || XMLSecurityConstants.NS_XENC_RSAOAEPMGF1P.equals(encryptionKeyTransportAlgorithm)) {
-
-                        String jceDigestAlgorithm = "SHA-1";
-                        String encryptionKeyTransportDigestAlgorithm =
-                            getSecurityProperties().getEncryptionKeyTransportDigestAlgorithm();
-                        if (encryptionKeyTransportDigestAlgorithm != null) {
-                            jceDigestAlgorithm = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportDigestAlgorithm);
-                        }
-
-                        PSource.PSpecified pSource = PSource.PSpecified.DEFAULT;
-                        byte[] oaepParams = getSecurityProperties().getEncryptionKeyTransportOAEPParams();
-                        if (oaepParams != null) {
-                            pSource = new PSource.PSpecified(oaepParams);
-                        }
-
-                        MGF1ParameterSpec mgfParameterSpec = new MGF1ParameterSpec("SHA-1");
-                        if (encryptionKeyTransportMGFAlgorithm != null) {
-                            String jceMGFAlgorithm = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportMGFAlgorithm);
-                            mgfParameterSpec = new MGF1ParameterSpec(jceMGFAlgorithm);
-                        }
-                        algorithmParameterSpec = new OAEPParameterSpec(jceDigestAlgorithm, "MGF1", mgfParameterSpec, pSource);
+                Key secretKey = securityToken.getSecretKey("");
+                WSSSecurityProperties securityProperties = (WSSSecurityProperties) getSecurityProperties();
+                EncryptedKeySession encryptedKeySession = securityProperties.getEncryptedKeySession();
+                byte[] encryptedEphemeralKey = null;
+                if (encryptedKeySession != null) {
+                    // the key acquired from the session by OutboundWSSec. It is not looked up in the
+                    // session again, as another message might have retired it in the meantime
+                    EncryptedKeySession.SessionKey sessionKey =
+                        outputProcessorChain.getSecurityContext().get(WSSConstants.PROP_ENCRYPTED_KEY_SESSION_KEY);
+                    if (sessionKey != null && sessionKey.getKey() == secretKey) {
+                        encryptedEphemeralKey = sessionKey.getEncryptedKey();
                     }
+                }
 
-                    cipher.init(Cipher.WRAP_MODE, publicKey, algorithmParameterSpec);
-
-                    Key secretKey = securityToken.getSecretKey("");
-
-                    int blockSize = cipher.getBlockSize();
-                    if (blockSize > 0 && blockSize < secretKey.getEncoded().length) {
-                        throw new WSSecurityException(
-                                WSSecurityException.ErrorCode.FAILURE,
-                                "unsupportedKeyTransp",
-                                new Object[] {"public key algorithm too weak to encrypt symmetric key"}
-                        );
-                    }
-                    byte[] encryptedEphemeralKey = cipher.wrap(secretKey);
-
-                    if (((WSSSecurityProperties)getSecurityProperties()).getCallbackHandler() != null) {
-                        // Store the Encrypted Key in the CallbackHandler for processing on the inbound side
-                        WSPasswordCallback callback =
-                            new WSPasswordCallback(securityToken.getId(), WSPasswordCallback.SECRET_KEY);
-                        callback.setKey(encryptedEphemeralKey);
-                        try {
-                            ((WSSSecurityProperties)getSecurityProperties()).getCallbackHandler().handle(new Callback[]{callback});
-                        } catch (IOException | UnsupportedCallbackException e) { // NOPMD
-                            // Do nothing
-                        }
+                if (encryptedEphemeralKey == null) {
+                    encryptedEphemeralKey = wrapKey(publicKey, secretKey, encryptionKeyTransportAlgorithm);
+                    if (encryptedKeySession != null && securityToken.getId().equals(
+                        outputProcessorChain.getSecurityContext().get(WSSConstants.PROP_ENCRYPTED_KEY_SESSION_TOKEN_ID))) {
+                        encryptedKeySession.store(publicKey, secretKey, encryptedEphemeralKey,
+                                                  WSSUtils.getEncryptedKeySessionAlgorithms(securityProperties));
                     }
+                }
 
-                    createCharactersAndOutputAsEvent(subOutputProcessorChain,
-                                                     new Base64(76, new byte[]{'\n'}).encodeToString(encryptedEphemeralKey));
-
-                } catch (NoSuchPaddingException | NoSuchAlgorithmException
-                    | InvalidKeyException | IllegalBlockSizeException
-                    | InvalidAlgorithmParameterException e) {
-                    throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
+                if (securityProperties.getCallbackHandler() != null) {
+                    // Store the Encrypted Key in the CallbackHandler for processing on the inbound side
+                    WSPasswordCallback callback =
+                        new WSPasswordCallback(securityToken.getId(), WSPasswordCallback.SECRET_KEY);
+                    callback.setKey(encryptedEphemeralKey);
+                    try {
+                        securityProperties.getCallbackHandler().handle(new Callback[]{callback});
+                    } catch (IOException | UnsupportedCallbackException e) { // NOPMD
+                        // Do nothing
+                    }
                 }
 
+                createCharactersAndOutputAsEvent(subOutputProcessorChain,
+                                                 new Base64(76, new byte[]{'\n'}).encodeToString(encryptedEphemeralKey));
+
                 createEndElementAndOutputAsEvent(subOutputProcessorChain, WSSConstants.TAG_xenc_CipherValue);
                 createEndElementAndOutputAsEvent(subOutputProcessorChain, WSSConstants.TAG_xenc_CipherData);
 
@@ -350,6 +324,57 @@ public class EncryptedKeyOutputProcessor extends AbstractOutputProcessor {
             }
         }
 
+        private byte[] wrapKey(PublicKey publicKey, Key secretKey, String encryptionKeyTransportAlgorithm)
+            throws XMLSecurityException {
+            final String encryptionKeyTransportMGFAlgorithm = getSecurityProperties().getEncryptionKeyTransportMGFAlgorithm();
+            try {
+                //encrypt the symmetric session key with the public key from the receiver:
+                String jceid = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportAlgorithm);
+                Cipher cipher = Cipher.getInstance(jceid);
+
+                AlgorithmParameterSpec algorithmParameterSpec = null;
+                if (XMLSecurityConstants.NS_XENC11_RSAOAEP.equals(encryptionKeyTransportAlgorithm)
+                    || XMLSecurityConstants.NS_XENC_RSAOAEPMGF1P.equals(encryptionKeyTransportAlgorithm)) {
+
+                    String jceDigestAlgorithm = "SHA-1";
+                    String encryptionKeyTransportDigestAlgorithm =
+                        getSecurityProperties().getEncryptionKeyTransportDigestAlgorithm();
+                    if (encryptionKeyTransportDigestAlgorithm != null) {
+                        jceDigestAlgorithm = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportDigestAlgorithm);
+                    }
+
+                    PSource.PSpecified pSource = PSource.PSpecified.DEFAULT;
+                    byte[] oaepParams = getSecurityProperties().getEncryptionKeyTransportOAEPParams();
+                    if (oaepParams != null) {
+                        pSource = new PSource.PSpecified(oaepParams);
+                    }
+
+                    MGF1ParameterSpec mgfParameterSpec = new MGF1ParameterSpec("SHA-1");
+                    if (encryptionKeyTransportMGFAlgorithm != null) {
+                        String jceMGFAlgorithm = JCEAlgorithmMapper.translateURItoJCEID(encryptionKeyTransportMGFAlgorithm);
+                        mgfParameterSpec = new MGF1ParameterSpec(jceMGFAlgorithm);
+                    }
+                    algorithmParameterSpec = new OAEPParameterSpec(jceDigestAlgorithm, "MGF1", mgfParameterSpec, pSource);
+                }
+
+                cipher.init(Cipher.WRAP_MODE, publicKey, algorithmParameterSpec);
+
+                int blockSize = cipher.getBlockSize();
+                if (blockSize > 0 && blockSize < secretKey.getEncoded().length) {
+                    throw new WSSecurityException(
+                            WSSecurityException.ErrorCode.FAILURE,
+                            "unsupportedKeyTransp",
+                            new Object[] {"public key algorithm too weak to encrypt symmetric key"}
+                    );
+                }
+                return cipher.wrap(secretKey);
+            } catch (NoSuchPaddingException | NoSuchAlgorithmException
+                | InvalidKeyException | IllegalBlockSizeException
+                | InvalidAlgorithmParameterException e) {
+                throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
+            }
+        }
+
         protected void createSecurityTokenReferenceStructureForEncryptedKey(
                 OutputProcessorChain outputProcessorChain,
                 OutboundSecurityToken securityToken,
@@ -371,7 +396,7 @@ public class EncryptedKeyOutputProcessor extends AbstractOutputProcessor {
             }
 
             List<XMLSecAttribute> attributes = new ArrayList<>(2);
-            attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, IDGenerator.generateID(null)));
+            attributes.add(createAttribute(WSSConstants.ATT_WSU_ID, WSRandom.generateId(null)));
             if (WSSecurityTokenConstants.KEYIDENTIFIER_SECURITY_TOKEN_DIRECT_REFERENCE.equals(keyIdentifier) && !useSingleCertificate) {
                 attributes.add(createAttribute(WSSConstants.ATT_WSSE11_TOKEN_TYPE, WSSConstants.NS_X509_PKIPATH_V1));
             }
@@ -39,9 +39,11 @@ import org.apache.wss4j.common.saml.OpenSAMLUtil;
 import org.apache.wss4j.common.saml.SAMLCallback;
 import org.apache.wss4j.common.saml.SAMLKeyInfo;
 import org.apache.wss4j.common.saml.SAMLUtil;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
 import org.apache.wss4j.common.saml.SamlAssertionWrapper;
 import org.apache.wss4j.common.saml.bean.KeyInfoBean;
 import org.apache.wss4j.common.saml.bean.SubjectBean;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConfigurationException;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -57,7 +59,6 @@ import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
@@ -82,18 +83,12 @@ public class SAMLTokenOutputProcessor extends AbstractOutputProcessor {
         try {
             final SAMLCallback samlCallback = new SAMLCallback();
             SAMLUtil.doSAMLCallback(((WSSSecurityProperties) getSecurityProperties()).getSamlCallbackHandler(), samlCallback);
-            SamlAssertionWrapper samlAssertionWrapper = new SamlAssertionWrapper(samlCallback);
-
-            if (samlCallback.isSignAssertion()) {
-                samlAssertionWrapper.signAssertion(
-                        samlCallback.getIssuerKeyName(),
-                        samlCallback.getIssuerKeyPassword(),
-                        samlCallback.getIssuerCrypto(),
-                        samlCallback.isSendKeyValue(),
-                        samlCallback.getCanonicalizationAlgorithm(),
-                        samlCallback.getSignatureAlgorithm(),
-                        samlCallback.getSignatureDigestAlgorithm()
-                );
+            SamlAssertionWrapper samlAssertionWrapper;
+            SamlAssertionCache samlAssertionCache = ((WSSSecurityProperties) getSecurityProperties()).getSamlAssertionCache();
+            if (samlAssertionCache != null) {
+                samlAssertionWrapper = samlAssertionCache.getSamlAssertion(samlCallback);
+            } else {
+                samlAssertionWrapper = SamlAssertionCache.createSamlAssertion(samlCallback);
             }
 
             boolean senderVouches = false;
@@ -108,7 +103,7 @@ public class SAMLTokenOutputProcessor extends AbstractOutputProcessor {
                 }
             }
 
-            final String securityTokenReferenceId = IDGenerator.generateID(null);
+            final String securityTokenReferenceId = WSRandom.generateId(null);
             final String tokenId = samlAssertionWrapper.getId();
 
             final FinalSAMLTokenOutputProcessor finalSAMLTokenOutputProcessor;
@@ -251,7 +246,7 @@ public class SAMLTokenOutputProcessor extends AbstractOutputProcessor {
             throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, ex);
         }
 
-        final String binarySecurityTokenId = IDGenerator.generateID(null);
+        final String binarySecurityTokenId = WSRandom.generateId(null);
 
         final GenericOutboundSecurityToken bstSecurityToken =
                 new GenericOutboundSecurityToken(binarySecurityTokenId, WSSecurityTokenConstants.X509V3Token,
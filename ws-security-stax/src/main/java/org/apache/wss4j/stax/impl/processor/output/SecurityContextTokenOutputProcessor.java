@@ -28,6 +28,7 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
@@ -39,7 +40,6 @@ import org.apache.xml.security.stax.ext.XMLSecurityConstants;
 import org.apache.xml.security.stax.ext.stax.XMLSecAttribute;
 import org.apache.xml.security.stax.ext.stax.XMLSecEvent;
 import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 
@@ -67,8 +67,8 @@ public class SecurityContextTokenOutputProcessor extends AbstractOutputProcessor
                 throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE);
             }
 
-            final String wsuId = IDGenerator.generateID(null);
-            final String identifier = IDGenerator.generateID(null);
+            final String wsuId = WSRandom.generateId(null);
+            final String identifier = WSRandom.generateRandomId(null);
 
             final GenericOutboundSecurityToken securityContextSecurityToken =
                 new GenericOutboundSecurityToken(wsuId, WSSecurityTokenConstants.SECURITY_CONTEXT_TOKEN) {
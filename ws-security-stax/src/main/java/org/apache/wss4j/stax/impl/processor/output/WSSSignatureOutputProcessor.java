@@ -37,6 +37,7 @@ import org.apache.wss4j.common.ext.Attachment;
 import org.apache.wss4j.common.ext.AttachmentRequestCallback;
 import org.apache.wss4j.common.ext.AttachmentResultCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.impl.transformer.AttachmentContentSignatureTransform;
@@ -52,7 +53,6 @@ import org.apache.xml.security.stax.ext.stax.XMLSecStartElement;
 import org.apache.xml.security.stax.impl.SignaturePartDef;
 import org.apache.xml.security.stax.impl.processor.output.AbstractSignatureOutputProcessor;
 import org.apache.xml.security.stax.impl.util.DigestOutputStream;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 
 public class WSSSignatureOutputProcessor extends AbstractSignatureOutputProcessor {
 
@@ -98,7 +98,7 @@ public class WSSSignatureOutputProcessor extends AbstractSignatureOutputProcesso
 
                     if (securePart.getIdToSign() == null) {
                         signaturePartDef.setGenerateXPointer(securePart.isGenerateXPointer());
-                        signaturePartDef.setSigRefId(IDGenerator.generateID(null));
+                        signaturePartDef.setSigRefId(WSRandom.generateId(null));
 
                         Attribute attribute = xmlSecStartElement.getAttributeByName(WSSConstants.ATT_WSU_ID);
                         if (attribute != null) {
@@ -35,6 +35,7 @@ import javax.security.auth.login.LoginException;
 
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.ext.WSSecurityException.ErrorCode;
+import org.apache.wss4j.common.kerberos.KerberosClientCredentialCache;
 import org.apache.wss4j.common.kerberos.KerberosClientExceptionAction;
 import org.apache.wss4j.common.kerberos.KerberosContext;
 import org.apache.wss4j.common.kerberos.KerberosContextAndServiceNameCallback;
@@ -46,6 +47,7 @@ import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityTo
 public class KerberosClientSecurityToken extends GenericOutboundSecurityToken {
 
     private CallbackHandler callbackHandler;
+    private KerberosClientCredentialCache credentialCache;
     private Key secretKey;
     private byte[] ticket;
 
@@ -56,8 +58,14 @@ public class KerberosClientSecurityToken extends GenericOutboundSecurityToken {
     }
 
     public KerberosClientSecurityToken(CallbackHandler callbackHandler, String id) {
+        this(callbackHandler, null, id);
+    }
+
+    public KerberosClientSecurityToken(CallbackHandler callbackHandler,
+                                       KerberosClientCredentialCache credentialCache, String id) {
         super(id, WSSecurityTokenConstants.KERBEROS_TOKEN);
         this.callbackHandler = callbackHandler;
+        this.credentialCache = credentialCache;
     }
 
     private void getTGT() throws WSSecurityException {
@@ -72,10 +80,14 @@ public class KerberosClientSecurityToken extends GenericOutboundSecurityToken {
                 throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, "kerberosCallbackServiceNameNotSupplied");
             }
 
-            LoginContext loginContext = new LoginContext(contextAndServiceNameCallback.getContextName(), callbackHandler);
-            loginContext.login();
-
-            Subject clientSubject = loginContext.getSubject();
+            Subject clientSubject = null;
+            if (credentialCache != null) {
+                clientSubject = credentialCache.getSubject(contextAndServiceNameCallback.getContextName(), callbackHandler);
+            } else {
+                LoginContext loginContext = new LoginContext(contextAndServiceNameCallback.getContextName(), callbackHandler);
+                loginContext.login();
+                clientSubject = loginContext.getSubject();
+            }
             Set<Principal> clientPrincipals = clientSubject.getPrincipals();
             if (clientPrincipals.isEmpty()) {
                 throw new WSSecurityException(
@@ -37,6 +37,9 @@ import org.w3c.dom.Element;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.common.principal.SAMLTokenPrincipal;
 import org.apache.wss4j.common.saml.OpenSAMLUtil;
 import org.apache.wss4j.common.saml.SAMLKeyInfo;
@@ -207,13 +210,22 @@ public class SamlSecurityTokenImpl extends AbstractInboundSecurityToken implemen
                 boolean enableRevocation = false;
                 Collection<Pattern> subjectCertConstraints = null;
                 Collection<Pattern> issuerCertConstraints = null;
+                SecurityInstrumentation instrumentation = null;
                 if (securityProperties != null) {
                     enableRevocation = securityProperties.isEnableRevocation();
                     subjectCertConstraints = securityProperties.getSubjectCertConstraints();
                     issuerCertConstraints = securityProperties.getIssuerDNConstraints();
-
+                    instrumentation = securityProperties.getInstrumentation();
+                }
+                SecurityTimer timer = SecurityTimer.start(
+                    instrumentation, SecurityStage.VERIFY_TRUST, x509Certificates[0].getSigAlgName());
+                boolean success = false;
+                try {
+                    crypto.verifyTrust(x509Certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
+                    success = true;
+                } finally {
+                    SecurityTimer.stop(timer, success);
                 }
-                crypto.verifyTrust(x509Certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
             }
             PublicKey publicKey = getPublicKey();
             if (publicKey != null) {
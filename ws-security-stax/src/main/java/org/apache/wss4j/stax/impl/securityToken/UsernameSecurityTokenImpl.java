@@ -25,6 +25,7 @@ import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.Subject;
 
 import org.apache.wss4j.common.bsp.BSPRule;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.common.principal.UsernameTokenPrincipal;
 import org.apache.wss4j.common.util.UsernameTokenUtil;
@@ -51,6 +52,7 @@ public class UsernameSecurityTokenImpl extends AbstractInboundSecurityToken impl
     private final WSInboundSecurityContext wsInboundSecurityContext;
     private Subject subject;
     private Principal principal;
+    private DerivedKeyCache derivedKeyCache;
 
     public UsernameSecurityTokenImpl(WSSConstants.UsernameTokenPasswordType usernameTokenPasswordType,
                                      String username, String password, String createdTime, byte[] nonce,
@@ -124,9 +126,23 @@ public class UsernameSecurityTokenImpl extends AbstractInboundSecurityToken impl
             }
         }
 
+        if (derivedKeyCache != null) {
+            return derivedKeyCache.getDerivedKey(username, password, salt, iteration.intValue());
+        }
         return UsernameTokenUtil.generateDerivedKey(password, salt, iteration.intValue());
     }
 
+    public DerivedKeyCache getDerivedKeyCache() {
+        return derivedKeyCache;
+    }
+
+    /**
+     * Set the cache used to reuse the derived key for the same username, salt and iteration count
+     */
+    public void setDerivedKeyCache(DerivedKeyCache derivedKeyCache) {
+        this.derivedKeyCache = derivedKeyCache;
+    }
+
     @Override
     public Principal getPrincipal() throws WSSecurityException {
         if (this.principal == null) {
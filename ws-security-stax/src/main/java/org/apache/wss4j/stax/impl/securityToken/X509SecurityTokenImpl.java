@@ -32,6 +32,9 @@ import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoType;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
+import org.apache.wss4j.common.instrumentation.SecurityTimer;
 import org.apache.wss4j.common.principal.PublicKeyPrincipalImpl;
 import org.apache.wss4j.stax.ext.WSInboundSecurityContext;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
@@ -114,12 +117,22 @@ public abstract class X509SecurityTokenImpl
             boolean enableRevocation = false;
             Collection<Pattern> subjectCertConstraints = null;
             Collection<Pattern> issuerCertConstraints = null;
+            SecurityInstrumentation instrumentation = null;
             if (securityProperties != null) {
                 enableRevocation = securityProperties.isEnableRevocation();
                 subjectCertConstraints = securityProperties.getSubjectCertConstraints();
                 issuerCertConstraints = securityProperties.getIssuerDNConstraints();
+                instrumentation = securityProperties.getInstrumentation();
+            }
+            SecurityTimer timer = SecurityTimer.start(
+                instrumentation, SecurityStage.VERIFY_TRUST, x509Certificates[0].getSigAlgName());
+            boolean success = false;
+            try {
+                getCrypto().verifyTrust(x509Certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
+                success = true;
+            } finally {
+                SecurityTimer.stop(timer, success);
             }
-            getCrypto().verifyTrust(x509Certificates, enableRevocation, subjectCertConstraints, issuerCertConstraints);
         }
     }
 
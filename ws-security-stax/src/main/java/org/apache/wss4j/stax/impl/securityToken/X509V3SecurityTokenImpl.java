@@ -25,10 +25,10 @@ import org.apache.wss4j.stax.ext.WSSConfigurationException;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
 import org.apache.xml.security.exceptions.XMLSecurityException;
-import org.apache.xml.security.utils.UnsyncByteArrayInputStream;
 
 import javax.security.auth.callback.CallbackHandler;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.cert.X509Certificate;
@@ -44,7 +44,7 @@ public class X509V3SecurityTokenImpl extends X509SecurityTokenImpl {
         super(WSSecurityTokenConstants.X509V3Token, wsInboundSecurityContext, crypto, callbackHandler, id,
                 WSSecurityTokenConstants.KeyIdentifier_X509KeyIdentifier, securityProperties, true);
 
-        try (InputStream inputStream = new UnsyncByteArrayInputStream(binaryContent)) {
+        try (InputStream inputStream = new ByteArrayInputStream(binaryContent)) {
             X509Certificate x509Certificate = getCrypto().loadCertificate(inputStream);
             setX509Certificates(new X509Certificate[]{x509Certificate});
         } catch (IOException e) {
@@ -31,12 +31,15 @@ import javax.security.auth.callback.CallbackHandler;
 import javax.xml.namespace.QName;
 
 import org.apache.wss4j.common.ConfigurationConstants;
+import org.apache.wss4j.common.cache.DerivedKeyCache;
 import org.apache.wss4j.common.cache.ReplayCache;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.crypto.JasyptPasswordEncryptor;
 import org.apache.wss4j.common.crypto.PasswordEncryptor;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.saml.SamlAssertionCache;
 import org.apache.wss4j.common.util.Loader;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSConstants.UsernameTokenPasswordType;
@@ -552,6 +555,16 @@ public final class ConfigurationConverter {
         properties.setTimestampTTL(decodeTimeToLive(config, true));
         properties.setTimeStampFutureTTL(decodeFutureTimeToLive(config, true));
 
+        String maxSecurityHeaderEvents = getString(ConfigurationConstants.MAX_SECURITY_HEADER_EVENTS, config);
+        if (maxSecurityHeaderEvents != null) {
+            properties.setMaximumSecurityHeaderEvents(Integer.parseInt(maxSecurityHeaderEvents));
+        }
+
+        String maxSecurityHeaderSize = getString(ConfigurationConstants.MAX_SECURITY_HEADER_SIZE, config);
+        if (maxSecurityHeaderSize != null) {
+            properties.setMaximumSecurityHeaderSize(Long.parseLong(maxSecurityHeaderSize));
+        }
+
         @SuppressWarnings("unchecked")
         final Map<QName, Validator> validatorMap =
             (Map<QName, Validator>)config.get(ConfigurationConstants.VALIDATOR_MAP);
@@ -579,6 +592,24 @@ public final class ConfigurationConverter {
             properties.setSamlOneTimeUseReplayCache(samlOneTimeUseCache);
         }
 
+        SamlAssertionCache samlAssertionCache =
+            (SamlAssertionCache)config.get(ConfigurationConstants.SAML_ASSERTION_CACHE_INSTANCE);
+        if (samlAssertionCache != null) {
+            properties.setSamlAssertionCache(samlAssertionCache);
+        }
+
+        EncryptedKeySession encryptedKeySession =
+            (EncryptedKeySession)config.get(ConfigurationConstants.ENCRYPTED_KEY_SESSION_INSTANCE);
+        if (encryptedKeySession != null) {
+            properties.setEncryptedKeySession(encryptedKeySession);
+        }
+
+        DerivedKeyCache derivedKeyCache =
+            (DerivedKeyCache)config.get(ConfigurationConstants.DERIVED_KEY_CACHE_INSTANCE);
+        if (derivedKeyCache != null) {
+            properties.setDerivedKeyCache(derivedKeyCache);
+        }
+
         String derivedSignatureKeyLength = getString(ConfigurationConstants.DERIVED_SIGNATURE_KEY_LENGTH, config);
         if (derivedSignatureKeyLength != null) {
             int sigLength = Integer.parseInt(derivedSignatureKeyLength);
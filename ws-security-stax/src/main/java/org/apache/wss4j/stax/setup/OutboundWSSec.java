@@ -31,8 +31,10 @@ import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoType;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.ext.WSPasswordCallback;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.util.WSRandom;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.impl.processor.output.BinarySecurityTokenOutputProcessor;
@@ -65,7 +67,6 @@ import org.apache.xml.security.stax.impl.OutputProcessorChainImpl;
 import org.apache.xml.security.stax.impl.XMLSecurityStreamWriter;
 import org.apache.xml.security.stax.impl.processor.output.FinalOutputProcessor;
 import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityToken;
-import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
 import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
 import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
@@ -297,7 +298,7 @@ public class OutboundWSSec {
         }
 
         // Create a new outbound Signature token for the generated key / cert
-        final String id = IDGenerator.generateID(null);
+        final String id = WSRandom.generateId(null);
         final GenericOutboundSecurityToken binarySecurityToken =
                 new GenericOutboundSecurityToken(id, WSSecurityTokenConstants.X509V3Token, key, x509Certificates);
 
@@ -326,27 +327,55 @@ public class OutboundWSSec {
     ) throws XMLSecurityException {
         final String symmetricEncryptionAlgorithm = securityProperties.getEncryptionSymAlgorithm();
 
+        // Set up a security token with the certs required to encrypt the symmetric key
+        GenericOutboundSecurityToken encryptedKeyToken = null;
+        if (securityProperties.isEncryptSymmetricEncryptionKey()) {
+            encryptedKeyToken = createEncryptedKeyToken(outputProcessorChain, securityProperties);
+        }
+
         // First check to see if a Symmetric key is available
         GenericOutboundSecurityToken securityToken =
             getOutboundSecurityToken(outputProcessorChain, WSSConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTION);
         if (securityToken == null || securityToken.getSecretKey(symmetricEncryptionAlgorithm) == null) {
-            //prepare the symmetric session key for all encryption parts
-            String keyAlgorithm = JCEAlgorithmMapper.getJCEKeyAlgorithmFromURI(securityProperties.getEncryptionSymAlgorithm());
-            KeyGenerator keyGen;
-            try {
-                keyGen = KeyGenerator.getInstance(keyAlgorithm);
-            } catch (NoSuchAlgorithmException e) {
-                throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
-            }
-            //the sun JCE provider expects the real key size for 3DES (112 or 168 bit)
-            //whereas bouncy castle expects the block size of 128 or 192 bits
-            if (keyAlgorithm.contains("AES")) {
-                int keyLength = JCEAlgorithmMapper.getKeyLengthFromURI(securityProperties.getEncryptionSymAlgorithm());
-                keyGen.init(keyLength);
+            final String symmId = WSRandom.generateId(null);
+
+            // Reuse the key of an EncryptedKey session, if one is configured
+            Key symmetricKey = null;
+            EncryptedKeySession encryptedKeySession = securityProperties.getEncryptedKeySession();
+            if (encryptedKeySession != null && encryptedKeyToken != null) {
+                EncryptedKeySession.SessionKey sessionKey =
+                    encryptedKeySession.acquire(getPublicKey(encryptedKeyToken),
+                                                WSSUtils.getEncryptedKeySessionAlgorithms(securityProperties));
+                if (sessionKey != null) {
+                    // the EncryptedKeyOutputProcessor writes the wrapped key of exactly this session key
+                    symmetricKey = sessionKey.getKey();
+                    outputProcessorChain.getSecurityContext().put(WSSConstants.PROP_ENCRYPTED_KEY_SESSION_KEY, sessionKey);
+                } else {
+                    // a new key is generated below, which is stored in the session once it is wrapped
+                    outputProcessorChain.getSecurityContext().put(WSSConstants.PROP_ENCRYPTED_KEY_SESSION_TOKEN_ID, symmId);
+                }
             }
 
-            final Key symmetricKey = keyGen.generateKey();
-            final String symmId = IDGenerator.generateID(null);
+            if (symmetricKey == null) {
+                //prepare the symmetric session key for all encryption parts
+                String keyAlgorithm = JCEAlgorithmMapper.getJCEKeyAlgorithmFromURI(securityProperties.getEncryptionSymAlgorithm());
+                KeyGenerator keyGen;
+                try {
+                    keyGen = KeyGenerator.getInstance(keyAlgorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new WSSecurityException(WSSecurityException.ErrorCode.FAILURE, e);
+                }
+                //the sun JCE provider expects the real key size for 3DES (112 or 168 bit)
+                //whereas bouncy castle expects the block size of 128 or 192 bits
+                if (keyAlgorithm.contains("AES")) {
+                    int keyLength = JCEAlgorithmMapper.getKeyLengthFromURI(securityProperties.getEncryptionSymAlgorithm());
+                    keyGen.init(keyLength, WSRandom.getSecureRandom());
+                } else {
+                    keyGen.init(WSRandom.getSecureRandom());
+                }
+
+                symmetricKey = keyGen.generateKey();
+            }
 
             final GenericOutboundSecurityToken symmetricSecurityToken =
                 new GenericOutboundSecurityToken(symmId, WSSecurityTokenConstants.EncryptedKeyToken, symmetricKey);
@@ -369,12 +398,39 @@ public class OutboundWSSec {
             outputProcessorChain.getSecurityContext().put(WSSConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTION, symmId);
         }
 
-        if (!securityProperties.isEncryptSymmetricEncryptionKey()) {
+        if (encryptedKeyToken == null) {
             // No EncryptedKey Token required here, so return
             return;
         }
 
-        // Set up a security token with the certs required to encrypt the symmetric key
+        encryptedKeyToken.addWrappedToken(securityToken);
+        securityToken.setKeyWrappingToken(encryptedKeyToken);
+
+        // binarySecurityToken.setSha1Identifier(reference);
+        final String id = encryptedKeyToken.getId();
+        final GenericOutboundSecurityToken finalEncryptedKeyToken = encryptedKeyToken;
+        final SecurityTokenProvider<OutboundSecurityToken> encryptedKeyTokenProvider =
+            new SecurityTokenProvider<OutboundSecurityToken>() {
+
+            @Override
+            public OutboundSecurityToken getSecurityToken() throws WSSecurityException {
+                return finalEncryptedKeyToken;
+            }
+
+            @Override
+            public String getId() {
+                return id;
+            }
+        };
+
+        outputProcessorChain.getSecurityContext().registerSecurityTokenProvider(id, encryptedKeyTokenProvider);
+        outputProcessorChain.getSecurityContext().put(WSSConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTED_KEY, id);
+    }
+
+    private GenericOutboundSecurityToken createEncryptedKeyToken(
+        OutputProcessorChainImpl outputProcessorChain,
+        WSSSecurityProperties securityProperties
+    ) throws XMLSecurityException {
         X509Certificate[] x509Certificates = null;
         PublicKey publicKey = null;
         if (securityProperties.isUseReqSigCertForEncryption()) {
@@ -409,30 +465,16 @@ public class OutboundWSSec {
         }
 
         // Create a new outbound EncryptedKey token for the cert
-        final String id = IDGenerator.generateID(null);
-        final GenericOutboundSecurityToken encryptedKeyToken =
-            new GenericOutboundSecurityToken(id, WSSecurityTokenConstants.X509V3Token, publicKey, x509Certificates);
-
-        encryptedKeyToken.addWrappedToken(securityToken);
-        securityToken.setKeyWrappingToken(encryptedKeyToken);
-
-        // binarySecurityToken.setSha1Identifier(reference);
-        final SecurityTokenProvider<OutboundSecurityToken> encryptedKeyTokenProvider =
-            new SecurityTokenProvider<OutboundSecurityToken>() {
-
-            @Override
-            public OutboundSecurityToken getSecurityToken() throws WSSecurityException {
-                return encryptedKeyToken;
-            }
-
-            @Override
-            public String getId() {
-                return id;
-            }
-        };
+        final String id = WSRandom.generateId(null);
+        return new GenericOutboundSecurityToken(id, WSSecurityTokenConstants.X509V3Token, publicKey, x509Certificates);
+    }
 
-        outputProcessorChain.getSecurityContext().registerSecurityTokenProvider(id, encryptedKeyTokenProvider);
-        outputProcessorChain.getSecurityContext().put(WSSConstants.PROP_USE_THIS_TOKEN_ID_FOR_ENCRYPTED_KEY, id);
+    private PublicKey getPublicKey(GenericOutboundSecurityToken encryptedKeyToken) throws XMLSecurityException {
+        X509Certificate[] x509Certificates = encryptedKeyToken.getX509Certificates();
+        if (x509Certificates != null && x509Certificates.length > 0) {
+            return x509Certificates[0].getPublicKey();
+        }
+        return encryptedKeyToken.getPublicKey();
     }
 
     private void setupKerberosKey(
@@ -447,11 +489,12 @@ public class OutboundWSSec {
         // First off, see if we have a supplied token
         if (securityToken == null) {
             // If not then generate a new key
-            final String id = IDGenerator.generateID(null);
+            final String id = WSRandom.generateId(null);
             kerberosId = id;
             final KerberosClientSecurityToken kerberosClientSecurityToken =
                     new KerberosClientSecurityToken(
-                        securityProperties.getCallbackHandler(), id
+                        securityProperties.getCallbackHandler(),
+                        securityProperties.getKerberosClientCredentialCache(), id
                     );
 
             final SecurityTokenProvider<OutboundSecurityToken> kerberosSecurityTokenProvider =
@@ -21,6 +21,7 @@ package org.apache.wss4j.stax.setup;
 import java.net.URISyntaxException;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
@@ -107,6 +108,25 @@ public class WSSec {
         return new OutboundWSSec(securityProperties);
     }
 
+    /**
+     * Creates and configures an outbound streaming security engine from the Map based
+     * configuration of the DOM WSHandler (see ConfigurationConstants). This allows to secure
+     * a message in a streaming fashion without changing an existing handler configuration.
+     * This is only a shorthand for ConfigurationConverter.convert(config), which does the whole conversion.
+     * A mode which takes the per-action configuration of the DOM HandlerAction and RequestData is not
+     * available: only the Map keys known to the ConfigurationConverter are used.
+     *
+     * @param config The WSHandler configuration
+     * @return A new OutboundWSSec
+     * @throws WSSecurityException
+     *          if the initialisation failed
+     * @throws org.apache.wss4j.stax.ext.WSSConfigurationException
+     *          if the configuration is invalid
+     */
+    public static OutboundWSSec getOutboundWSSec(Map<String, Object> config) throws WSSecurityException {
+        return getOutboundWSSec(ConfigurationConverter.convert(config));
+    }
+
     /**
      * Creates and configures an inbound streaming security engine
      *
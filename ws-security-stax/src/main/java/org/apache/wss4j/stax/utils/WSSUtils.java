@@ -676,4 +676,18 @@ public class WSSUtils extends XMLSecurityUtils {
         return tmp;
     }
 
+    /**
+     * Returns the algorithms (and their parameters) a key of an EncryptedKeySession is bound to
+     */
+    public static String[] getEncryptedKeySessionAlgorithms(WSSSecurityProperties securityProperties) {
+        byte[] oaepParams = securityProperties.getEncryptionKeyTransportOAEPParams();
+        return new String[] {
+            securityProperties.getEncryptionSymAlgorithm(),
+            securityProperties.getEncryptionKeyTransportAlgorithm(),
+            securityProperties.getEncryptionKeyTransportDigestAlgorithm(),
+            securityProperties.getEncryptionKeyTransportMGFAlgorithm(),
+            oaepParams == null ? null : Base64.encodeBase64String(oaepParams),
+        };
+    }
+
 }
@@ -18,19 +18,32 @@
  */
 package org.apache.wss4j.stax.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.wss4j.common.ConfigurationConstants;
+import org.apache.wss4j.dom.handler.WSHandlerConstants;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSConstants.UsernameTokenPasswordType;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
 import org.apache.wss4j.stax.setup.ConfigurationConverter;
+import org.apache.wss4j.stax.setup.OutboundWSSec;
 import org.apache.wss4j.stax.setup.WSSec;
 import org.apache.wss4j.stax.test.saml.SAMLCallbackHandlerImpl;
+import org.apache.wss4j.stax.test.utils.XmlReaderToWriter;
+import org.apache.xml.security.stax.securityEvent.SecurityEvent;
 import org.junit.Assert;
 import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
 
 /**
  * Some tests for the ConfigurationConverter utility
@@ -207,4 +220,32 @@ public class ConfigurationConverterTest extends AbstractTestBase {
         WSSec.validateAndApplyDefaultsToInboundSecurityProperties(properties);
     }
 
+    @Test
+    public void testStreamingOutboundFromHandlerConfiguration() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConfigurationConstants.ACTION,
+                   ConfigurationConstants.TIMESTAMP + " " + ConfigurationConstants.SIGNATURE);
+        config.put(ConfigurationConstants.USER, "transmitter");
+        config.put(ConfigurationConstants.PW_CALLBACK_REF, new CallbackHandlerImpl());
+        config.put(ConfigurationConstants.SIG_PROP_FILE, "transmitter-crypto.properties");
+        config.put(ConfigurationConstants.SIG_KEY_ID, "DirectReference");
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        OutboundWSSec wsSecOut = WSSec.getOutboundWSSec(config);
+        XMLStreamWriter xmlStreamWriter =
+            wsSecOut.processOutMessage(baos, StandardCharsets.UTF_8.name(), new ArrayList<SecurityEvent>());
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(
+            this.getClass().getClassLoader().getResourceAsStream("testdata/plain-soap-1.1.xml"));
+        XmlReaderToWriter.writeAll(xmlStreamReader, xmlStreamWriter);
+        xmlStreamWriter.close();
+
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(baos.toByteArray()));
+        NodeList nodeList = document.getElementsByTagNameNS(WSSConstants.TAG_dsig_Signature.getNamespaceURI(),
+                                                            WSSConstants.TAG_dsig_Signature.getLocalPart());
+        Assert.assertEquals(nodeList.getLength(), 1);
+
+        String action = WSHandlerConstants.TIMESTAMP + " " + WSHandlerConstants.SIGNATURE;
+        doInboundSecurityWithWSS4J(document, action);
+    }
+
 }
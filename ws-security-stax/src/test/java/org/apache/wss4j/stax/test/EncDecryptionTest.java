@@ -32,6 +32,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -54,6 +57,7 @@ import org.apache.wss4j.common.WSEncryptionPart;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.crypto.Crypto;
 import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.crypto.EncryptedKeySession;
 import org.apache.wss4j.common.ext.WSSecurityException;
 import org.apache.wss4j.dom.WSConstants;
 import org.apache.wss4j.dom.handler.WSHandlerConstants;
@@ -2680,4 +2684,59 @@ public class EncDecryptionTest extends AbstractTestBase {
             Assert.assertEquals(nodeList.getLength(), 0);
         }
     }
+
+    /**
+     * Many threads share an EncryptedKeySession. A wrapped key must never be used for more messages than
+     * the session allows, also when another thread retires the key while a message is written.
+     */
+    @Test
+    public void testEncryptedKeySessionConcurrentOutbound() throws Exception {
+        final int maxMessages = 3;
+        final WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+        List<WSSConstants.Action> actions = new ArrayList<WSSConstants.Action>();
+        actions.add(WSSConstants.ENCRYPT);
+        securityProperties.setActions(actions);
+        securityProperties.loadEncryptionKeystore(this.getClass().getClassLoader().getResource("transmitter.jks"), "default".toCharArray());
+        securityProperties.setEncryptionUser("receiver");
+        securityProperties.setEncryptedKeySession(new EncryptedKeySession(maxMessages, 300L));
+        final OutboundWSSec wsSecOut = WSSec.getOutboundWSSec(securityProperties);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<byte[]>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    List<byte[]> messages = new ArrayList<>();
+                    for (int j = 0; j < 20; j++) {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        XMLStreamWriter xmlStreamWriter =
+                            wsSecOut.processOutMessage(baos, StandardCharsets.UTF_8.name(), new ArrayList<SecurityEvent>());
+                        InputStream sourceDocument = this.getClass().getClassLoader().getResourceAsStream("testdata/plain-soap-1.1.xml");
+                        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(sourceDocument);
+                        XmlReaderToWriter.writeAll(xmlStreamReader, xmlStreamWriter);
+                        xmlStreamWriter.close();
+                        messages.add(baos.toByteArray());
+                    }
+                    return messages;
+                }));
+            }
+
+            Map<String, Integer> uses = new HashMap<>();
+            for (Future<List<byte[]>> future : futures) {
+                for (byte[] message : future.get()) {
+                    Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(message));
+                    XPathExpression xPathExpression =
+                        getXPath("/soap:Envelope/soap:Header/wsse:Security/xenc:EncryptedKey/xenc:CipherData/xenc:CipherValue");
+                    Node cipherValue = (Node) xPathExpression.evaluate(document, XPathConstants.NODE);
+                    Assert.assertNotNull(cipherValue);
+                    uses.merge(cipherValue.getTextContent(), 1, Integer::sum);
+                }
+            }
+            for (Integer count : uses.values()) {
+                Assert.assertTrue("A wrapped key was used for " + count + " messages", count <= maxMessages);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -25,7 +25,9 @@ import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 
 import javax.crypto.KeyGenerator;
 import javax.xml.namespace.QName;
@@ -45,6 +47,7 @@ import org.apache.wss4j.dom.message.WSSecHeader;
 import org.apache.wss4j.dom.message.WSSecSignature;
 import org.apache.wss4j.stax.ext.WSSConstants;
 import org.apache.wss4j.stax.ext.WSSSecurityProperties;
+import org.apache.wss4j.stax.securityEvent.WSSecurityEventConstants;
 import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
 import org.apache.wss4j.stax.setup.OutboundWSSec;
 import org.apache.wss4j.stax.setup.WSSec;
@@ -56,6 +59,9 @@ import org.apache.xml.security.stax.impl.OutboundSecurityContextImpl;
 import org.apache.xml.security.stax.impl.securityToken.GenericOutboundSecurityToken;
 import org.apache.xml.security.stax.impl.util.IDGenerator;
 import org.apache.xml.security.stax.securityEvent.SecurityEvent;
+import org.apache.xml.security.stax.securityEvent.SecurityEventListener;
+import org.apache.xml.security.stax.securityEvent.TokenSecurityEvent;
+import org.apache.xml.security.stax.securityToken.InboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.OutboundSecurityToken;
 import org.apache.xml.security.stax.securityToken.SecurityTokenProvider;
 import org.junit.Assert;
@@ -431,4 +437,72 @@ public class SignatureEncryptionTest extends AbstractTestBase {
             Assert.assertEquals(nodeList.getLength(), 0);
         }
     }
+
+    /**
+     * The body is encrypted first and then signed, so the signature over the encrypted content is verified
+     * while the body is decrypted, and its SecurityEvents are registered by the decryption thread.
+     */
+    @Test
+    public void testEncryptionSignatureInbound() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        {
+            InputStream sourceDocument = this.getClass().getClassLoader().getResourceAsStream("testdata/plain-soap-1.1.xml");
+            String action = WSHandlerConstants.ENCRYPT + " " + WSHandlerConstants.SIGNATURE;
+            Document securedDocument = doOutboundSecurityWithWSS4J(sourceDocument, action, new Properties());
+
+            javax.xml.transform.Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+            transformer.transform(new DOMSource(securedDocument), new StreamResult(baos));
+        }
+
+        //done encryption and signature; now test decryption and sig-verification:
+        {
+            WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+            securityProperties.setCallbackHandler(new CallbackHandlerImpl());
+            securityProperties.loadSignatureVerificationKeystore(this.getClass().getClassLoader().getResource("receiver.jks"), "default".toCharArray());
+            securityProperties.loadDecryptionKeystore(this.getClass().getClassLoader().getResource("receiver.jks"), "default".toCharArray());
+
+            final List<SecurityEvent> securityEventList = Collections.synchronizedList(new ArrayList<SecurityEvent>());
+            SecurityEventListener securityEventListener = new SecurityEventListener() {
+                @Override
+                public void registerSecurityEvent(SecurityEvent securityEvent) throws WSSecurityException {
+                    securityEventList.add(securityEvent);
+                }
+            };
+            Document document = doInboundSecurity(securityProperties,
+                    xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(baos.toByteArray())), securityEventListener);
+
+            //no encrypted content
+            NodeList nodeList = document.getElementsByTagNameNS(WSSConstants.TAG_xenc_EncryptedData.getNamespaceURI(), WSSConstants.TAG_xenc_EncryptedData.getLocalPart());
+            Assert.assertEquals(nodeList.getLength(), 0);
+
+            int signedParts = 0;
+            int encryptedParts = 0;
+            int operations = 0;
+            boolean mainSignatureToken = false;
+            boolean mainEncryptionToken = false;
+            synchronized (securityEventList) {
+                for (SecurityEvent securityEvent : securityEventList) {
+                    if (WSSecurityEventConstants.SIGNED_PART.equals(securityEvent.getSecurityEventType())) {
+                        signedParts++;
+                    } else if (WSSecurityEventConstants.ENCRYPTED_PART.equals(securityEvent.getSecurityEventType())) {
+                        encryptedParts++;
+                    } else if (WSSecurityEventConstants.OPERATION.equals(securityEvent.getSecurityEventType())) {
+                        operations++;
+                    } else if (WSSecurityEventConstants.X509Token.equals(securityEvent.getSecurityEventType())) {
+                        @SuppressWarnings("unchecked")
+                        TokenSecurityEvent<? extends InboundSecurityToken> tokenSecurityEvent =
+                                (TokenSecurityEvent<? extends InboundSecurityToken>) securityEvent;
+                        InboundSecurityToken securityToken = tokenSecurityEvent.getSecurityToken();
+                        mainSignatureToken |= securityToken.getTokenUsages().contains(WSSecurityTokenConstants.TOKENUSAGE_MAIN_SIGNATURE);
+                        mainEncryptionToken |= securityToken.getTokenUsages().contains(WSSecurityTokenConstants.TOKENUSAGE_MAIN_ENCRYPTION);
+                    }
+                }
+            }
+            Assert.assertEquals(1, signedParts);
+            Assert.assertEquals(1, encryptedParts);
+            Assert.assertEquals(1, operations);
+            Assert.assertTrue(mainSignatureToken);
+            Assert.assertTrue(mainEncryptionToken);
+        }
+    }
 }
@@ -25,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,8 @@ import javax.xml.transform.stream.StreamResult;
 import org.apache.wss4j.common.ConfigurationConstants;
 import org.apache.wss4j.common.bsp.BSPRule;
 import org.apache.wss4j.common.ext.WSSecurityException;
+import org.apache.wss4j.common.instrumentation.SecurityInstrumentation;
+import org.apache.wss4j.common.instrumentation.SecurityStage;
 import org.apache.wss4j.common.util.DateUtil;
 import org.apache.wss4j.dom.handler.WSHandlerConstants;
 import org.apache.wss4j.stax.ext.WSSConstants;
@@ -132,6 +135,58 @@ public class TimestampTest extends AbstractTestBase {
         }
     }
 
+    @Test
+    public void testTimestampValidatorInstrumentation() throws Exception {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        {
+            InputStream sourceDocument = this.getClass().getClassLoader().getResourceAsStream("testdata/plain-soap-1.1.xml");
+            String action = WSHandlerConstants.TIMESTAMP;
+            Document securedDocument = doOutboundSecurityWithWSS4J(sourceDocument, action, new Properties());
+
+            javax.xml.transform.Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+            transformer.transform(new DOMSource(securedDocument), new StreamResult(baos));
+        }
+
+        final List<String> records = Collections.synchronizedList(new ArrayList<String>());
+        {
+            WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+            securityProperties.setInstrumentation(new SecurityInstrumentation() {
+                @Override
+                public boolean isEnabled() {
+                    return true;
+                }
+
+                @Override
+                public void record(SecurityStage stage, String name, long durationNanos, boolean success) {
+                    records.add(stage + ":" + name + ":" + success);
+                }
+
+                @Override
+                public void increment(SecurityStage stage, String name) {
+                    // do nothing
+                }
+
+                @Override
+                public Object startSpan(SecurityStage stage, String name) {
+                    return null;
+                }
+
+                @Override
+                public void endSpan(Object span, boolean success) {
+                    // do nothing
+                }
+            });
+            InboundWSSec wsSecIn = WSSec.getInboundWSSec(securityProperties);
+            XMLStreamReader xmlStreamReader = wsSecIn.processInMessage(xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(baos.toByteArray())));
+
+            StAX2DOM.readDoc(documentBuilderFactory.newDocumentBuilder(), xmlStreamReader);
+        }
+
+        Assert.assertTrue(records.toString(),
+                records.contains(SecurityStage.VALIDATOR + ":" + WSSConstants.TAG_WSU_TIMESTAMP.getLocalPart() + ":true"));
+    }
+
     @Test
     public void testTimestampTTLOutbound() throws Exception {
 
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.stax.test.performance;
+
+import org.apache.wss4j.common.ext.Attachment;
+import org.apache.wss4j.common.util.AttachmentUtils;
+import org.apache.wss4j.stax.ext.WSSConstants;
+
+import javax.xml.namespace.QName;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the messages which are fed to both the DOM and the streaming engine by the
+ * {@link PerformanceBenchmarkTest}. Every combination of the configured dimensions makes up one case:
+ *
+ * <ul>
+ * <li>"wss4j.benchmark.soapVersions": the SOAP versions (default "1.1,1.2")</li>
+ * <li>"wss4j.benchmark.headerSizes": the size in bytes of an unsecured soap header block (default "1024")</li>
+ * <li>"wss4j.benchmark.bodySizes": the size in bytes of the soap body (default "1024,102400,1048576"),
+ * up to 100 MB (104857600)</li>
+ * <li>"wss4j.benchmark.parts": the count of body elements which are signed and encrypted (default "1,10,25"),
+ * as secure validation allows at most 30 signature references, parts and attachments together</li>
+ * <li>"wss4j.benchmark.attachments": the count of SwA attachments which are signed and encrypted (default "0,2")</li>
+ * <li>"wss4j.benchmark.attachmentSize": the size in bytes of each attachment (default "4096")</li>
+ * </ul>
+ *
+ * The messages are written once to "target/benchmarkCorpus" and are streamed from there, so that even the
+ * large ones do not need to be held in memory by the corpus itself.
+ */
+public class BenchmarkCorpus {
+
+    public static final String NS_BENCHMARK = "http://www.example.com/benchmark";
+
+    private static final String FILLER = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ\n";
+
+    private final File directory;
+    private final List<Case> cases = new ArrayList<Case>();
+
+    public BenchmarkCorpus(File directory) {
+        this.directory = directory;
+        int attachmentSize = Integer.getInteger("wss4j.benchmark.attachmentSize", 4096);
+        for (String soapVersion : getList("wss4j.benchmark.soapVersions", "1.1,1.2")) {
+            for (String headerSize : getList("wss4j.benchmark.headerSizes", "1024")) {
+                for (String bodySize : getList("wss4j.benchmark.bodySizes", "1024,102400,1048576")) {
+                    for (String parts : getList("wss4j.benchmark.parts", "1,10,25")) {
+                        for (String attachments : getList("wss4j.benchmark.attachments", "0,2")) {
+                            cases.add(new Case(soapVersion, Integer.parseInt(headerSize), Integer.parseInt(bodySize),
+                                    Integer.parseInt(parts), Integer.parseInt(attachments), attachmentSize));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public List<Case> getCases() {
+        return cases;
+    }
+
+    private static String[] getList(String property, String defaultValue) {
+        return System.getProperty(property, defaultValue).trim().split("\\s*,\\s*");
+    }
+
+    private static void writeFiller(Writer writer, long size) throws IOException {
+        long written = 0;
+        while (written + FILLER.length() <= size) {
+            writer.write(FILLER);
+            written += FILLER.length();
+        }
+        writer.write(FILLER, 0, (int) (size - written));
+    }
+
+    public class Case {
+
+        private final String name;
+        private final String soapNamespace;
+        private final int headerSize;
+        private final int bodySize;
+        private final int parts;
+        private final int attachments;
+        private final byte[] attachmentContent;
+        private File file;
+
+        Case(String soapVersion, int headerSize, int bodySize, int parts, int attachments, int attachmentSize) {
+            if ("1.1".equals(soapVersion)) {
+                this.soapNamespace = WSSConstants.NS_SOAP11;
+            } else if ("1.2".equals(soapVersion)) {
+                this.soapNamespace = WSSConstants.NS_SOAP12;
+            } else {
+                throw new IllegalArgumentException("Unsupported SOAP version: " + soapVersion);
+            }
+            if (parts < 1) {
+                throw new IllegalArgumentException("At least one part must be secured");
+            }
+            this.name = "soap" + soapVersion.replace(".", "") + "-h" + headerSize + "-b" + bodySize
+                    + "-p" + parts + "-a" + attachments;
+            this.headerSize = headerSize;
+            this.bodySize = bodySize;
+            this.parts = parts;
+            this.attachments = attachments;
+
+            this.attachmentContent = new byte[attachmentSize];
+            byte[] filler = FILLER.getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < attachmentSize; i++) {
+                attachmentContent[i] = filler[i % filler.length];
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSoapNamespace() {
+            return soapNamespace;
+        }
+
+        public int getBodySize() {
+            return bodySize;
+        }
+
+        public int getAttachments() {
+            return attachments;
+        }
+
+        /**
+         * @return the names of the body elements which are to be signed and encrypted
+         */
+        public List<QName> getPartNames() {
+            List<QName> partNames = new ArrayList<QName>(parts);
+            for (int i = 0; i < parts; i++) {
+                partNames.add(new QName(NS_BENCHMARK, "Part" + i));
+            }
+            return partNames;
+        }
+
+        /**
+         * @return a fresh copy of the attachments of this case, as the source streams can be consumed only once
+         */
+        public List<Attachment> newAttachments() {
+            List<Attachment> attachmentList = new ArrayList<Attachment>(attachments);
+            for (int i = 0; i < attachments; i++) {
+                String attachmentId = "attachment" + i;
+                Map<String, String> headers = new HashMap<String, String>();
+                headers.put(AttachmentUtils.MIME_HEADER_CONTENT_ID, "<" + attachmentId + ">");
+                headers.put(AttachmentUtils.MIME_HEADER_CONTENT_TYPE, "text/plain; charset=US-ASCII");
+
+                Attachment attachment = new Attachment();
+                attachment.setId(attachmentId);
+                attachment.setMimeType("text/plain");
+                attachment.addHeaders(headers);
+                attachment.setSourceStream(new ByteArrayInputStream(attachmentContent));
+                attachmentList.add(attachment);
+            }
+            return attachmentList;
+        }
+
+        /**
+         * @return the unsecured message, which is generated on the first call
+         */
+        public synchronized File getFile() throws IOException {
+            if (file == null) {
+                directory.mkdirs();
+                File target = new File(directory, name + ".xml");
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8));
+                try {
+                    writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                    writer.write("<env:Envelope xmlns:env=\"" + soapNamespace + "\">\n");
+                    writer.write("<env:Header><bm:Context xmlns:bm=\"" + NS_BENCHMARK + "\">");
+                    writeFiller(writer, headerSize);
+                    writer.write("</bm:Context></env:Header>\n");
+                    writer.write("<env:Body><bm:Request xmlns:bm=\"" + NS_BENCHMARK + "\">\n");
+                    long partSize = bodySize / parts;
+                    for (int i = 0; i < parts; i++) {
+                        writer.write("<bm:Part" + i + ">");
+                        writeFiller(writer, i == parts - 1 ? bodySize - partSize * (parts - 1) : partSize);
+                        writer.write("</bm:Part" + i + ">\n");
+                    }
+                    writer.write("</bm:Request></env:Body>\n");
+                    writer.write("</env:Envelope>");
+                } finally {
+                    writer.close();
+                }
+                file = target;
+            }
+            return file;
+        }
+    }
+}
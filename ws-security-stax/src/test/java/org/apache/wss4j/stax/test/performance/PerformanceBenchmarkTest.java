@@ -0,0 +1,425 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.stax.test.performance;
+
+import org.apache.wss4j.common.WSEncryptionPart;
+import org.apache.wss4j.common.crypto.Crypto;
+import org.apache.wss4j.common.crypto.CryptoFactory;
+import org.apache.wss4j.common.ext.Attachment;
+import org.apache.wss4j.dom.WSConstants;
+import org.apache.wss4j.dom.engine.WSSConfig;
+import org.apache.wss4j.dom.engine.WSSecurityEngine;
+import org.apache.wss4j.dom.handler.RequestData;
+import org.apache.wss4j.dom.message.WSSecEncrypt;
+import org.apache.wss4j.dom.message.WSSecHeader;
+import org.apache.wss4j.dom.message.WSSecSignature;
+import org.apache.wss4j.stax.ext.WSSConstants;
+import org.apache.wss4j.stax.ext.WSSSecurityProperties;
+import org.apache.wss4j.stax.securityToken.WSSecurityTokenConstants;
+import org.apache.wss4j.stax.setup.InboundWSSec;
+import org.apache.wss4j.stax.setup.OutboundWSSec;
+import org.apache.wss4j.stax.setup.WSSec;
+import org.apache.wss4j.stax.test.AbstractTestBase;
+import org.apache.wss4j.stax.test.AttachmentCallbackHandler;
+import org.apache.wss4j.stax.test.CallbackHandlerImpl;
+import org.apache.wss4j.stax.test.WSS4JCallbackHandlerImpl;
+import org.apache.wss4j.stax.test.utils.XmlReaderToWriter;
+import org.apache.xml.security.stax.ext.SecurePart;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs the DOM and the streaming engine over the same {@link BenchmarkCorpus} and compares their cost.
+ * Every case is signed and encrypted (outbound) and then verified and decrypted (inbound) by both engines,
+ * "wss4j.benchmark.warmup" times (default 3) without and "wss4j.benchmark.iterations" times (default 20)
+ * with measuring.
+ *
+ * For every case, engine and direction the throughput, the latency percentiles and the bytes allocated per
+ * message are written to "target/benchmark-results.properties". The allocation is the one of the calling
+ * thread only, so the work of the streaming decryption thread is not part of the inbound figure.
+ *
+ * The figures are compared against the file named by "wss4j.benchmark.baseline" (default
+ * "src/test/resources/benchmark-baseline.properties", the results of an earlier run on the reference machine)
+ * and the test fails if there is no baseline, or if a figure is worse than its baseline by more than:
+ *
+ * <ul>
+ * <li>"wss4j.benchmark.maxRegression" percent (default 10) for the allocation</li>
+ * <li>"wss4j.benchmark.maxTimeRegression" percent for the throughput and the latencies. These depend on the
+ * machine and its load, so they are only compared if this is set, e.g. on the machine the baseline was
+ * generated on</li>
+ * </ul>
+ *
+ * With "wss4j.benchmark.updateBaseline" set to true the results are written to the baseline file instead of
+ * being compared.
+ *
+ * The test is not part of the normal build, it is run with "mvn test -Pbenchmark -Dtest=PerformanceBenchmarkTest".
+ */
+public class PerformanceBenchmarkTest extends AbstractTestBase {
+
+    private static final org.slf4j.Logger LOG =
+            org.slf4j.LoggerFactory.getLogger(PerformanceBenchmarkTest.class);
+
+    private static final String[] LOWER_TIME_IS_BETTER = {"latency.p50", "latency.p90", "latency.p99"};
+    private static final String[] HIGHER_TIME_IS_BETTER = {"throughput", "mbPerSecond"};
+
+    private final Map<String, String> results = new TreeMap<String, String>();
+    private BenchmarkCorpus corpus;
+    private Crypto transmitterCrypto;
+    private Crypto receiverCrypto;
+    private int warmup;
+    private int iterations;
+
+    @Before
+    public void setUp() throws Exception {
+        corpus = new BenchmarkCorpus(new File("target/benchmarkCorpus"));
+        transmitterCrypto = CryptoFactory.getInstance("transmitter-crypto.properties");
+        receiverCrypto = CryptoFactory.getInstance("receiver-crypto.properties");
+        warmup = Integer.getInteger("wss4j.benchmark.warmup", 3);
+        iterations = Integer.getInteger("wss4j.benchmark.iterations", 20);
+    }
+
+    @Test
+    public void testBenchmark() throws Exception {
+        for (BenchmarkCorpus.Case benchmarkCase : corpus.getCases()) {
+            benchmark(benchmarkCase);
+        }
+        checkRegressions();
+    }
+
+    private void benchmark(BenchmarkCorpus.Case benchmarkCase) throws Exception {
+        LOG.info("Benchmarking " + benchmarkCase.getName());
+        long messageSize = benchmarkCase.getFile().length();
+
+        Sampler domOut = new Sampler();
+        Sampler domIn = new Sampler();
+        Sampler streamOut = new Sampler();
+        Sampler streamIn = new Sampler();
+        for (int i = 0; i < warmup + iterations; i++) {
+            boolean measure = i >= warmup;
+
+            AttachmentCallbackHandler outAttachments = new AttachmentCallbackHandler(benchmarkCase.newAttachments());
+            domOut.start();
+            byte[] secured = doDOMOutbound(benchmarkCase, outAttachments);
+            domOut.stop(measure);
+
+            AttachmentCallbackHandler inAttachments =
+                    new AttachmentCallbackHandler(getSecuredAttachments(outAttachments));
+            domIn.start();
+            doDOMInbound(secured, inAttachments);
+            domIn.stop(measure);
+
+            outAttachments = new AttachmentCallbackHandler(benchmarkCase.newAttachments());
+            streamOut.start();
+            secured = doStreamingOutbound(benchmarkCase, outAttachments);
+            streamOut.stop(measure);
+
+            inAttachments = new AttachmentCallbackHandler(getSecuredAttachments(outAttachments));
+            streamIn.start();
+            doStreamingInbound(secured, inAttachments);
+            streamIn.stop(measure);
+        }
+
+        domOut.report(benchmarkCase.getName() + ".dom.out", messageSize);
+        domIn.report(benchmarkCase.getName() + ".dom.in", messageSize);
+        streamOut.report(benchmarkCase.getName() + ".stax.out", messageSize);
+        streamIn.report(benchmarkCase.getName() + ".stax.in", messageSize);
+    }
+
+    private void checkRegressions() throws Exception {
+        writeResults(new File("target/benchmark-results.properties"));
+
+        File baselineFile = new File(System.getProperty("wss4j.benchmark.baseline",
+                "src/test/resources/benchmark-baseline.properties"));
+        if (Boolean.getBoolean("wss4j.benchmark.updateBaseline")) {
+            writeResults(baselineFile);
+            LOG.info("Wrote the benchmark baseline " + baselineFile);
+            return;
+        }
+        Assert.assertTrue("No benchmark baseline " + baselineFile + " found, create it with -Dbenchmark.updateBaseline=true",
+                baselineFile.exists());
+        Properties baseline = new Properties();
+        InputStream inputStream = new FileInputStream(baselineFile);
+        try {
+            baseline.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+
+        double maxRegression = Double.parseDouble(System.getProperty("wss4j.benchmark.maxRegression", "10")) / 100.0;
+        String maxTimeRegressionProperty = System.getProperty("wss4j.benchmark.maxTimeRegression", "");
+        boolean compareTimes = !maxTimeRegressionProperty.trim().isEmpty();
+        double maxTimeRegression = compareTimes ? Double.parseDouble(maxTimeRegressionProperty) / 100.0 : 0;
+        if (!compareTimes) {
+            LOG.info("Only the allocation is compared against the baseline, as wss4j.benchmark.maxTimeRegression "
+                    + "is not set");
+        }
+        List<String> regressions = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : results.entrySet()) {
+            String expected = baseline.getProperty(entry.getKey());
+            if (expected == null) {
+                continue;
+            }
+            double baselineValue = Double.parseDouble(expected);
+            double value = Double.parseDouble(entry.getValue());
+            if (entry.getKey().endsWith(".allocation") && value > baselineValue * (1 + maxRegression)
+                    || compareTimes && endsWith(entry.getKey(), LOWER_TIME_IS_BETTER)
+                        && value > baselineValue * (1 + maxTimeRegression)
+                    || compareTimes && endsWith(entry.getKey(), HIGHER_TIME_IS_BETTER)
+                        && value < baselineValue * (1 - maxTimeRegression)) {
+                regressions.add(entry.getKey() + ": " + entry.getValue() + " (baseline " + expected + ")");
+            }
+        }
+        Assert.assertTrue("Benchmark regressions: " + regressions, regressions.isEmpty());
+    }
+
+    private void writeResults(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            writer.write("# <case>.<engine>.<direction>.<metric>: throughput in messages/s, latencies in ms, "
+                    + "allocation in bytes/message\n");
+            for (Map.Entry<String, String> entry : results.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * The signature and the encryption both report their result, so only the last one per attachment is kept.
+     */
+    private static List<Attachment> getSecuredAttachments(AttachmentCallbackHandler attachmentCallbackHandler) {
+        Map<String, Attachment> attachments = new LinkedHashMap<String, Attachment>();
+        for (Attachment attachment : attachmentCallbackHandler.getResponseAttachments()) {
+            attachments.put(attachment.getId(), attachment);
+        }
+        return new ArrayList<Attachment>(attachments.values());
+    }
+
+    private static boolean endsWith(String key, String[] metrics) {
+        for (String metric : metrics) {
+            if (key.endsWith("." + metric)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] doDOMOutbound(BenchmarkCorpus.Case benchmarkCase, AttachmentCallbackHandler attachments)
+            throws Exception {
+        Document doc = documentBuilderFactory.newDocumentBuilder().parse(benchmarkCase.getFile());
+        WSSecHeader secHeader = new WSSecHeader(doc);
+        secHeader.insertSecurityHeader();
+
+        WSSecSignature signature = new WSSecSignature(secHeader);
+        signature.setUserInfo("transmitter", "default");
+        signature.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        signature.setSignatureAlgorithm(WSConstants.RSA_SHA1);
+        signature.setAttachmentCallbackHandler(attachments);
+
+        WSSecEncrypt encrypt = new WSSecEncrypt(secHeader);
+        encrypt.setUserInfo("receiver");
+        encrypt.setKeyIdentifierType(WSConstants.ISSUER_SERIAL);
+        encrypt.setSymmetricEncAlgorithm(WSConstants.AES_128);
+        encrypt.setKeyEncAlgo(WSConstants.KEYTRANSPORT_RSAOAEP);
+        encrypt.setAttachmentCallbackHandler(attachments);
+
+        for (QName partName : benchmarkCase.getPartNames()) {
+            signature.getParts().add(
+                    new WSEncryptionPart(partName.getLocalPart(), partName.getNamespaceURI(), "Element"));
+            encrypt.getParts().add(
+                    new WSEncryptionPart(partName.getLocalPart(), partName.getNamespaceURI(), "Content"));
+        }
+        if (benchmarkCase.getAttachments() > 0) {
+            signature.getParts().add(new WSEncryptionPart("cid:Attachments", "Content"));
+            encrypt.getParts().add(new WSEncryptionPart("cid:Attachments", "Content"));
+        }
+
+        signature.build(transmitterCrypto);
+        encrypt.build(transmitterCrypto);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(benchmarkCase.getBodySize() * 2);
+        TRANSFORMER_FACTORY.newTransformer().transform(new DOMSource(doc), new StreamResult(baos));
+        return baos.toByteArray();
+    }
+
+    private void doDOMInbound(byte[] secured, AttachmentCallbackHandler attachments) throws Exception {
+        Document doc = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(secured));
+        RequestData requestData = new RequestData();
+        requestData.setWssConfig(WSSConfig.getNewInstance());
+        requestData.setSigVerCrypto(receiverCrypto);
+        requestData.setDecCrypto(receiverCrypto);
+        requestData.setCallbackHandler(new WSS4JCallbackHandlerImpl());
+        requestData.setAttachmentCallbackHandler(attachments);
+        new WSSecurityEngine().processSecurityHeader(doc, requestData);
+    }
+
+    private byte[] doStreamingOutbound(BenchmarkCorpus.Case benchmarkCase, AttachmentCallbackHandler attachments)
+            throws Exception {
+        WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+        List<WSSConstants.Action> actions = new ArrayList<WSSConstants.Action>();
+        actions.add(WSSConstants.SIGNATURE);
+        actions.add(WSSConstants.ENCRYPT);
+        securityProperties.setActions(actions);
+        securityProperties.setCallbackHandler(new CallbackHandlerImpl());
+        securityProperties.setSignatureUser("transmitter");
+        securityProperties.loadSignatureKeyStore(
+                this.getClass().getClassLoader().getResource("transmitter.jks"), "default".toCharArray());
+        securityProperties.setSignatureKeyIdentifier(WSSecurityTokenConstants.KeyIdentifier_IssuerSerial);
+        securityProperties.setSignatureAlgorithm(WSConstants.RSA_SHA1);
+        securityProperties.setEncryptionUser("receiver");
+        securityProperties.loadEncryptionKeystore(
+                this.getClass().getClassLoader().getResource("transmitter.jks"), "default".toCharArray());
+        securityProperties.setEncryptionKeyIdentifier(WSSecurityTokenConstants.KeyIdentifier_IssuerSerial);
+        securityProperties.setEncryptionSymAlgorithm(WSConstants.AES_128);
+        securityProperties.setEncryptionKeyTransportAlgorithm(WSConstants.KEYTRANSPORT_RSAOAEP);
+        securityProperties.setAttachmentCallbackHandler(attachments);
+
+        for (QName partName : benchmarkCase.getPartNames()) {
+            securityProperties.addSignaturePart(new SecurePart(partName, SecurePart.Modifier.Element));
+            securityProperties.addEncryptionPart(new SecurePart(partName, SecurePart.Modifier.Content));
+        }
+        if (benchmarkCase.getAttachments() > 0) {
+            securityProperties.addSignaturePart(new SecurePart("cid:Attachments", SecurePart.Modifier.Content));
+            securityProperties.addEncryptionPart(new SecurePart("cid:Attachments", SecurePart.Modifier.Content));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(benchmarkCase.getBodySize() * 2);
+        OutboundWSSec wsSecOut = WSSec.getOutboundWSSec(securityProperties);
+        XMLStreamWriter xmlStreamWriter = wsSecOut.processOutMessage(baos, "UTF-8", new ArrayList<>());
+        InputStream sourceDocument = new BufferedInputStream(new FileInputStream(benchmarkCase.getFile()));
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(sourceDocument);
+        XmlReaderToWriter.writeAll(xmlStreamReader, xmlStreamWriter);
+        xmlStreamWriter.close();
+        xmlStreamReader.close();
+        sourceDocument.close();
+        return baos.toByteArray();
+    }
+
+    private void doStreamingInbound(byte[] secured, AttachmentCallbackHandler attachments) throws Exception {
+        WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+        securityProperties.loadSignatureVerificationKeystore(
+                this.getClass().getClassLoader().getResource("receiver.jks"), "default".toCharArray());
+        securityProperties.loadDecryptionKeystore(
+                this.getClass().getClassLoader().getResource("receiver.jks"), "default".toCharArray());
+        securityProperties.setCallbackHandler(new CallbackHandlerImpl());
+        securityProperties.setAttachmentCallbackHandler(attachments);
+
+        InboundWSSec wsSecIn = WSSec.getInboundWSSec(securityProperties);
+        XMLStreamReader xmlStreamReader = wsSecIn.processInMessage(
+                xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(secured)));
+        while (xmlStreamReader.hasNext()) {
+            xmlStreamReader.next();
+        }
+        xmlStreamReader.close();
+    }
+
+    /**
+     * Collects the latency and the allocation of the measured runs of one engine and direction.
+     */
+    private class Sampler {
+
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        private final List<Long> latencies = new ArrayList<Long>();
+        private final List<Long> allocations = new ArrayList<Long>();
+        private long startTime;
+        private long startAllocation;
+
+        void start() {
+            startAllocation = getAllocatedBytes();
+            startTime = System.nanoTime();
+        }
+
+        void stop(boolean measure) {
+            long latency = System.nanoTime() - startTime;
+            long allocation = getAllocatedBytes() - startAllocation;
+            if (measure) {
+                latencies.add(latency);
+                allocations.add(allocation);
+            }
+        }
+
+        void report(String prefix, long messageSize) {
+            Collections.sort(latencies);
+            long totalTime = 0;
+            for (Long latency : latencies) {
+                totalTime += latency;
+            }
+            long totalAllocation = 0;
+            for (Long allocation : allocations) {
+                totalAllocation += allocation;
+            }
+            double seconds = totalTime / 1000000000.0;
+            results.put(prefix + ".messages", String.valueOf(latencies.size()));
+            results.put(prefix + ".throughput", format(latencies.size() / seconds));
+            results.put(prefix + ".mbPerSecond", format(messageSize * latencies.size() / seconds / 1024.0 / 1024.0));
+            results.put(prefix + ".latency.p50", format(percentile(0.50)));
+            results.put(prefix + ".latency.p90", format(percentile(0.90)));
+            results.put(prefix + ".latency.p99", format(percentile(0.99)));
+            results.put(prefix + ".allocation", String.valueOf(totalAllocation / allocations.size()));
+        }
+
+        private double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * latencies.size()) - 1;
+            return latencies.get(Math.max(index, 0)) / 1000000.0;
+        }
+
+        private long getAllocatedBytes() {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+            return 0;
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ENGLISH, "%.3f", value);
+    }
+}
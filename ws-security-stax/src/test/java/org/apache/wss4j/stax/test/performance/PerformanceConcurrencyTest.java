@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.wss4j.stax.test.performance;
+
+import org.apache.wss4j.stax.ext.WSSConstants;
+import org.apache.wss4j.stax.ext.WSSSecurityProperties;
+import org.apache.wss4j.stax.setup.InboundWSSec;
+import org.apache.wss4j.stax.setup.OutboundWSSec;
+import org.apache.wss4j.stax.setup.WSSec;
+import org.apache.wss4j.stax.test.AbstractTestBase;
+import org.apache.wss4j.stax.test.CallbackHandlerImpl;
+import org.apache.wss4j.stax.test.utils.XmlReaderToWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the threads and the heap used by the streaming inbound processing when many encrypted
+ * requests are in-flight at the same time. A request is in-flight when its reader has been positioned
+ * on the first decrypted element of the soap body, so its decryption thread is started and blocks on the pipe.
+ *
+ * The limits are set with system properties:
+ *
+ * <ul>
+ * <li>"wss4j.concurrency.requests": the count of requests which are started (default 10000)</li>
+ * <li>"wss4j.concurrency.maxThreads": the test fails if more threads than this are added (default no limit)</li>
+ * <li>"wss4j.concurrency.maxHeapMB": the test fails if more heap than this is used, in MB (default no limit)</li>
+ * </ul>
+ *
+ * The figures are appended to "target/concurrency-in-samples.txt". The test is not part of the normal build,
+ * it is run with "mvn test -Pbenchmark -Dtest=PerformanceConcurrencyTest".
+ */
+public class PerformanceConcurrencyTest extends AbstractTestBase {
+
+    private static final org.slf4j.Logger LOG =
+            org.slf4j.LoggerFactory.getLogger(PerformanceConcurrencyTest.class);
+
+    @Before
+    public void createDir() throws Exception {
+        new File("target/performanceConcurrencyTest").mkdirs();
+    }
+
+    @Test
+    public void testInboundConcurrentDecryption() throws Exception {
+        int requests = Integer.getInteger("wss4j.concurrency.requests", 10000);
+        int maxThreads = Integer.getInteger("wss4j.concurrency.maxThreads", -1);
+        int maxHeapMB = Integer.getInteger("wss4j.concurrency.maxHeapMB", -1);
+        File input = new File("target/performanceConcurrencyTest/stream-encrypted.xml");
+        doStreamingSecurityOutbound(input);
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        int startThreads = threadMXBean.getThreadCount();
+        long startMem = getUsedMemory();
+
+        List<XMLStreamReader> inFlight = new ArrayList<XMLStreamReader>(requests);
+        List<InputStream> inputStreams = new ArrayList<InputStream>(requests);
+        int started = 0;
+        try {
+            for (; started < requests; started++) {
+                InputStream inputStream = new BufferedInputStream(new FileInputStream(input));
+                inputStreams.add(inputStream);
+                inFlight.add(startStreamingInSecurity(inputStream));
+            }
+        } catch (OutOfMemoryError e) {
+            //that is what we like to see...
+            try {
+                for (int i = 0; i < inFlight.size(); i++) {
+                    try {
+                        inFlight.get(i).close();
+                    } catch (XMLStreamException ex) {
+                        //the other readers are closed anyway
+                        LOG.debug(ex.getMessage(), ex);
+                    }
+                }
+            } finally {
+                inFlight.clear();
+            }
+            gc();
+            LOG.info("OutOfMemoryError after " + started + " in-flight requests");
+        }
+
+        int peakThreads = threadMXBean.getThreadCount();
+        long usedMem = getUsedMemory() - startMem;
+
+        for (int i = 0; i < inFlight.size(); i++) {
+            XMLStreamReader xmlStreamReader = inFlight.get(i);
+            while (xmlStreamReader.hasNext()) {
+                xmlStreamReader.next();
+            }
+            xmlStreamReader.close();
+        }
+        for (int i = 0; i < inputStreams.size(); i++) {
+            inputStreams.get(i).close();
+        }
+
+        int addedThreads = peakThreads - startThreads;
+        int usedHeapMB = (int) (usedMem / 1024.0 / 1024.0);
+        Writer inSamples = new FileWriter("target/concurrency-in-samples.txt", true);
+        try {
+            inSamples.write(started + " " + addedThreads + " " + usedHeapMB + "\n");
+        } finally {
+            inSamples.close();
+        }
+        LOG.info("In-flight requests: " + started + ", additional threads: " + addedThreads
+                + ", additional heap: " + usedHeapMB + "MB");
+
+        if (maxThreads >= 0) {
+            Assert.assertTrue(addedThreads + " threads added for " + started + " in-flight requests, at most "
+                    + maxThreads + " are allowed", addedThreads <= maxThreads);
+        }
+        if (maxHeapMB >= 0) {
+            Assert.assertTrue(usedHeapMB + "MB heap used for " + started + " in-flight requests, at most "
+                    + maxHeapMB + "MB are allowed", usedHeapMB <= maxHeapMB);
+        }
+    }
+
+    private OutboundWSSec outboundWSSec;
+
+    private void doStreamingSecurityOutbound(File output) throws Exception {
+        if (outboundWSSec == null) {
+            WSSSecurityProperties securityProperties = new WSSSecurityProperties();
+            securityProperties.setCallbackHandler(new CallbackHandlerImpl());
+            securityProperties.setEncryptionUser("receiver");
+            securityProperties.loadEncryptionKeystore(this.getClass().getClassLoader().getResource("transmitter.jks"), "default".toCharArray());
+            List<WSSConstants.Action> actions = new ArrayList<WSSConstants.Action>();
+            actions.add(WSSConstants.ENCRYPT);
+            securityProperties.setActions(actions);
+            outboundWSSec = WSSec.getOutboundWSSec(securityProperties);
+        }
+
+        InputStream sourceDocument = this.getClass().getClassLoader().getResourceAsStream("testdata/plain-soap-1.1.xml");
+        XMLStreamWriter xmlStreamWriter = outboundWSSec.processOutMessage(new BufferedOutputStream(new FileOutputStream(output)), "UTF-8", new ArrayList<>());
+        XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(sourceDocument);
+        XmlReaderToWriter.writeAll(xmlStreamReader, xmlStreamWriter);
+        xmlStreamWriter.close();
+        xmlStreamReader.close();
+        sourceDocument.close();
+    }
+
+    private InboundWSSec inboundWSSec;
+
+    private XMLStreamReader startStreamingInSecurity(InputStream inputStream) throws Exception {
+        if (inboundWSSec == null) {
+            WSSSecurityProperties inSecurityProperties = new WSSSecurityProperties();
+            inSecurityProperties.loadDecryptionKeystore(this.getClass().getClassLoader().getResource("receiver.jks"), "default".toCharArray());
+            inSecurityProperties.setCallbackHandler(new CallbackHandlerImpl());
+
+            inboundWSSec = WSSec.getInboundWSSec(inSecurityProperties);
+        }
+        XMLStreamReader outXmlStreamReader = inboundWSSec.processInMessage(xmlInputFactory.createXMLStreamReader(inputStream));
+
+        //advance to the first decrypted element in the body, the request stays in-flight from here on:
+        boolean inBody = false;
+        while (outXmlStreamReader.hasNext()) {
+            int eventType = outXmlStreamReader.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                if (inBody) {
+                    break;
+                }
+                inBody = WSSConstants.TAG_SOAP11_BODY.equals(outXmlStreamReader.getName());
+            }
+        }
+        return outXmlStreamReader;
+    }
+
+    private static void gc() {
+        System.gc();
+        System.runFinalization();
+        System.gc();
+    }
+
+    private static long getUsedMemory() {
+        gc();
+        gc();
+        long totalMemory = Runtime.getRuntime().totalMemory();
+        long freeMemory = Runtime.getRuntime().freeMemory();
+        return totalMemory - freeMemory;
+    }
+}